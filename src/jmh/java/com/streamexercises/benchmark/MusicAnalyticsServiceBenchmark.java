@@ -0,0 +1,261 @@
+package com.streamexercises.benchmark;
+
+import com.streamexercises.generator.GeneratorConfig;
+import com.streamexercises.generator.SyntheticCatalogGenerator;
+import com.streamexercises.model.*;
+import com.streamexercises.service.AlbumIndex;
+import com.streamexercises.service.CollaborationGraph;
+import com.streamexercises.service.DecadeGenreCube;
+import com.streamexercises.service.MusicAnalyticsService;
+import com.streamexercises.service.RecommendationEngine;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.Duration;
+import java.time.Year;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * JMH benchmarks covering every exercise in {@link MusicAnalyticsService}.
+ *
+ * Song-only exercises are parameterized by catalog size; exercises that also need
+ * users run for every combination of catalog size and user count. Data sets come from
+ * {@link SyntheticCatalogGenerator} with a fixed seed, so every run measures the same data. Both throughput
+ * and average time are reported; run with {@code -prof gc} (or through {@link #main})
+ * to also get the allocation rate.
+ *
+ * Build and run:
+ *   mvn -Pjmh package
+ *   java -jar target/benchmarks.jar -prof gc
+ *
+ * Narrow the scale with JMH parameters, e.g. {@code -p songCount=10000 -p userCount=100000}.
+ * Exercises 4 and 15 are quadratic in the number of users and take a very long time
+ * at the larger scales.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx16g"})
+@State(Scope.Benchmark)
+public class MusicAnalyticsServiceBenchmark {
+
+    static final long SEED = 0x5EED_2024L;
+
+    @State(Scope.Benchmark)
+    public static class SongState {
+
+        @Param({"10000", "1000000", "10000000"})
+        public int songCount;
+
+        public SyntheticCatalogGenerator generator;
+        public List<Song> songs;
+        public List<Album> albums;
+        public Map<String, Song> songLookup;
+        public AlbumIndex albumIndex;
+        public RecommendationEngine recommendationEngine;
+        public DecadeGenreCube decadeGenreCube;
+        public CollaborationGraph collaborationGraph;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            generator = new SyntheticCatalogGenerator(GeneratorConfig.defaults(SEED, songCount, 0));
+            songs = generator.songs().collect(Collectors.toList());
+            albums = generator.albums(songs).collect(Collectors.toList());
+            songLookup = songs.stream().collect(Collectors.toMap(Song::getId, Function.identity()));
+            albumIndex = new AlbumIndex(albums);
+            recommendationEngine = new RecommendationEngine(songs);
+            decadeGenreCube = new DecadeGenreCube(songs);
+            collaborationGraph = new CollaborationGraph(songs, true);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class UserState {
+
+        @Param({"100000", "5000000"})
+        public int userCount;
+
+        @Param({"20"})
+        public int listensPerUser;
+
+        @Param({"100"})
+        public int maxPlaylistSize;
+
+        public List<User> users;
+        public List<Playlist> playlists;
+        public Catalog catalog;
+
+        @Setup(Level.Trial)
+        public void setUp(SongState catalog) {
+            SyntheticCatalogGenerator generator = new SyntheticCatalogGenerator(
+                    GeneratorConfig.defaults(SEED, catalog.songCount, userCount)
+                            .withListensPerUser(listensPerUser, listensPerUser * 100)
+                            .withPlaylists(3, 10, maxPlaylistSize));
+            users = generator.users(catalog.songs, catalog.albums).parallel().collect(Collectors.toList());
+            playlists = generator.playlists(catalog.songs, users).collect(Collectors.toList());
+            this.catalog = new Catalog(catalog.songs, catalog.albums, playlists, users);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class UserCursor {
+        private int next;
+
+        User nextUser(UserState state) {
+            User user = state.users.get(next);
+            next = (next + 1) % state.users.size();
+            return user;
+        }
+    }
+
+    private final MusicAnalyticsService service = new MusicAnalyticsService();
+
+    @Benchmark
+    public Map<Genre, Double> getAveragePopularityByGenre(SongState catalog) {
+        return service.getAveragePopularityByGenre(catalog.songs);
+    }
+
+    @Benchmark
+    public Map<Genre, Optional<Song>> getMostPopularSongByGenre(SongState catalog) {
+        return service.getMostPopularSongByGenre(catalog.songs);
+    }
+
+    @Benchmark
+    public Duration calculateTotalPlaylistsDuration(UserState listeners) {
+        return service.calculateTotalPlaylistsDuration(listeners.playlists);
+    }
+
+    @Benchmark
+    public Map<String, List<String>> findUsersWithOverlappingGenres(UserState listeners) {
+        return service.findUsersWithOverlappingGenres(listeners.users);
+    }
+
+    @Benchmark
+    public List<Song> getTopNSongsByPlayCount(SongState catalog) {
+        return service.getTopNSongsByPlayCount(catalog.songs, 100);
+    }
+
+    @Benchmark
+    public List<Album> findAlbumsByComplexCriteria(SongState catalog) {
+        return service.findAlbumsByComplexCriteria(catalog.albums, Year.of(2000), 50.0, Genre.POP);
+    }
+
+    @Benchmark
+    public List<Album> findAlbumsByComplexCriteriaWithIndex(SongState catalog) {
+        return service.findAlbumsByComplexCriteria(catalog.albumIndex, Year.of(2000), 50.0, Genre.POP);
+    }
+
+    @Benchmark
+    public List<MusicAnalyticsService.AlbumSummaryDTO> createAlbumSummaries(SongState catalog) {
+        return service.createAlbumSummaries(catalog.albums);
+    }
+
+    @Benchmark
+    public Map<String, MusicAnalyticsService.UserStatisticsDTO> generateUserStatistics(
+            SongState catalog, UserState listeners) {
+        return service.generateUserStatistics(listeners.users, catalog.songs, listeners.playlists);
+    }
+
+    @Benchmark
+    public Map<String, MusicAnalyticsService.UserStatisticsDTO> generateUserStatisticsWithCatalog(
+            UserState listeners) {
+        return service.generateUserStatistics(listeners.users, listeners.catalog);
+    }
+
+    @Benchmark
+    public Map<Boolean, IntSummaryStatistics> getPlayStatisticsByPremiumStatus(UserState listeners) {
+        return service.getPlayStatisticsByPremiumStatus(listeners.users);
+    }
+
+    @Benchmark
+    public List<Song> getPersonalizedRecommendations(SongState catalog, UserState listeners, UserCursor cursor) {
+        return service.getPersonalizedRecommendations(cursor.nextUser(listeners), catalog.songs, catalog.albums);
+    }
+
+    @Benchmark
+    public List<Song> getPersonalizedRecommendationsWithEngine(SongState catalog, UserState listeners, UserCursor cursor) {
+        return service.getPersonalizedRecommendations(cursor.nextUser(listeners), catalog.recommendationEngine);
+    }
+
+    @Benchmark
+    public long getPersonalizedRecommendationsForAllUsers(SongState catalog, UserState listeners) {
+        // Not count(): it may skip the mapping for sized streams
+        return service.getPersonalizedRecommendations(listeners.users, catalog.recommendationEngine)
+                .mapToLong(recommendations -> recommendations.songs().size())
+                .sum();
+    }
+
+    @Benchmark
+    public Map<MusicAnalyticsService.Decade, Map<Genre, List<MusicAnalyticsService.SongSummary>>>
+            analyzeLibraryByDecadeAndGenre(SongState catalog) {
+        return service.analyzeLibraryByDecadeAndGenre(catalog.songs);
+    }
+
+    @Benchmark
+    public List<MusicAnalyticsService.SongSummary> browseDecadeGenreCell(SongState catalog) {
+        return catalog.decadeGenreCube.page(new MusicAnalyticsService.Decade(2000), Genre.POP, 0, 50);
+    }
+
+    @Benchmark
+    public Map<MusicAnalyticsService.ArtistPair, List<Song>> findArtistCollaborations(SongState catalog) {
+        return service.findArtistCollaborations(catalog.songs);
+    }
+
+    @Benchmark
+    public List<String> findMostInfluentialArtists(SongState catalog) {
+        return service.findMostInfluentialArtists(catalog.collaborationGraph, 10);
+    }
+
+    @Benchmark
+    public int[] topCollaboratorsWithGraph(SongState catalog) {
+        return catalog.collaborationGraph.topCollaborators(catalog.songs.get(0).getArtistId(0), 10);
+    }
+
+    @Benchmark
+    public Map<User, Map<Genre, Double>> calculateGenreAffinityScores(SongState catalog, UserState listeners) {
+        return service.calculateGenreAffinityScores(listeners.users, catalog.songs, listeners.playlists);
+    }
+
+    @Benchmark
+    public Map<User, Map<Genre, Double>> calculateGenreAffinityScoresWithCatalog(UserState listeners) {
+        return service.calculateGenreAffinityScores(listeners.users, listeners.catalog);
+    }
+
+    @Benchmark
+    public List<Song> generateDynamicPlaylist(SongState catalog) {
+        return service.generateDynamicPlaylist(
+                catalog.songs,
+                EnumSet.of(Genre.POP, Genre.ELECTRONIC),
+                Set.of(SyntheticCatalogGenerator.artistName(0), SyntheticCatalogGenerator.artistName(1)),
+                Year.of(2000),
+                Year.of(2023),
+                Duration.ofMinutes(45),
+                5);
+    }
+
+    @Benchmark
+    public Map<Song, Map<Song, Double>> analyzeTrackTransitionProbabilities(SongState catalog, UserState listeners) {
+        return service.analyzeTrackTransitionProbabilities(listeners.users, catalog.songLookup);
+    }
+
+    @Benchmark
+    public Map<Song, Map<Song, Double>> analyzeTrackTransitionProbabilitiesWithCatalog(UserState listeners) {
+        return service.analyzeTrackTransitionProbabilities(listeners.users, listeners.catalog);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(MusicAnalyticsServiceBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,97 @@
+package com.streamexercises.collection;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * Map from dense, non-negative int ids to values, backed by a plain array indexed by id.
+ *
+ * Lookups are a bounds check and an array read: no hashing and no boxing. Meant for ids
+ * handed out consecutively (see {@code IdRegistry}), where the array stays densely filled.
+ * Null values are not supported; a null slot means "absent". Not synchronized.
+ */
+public final class DenseIdMap<V> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private Object[] values;
+    private int size;
+
+    public DenseIdMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public DenseIdMap(int initialCapacity) {
+        this.values = new Object[Math.max(1, initialCapacity)];
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(int id) {
+        return id >= 0 && id < values.length ? (V) values[id] : null;
+    }
+
+    public boolean containsKey(int id) {
+        return get(id) != null;
+    }
+
+    /**
+     * Stores the value if the id has none yet and returns the previous value (null if stored).
+     */
+    public V putIfAbsent(int id, V value) {
+        V existing = get(id);
+        if (existing != null) {
+            return existing;
+        }
+        put(id, value);
+        return null;
+    }
+
+    public V put(int id, V value) {
+        if (id < 0) {
+            throw new IllegalArgumentException("id must not be negative: " + id);
+        }
+        if (value == null) {
+            throw new IllegalArgumentException("null values are not supported");
+        }
+        ensureCapacity(id + 1);
+        V previous = get(id);
+        values[id] = value;
+        if (previous == null) {
+            size++;
+        }
+        return previous;
+    }
+
+    public V computeIfAbsent(int id, IntFunction<? extends V> mappingFunction) {
+        V existing = get(id);
+        if (existing == null) {
+            existing = mappingFunction.apply(id);
+            put(id, existing);
+        }
+        return existing;
+    }
+
+    public V remove(int id) {
+        V previous = get(id);
+        if (previous != null) {
+            values[id] = null;
+            size--;
+        }
+        return previous;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > values.length) {
+            int newCapacity = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(capacity, values.length * 2L));
+            values = Arrays.copyOf(values, newCapacity);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.streamexercises.collection;
+
+/**
+ * Receives an int key and its int value, without boxing either.
+ */
+@FunctionalInterface
+public interface IntIntConsumer {
+    void accept(int key, int value);
+}
@@ -0,0 +1,280 @@
+package com.streamexercises.collection;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from non-negative int keys to int values.
+ *
+ * Keys and values live in two parallel int arrays with linear probing, so an entry costs
+ * about 12 bytes at the default load factor instead of the 80+ bytes of a
+ * {@code HashMap<String, Integer>} entry, and no lookup or update boxes. Removal uses
+ * backward-shift deletion, so there are no tombstones and probe chains stay short.
+ *
+ * Iteration order is slot order: stable while the map is not modified, but otherwise
+ * unspecified. Negative keys are rejected (-1 marks a free slot). Not synchronized.
+ */
+public final class IntIntHashMap {
+
+    private static final int FREE = -1;
+    private static final int DEFAULT_CAPACITY = 8;
+    private static final float LOAD_FACTOR = 0.75f;
+
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+
+    public IntIntHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public IntIntHashMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    public int get(int key) {
+        return getOrDefault(key, 0);
+    }
+
+    public int getOrDefault(int key, int defaultValue) {
+        int slot = findSlot(key);
+        return slot >= 0 ? values[slot] : defaultValue;
+    }
+
+    public boolean containsKey(int key) {
+        return findSlot(key) >= 0;
+    }
+
+    /**
+     * Stores the value and returns the previous one, or {@code defaultValue} if the key was absent.
+     */
+    public int put(int key, int value, int defaultValue) {
+        checkKey(key);
+        int slot = probe(key);
+        if (keys[slot] == key) {
+            int previous = values[slot];
+            values[slot] = value;
+            return previous;
+        }
+        insertAt(slot, key, value);
+        return defaultValue;
+    }
+
+    public void put(int key, int value) {
+        put(key, value, 0);
+    }
+
+    /**
+     * Adds {@code delta} to the key's value (absent counts as 0) and returns the new value.
+     */
+    public int addTo(int key, int delta) {
+        checkKey(key);
+        int slot = probe(key);
+        if (keys[slot] == key) {
+            return values[slot] += delta;
+        }
+        insertAt(slot, key, delta);
+        return delta;
+    }
+
+    /**
+     * Removes the key and returns its value, or {@code defaultValue} if it was absent.
+     */
+    public int remove(int key, int defaultValue) {
+        int slot = findSlot(key);
+        if (slot < 0) {
+            return defaultValue;
+        }
+        int previous = values[slot];
+        shiftBack(slot);
+        size--;
+        return previous;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, FREE);
+        size = 0;
+    }
+
+    public void forEach(IntIntConsumer action) {
+        int[] k = keys;
+        int[] v = values;
+        for (int slot = 0; slot < k.length; slot++) {
+            if (k[slot] != FREE) {
+                action.accept(k[slot], v[slot]);
+            }
+        }
+    }
+
+    /**
+     * Cursor over the entries in iteration order; allocates nothing per entry.
+     */
+    public Cursor cursor() {
+        return new Cursor();
+    }
+
+    public long sumValues() {
+        long sum = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != FREE) {
+                sum += values[slot];
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Keys of the {@code k} largest values, largest first. Equal values keep iteration
+     * order, so the result matches a stable sort of the entries by descending value.
+     */
+    public int[] topKeysByValue(int k) {
+        TopKSelector selector = new TopKSelector(Math.min(Math.max(k, 0), size));
+        int[] topKeys = new int[selector.capacity()];
+        topKeysByValue(selector, topKeys);
+        return topKeys;
+    }
+
+    /**
+     * Same as {@link #topKeysByValue(int)} for {@code k = selector.capacity()}, but reuses
+     * the caller's selector and writes into {@code target}; returns the number of keys.
+     */
+    public int topKeysByValue(TopKSelector selector, int[] target) {
+        selector.reset();
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != FREE) {
+                selector.offer(values[slot], slot);
+            }
+        }
+        int count = selector.indexes(target);
+        for (int i = 0; i < count; i++) {
+            target[i] = keys[target[i]];
+        }
+        return count;
+    }
+
+    public int[] keys() {
+        int[] result = new int[size];
+        int index = 0;
+        for (int key : keys) {
+            if (key != FREE) {
+                result[index++] = key;
+            }
+        }
+        return result;
+    }
+
+    private int findSlot(int key) {
+        if (key < 0) {
+            return -1;
+        }
+        int slot = probe(key);
+        return keys[slot] == key ? slot : -1;
+    }
+
+    // Slot holding the key, or the free slot where it would be inserted
+    private int probe(int key) {
+        int slot = hash(key) & mask;
+        while (keys[slot] != FREE && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void insertAt(int slot, int key, int value) {
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > resizeThreshold) {
+            rehash(keys.length << 1);
+        }
+    }
+
+    private void shiftBack(int slot) {
+        int gap = slot;
+        int next = (gap + 1) & mask;
+        while (keys[next] != FREE) {
+            int home = hash(keys[next]) & mask;
+            // Move the entry into the gap unless its home slot lies cyclically in (gap, next]
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                values[gap] = values[next];
+                gap = next;
+            }
+            next = (next + 1) & mask;
+        }
+        keys[gap] = FREE;
+    }
+
+    private void rehash(int newCapacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(newCapacity);
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            int key = oldKeys[slot];
+            if (key != FREE) {
+                int target = probe(key);
+                keys[target] = key;
+                values[target] = oldValues[slot];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, FREE);
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        long needed = (long) Math.ceil(Math.max(expectedSize, 1) / LOAD_FACTOR) + 1;
+        int capacity = Integer.highestOneBit((int) Math.min(needed, 1 << 30));
+        return Math.max(DEFAULT_CAPACITY, capacity < needed ? capacity << 1 : capacity);
+    }
+
+    // Dense ids are sequential, so spread them before masking
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private static void checkKey(int key) {
+        if (key < 0) {
+            throw new IllegalArgumentException("key must not be negative: " + key);
+        }
+    }
+
+    /**
+     * Forward-only cursor: call {@link #advance()} before reading each entry.
+     * Invalidated by any modification of the map.
+     */
+    public final class Cursor {
+        private int slot = -1;
+
+        public boolean advance() {
+            while (++slot < keys.length) {
+                if (keys[slot] != FREE) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        public int key() {
+            return keys[slot];
+        }
+
+        public int value() {
+            return values[slot];
+        }
+    }
+}
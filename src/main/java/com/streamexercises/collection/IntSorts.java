@@ -0,0 +1,57 @@
+package com.streamexercises.collection;
+
+import java.util.function.IntBinaryOperator;
+
+/**
+ * Sorting of int arrays (typically indexes into parallel arrays) with a primitive comparator.
+ */
+public final class IntSorts {
+
+    private static final int INSERTION_SORT_THRESHOLD = 16;
+
+    private IntSorts() {
+    }
+
+    /**
+     * Stable merge sort of {@code values} using {@code comparator}, which returns a negative,
+     * zero or positive int like {@link java.util.Comparator#compare}. No boxing takes place.
+     */
+    public static void stableSort(int[] values, IntBinaryOperator comparator) {
+        if (values.length < 2) {
+            return;
+        }
+        int[] scratch = values.clone();
+        mergeSort(scratch, values, 0, values.length, comparator);
+    }
+
+    // Sorts source[from, to) into target[from, to); both ranges start with the same contents
+    private static void mergeSort(int[] source, int[] target, int from, int to, IntBinaryOperator comparator) {
+        int length = to - from;
+        if (length <= INSERTION_SORT_THRESHOLD) {
+            for (int i = from + 1; i < to; i++) {
+                int value = target[i];
+                int j = i - 1;
+                while (j >= from && comparator.applyAsInt(target[j], value) > 0) {
+                    target[j + 1] = target[j];
+                    j--;
+                }
+                target[j + 1] = value;
+            }
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(target, source, from, middle, comparator);
+        mergeSort(target, source, middle, to, comparator);
+        if (comparator.applyAsInt(source[middle - 1], source[middle]) <= 0) {
+            System.arraycopy(source, from, target, from, length);
+            return;
+        }
+        for (int i = from, left = from, right = middle; i < to; i++) {
+            if (right >= to || (left < middle && comparator.applyAsInt(source[left], source[right]) <= 0)) {
+                target[i] = source[left++];
+            } else {
+                target[i] = source[right++];
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.streamexercises.collection;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.ToIntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Selects the {@code k} highest-scoring of many indexed candidates in one pass, keeping
+ * only a bounded min-heap of {@code k} longs.
+ *
+ * Each candidate is packed into a long as {@code score << 32 | ~index}, so comparing two
+ * packed values orders by score and then by lower index first: the result is exactly
+ * the first {@code k} elements of a stable descending sort, without sorting everything.
+ * Offering n candidates costs O(n log k) in the worst case and close to O(n) when most
+ * candidates fall below the current minimum.
+ *
+ * Selectors built on different parts of the input can be {@link #merge merged}, which is
+ * how {@link #top(List, int, ToIntFunction, boolean)} evaluates in parallel. Not synchronized.
+ */
+public final class TopKSelector {
+
+    private final int k;
+    private long[] heap;
+    private int size;
+
+    public TopKSelector(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative: " + k);
+        }
+        this.k = k;
+        this.heap = new long[Math.min(k, 16)];
+    }
+
+    /**
+     * The {@code k} elements of {@code items} with the highest score, highest first; equal
+     * scores keep list order.
+     *
+     * Lists without fast random access are copied first, so a linked list also costs one pass.
+     *
+     * @param parallel offer the items from the common fork-join pool, one selector per
+     *                 split, and merge the selectors; the result is the same either way
+     */
+    public static <T> List<T> top(List<T> items, int k, ToIntFunction<? super T> score, boolean parallel) {
+        if (!(items instanceof RandomAccess)) {
+            items = new ArrayList<>(items);
+        }
+        List<T> candidates = items;
+        IntStream indexes = IntStream.range(0, items.size());
+        TopKSelector selector = (parallel ? indexes.parallel() : indexes).collect(
+                () -> new TopKSelector(k),
+                (partial, index) -> partial.offer(score.applyAsInt(candidates.get(index)), index),
+                TopKSelector::merge);
+        int[] topIndexes = selector.indexes();
+        List<T> result = new ArrayList<>(topIndexes.length);
+        for (int index : topIndexes) {
+            result.add(items.get(index));
+        }
+        return result;
+    }
+
+    public void offer(int score, int index) {
+        offer(pack(score, index));
+    }
+
+    public void merge(TopKSelector other) {
+        for (int i = 0; i < other.size; i++) {
+            offer(other.heap[i]);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Lowest score that still makes the selection once it is full; meaningless before that.
+     */
+    public int threshold() {
+        return size > 0 ? (int) (heap[0] >> 32) : Integer.MIN_VALUE;
+    }
+
+    public boolean isFull() {
+        return size == k;
+    }
+
+    /**
+     * Indexes of the selected candidates, highest score first, ties by lower index.
+     */
+    public int[] indexes() {
+        int[] indexes = new int[size];
+        indexes(indexes);
+        return indexes;
+    }
+
+    /**
+     * Writes the indexes of {@link #indexes()} into {@code target} and returns how many
+     * there are; allocates nothing. The selection stays usable afterwards.
+     */
+    public int indexes(int[] target) {
+        // An ascending array is still a valid min-heap, so sorting in place is harmless
+        Arrays.sort(heap, 0, size);
+        for (int i = 0; i < size; i++) {
+            target[i] = ~(int) heap[size - 1 - i];
+        }
+        return size;
+    }
+
+    public int capacity() {
+        return k;
+    }
+
+    /**
+     * Empties the selection so the selector can be reused for another input.
+     */
+    public void reset() {
+        size = 0;
+    }
+
+    private void offer(long packed) {
+        if (size < k) {
+            if (size == heap.length) {
+                heap = Arrays.copyOf(heap, Math.min(k, size * 2));
+            }
+            siftUp(size++, packed);
+        } else if (k > 0 && packed > heap[0]) {
+            siftDown(packed);
+        }
+    }
+
+    private void siftUp(int position, long packed) {
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (heap[parent] <= packed) {
+                break;
+            }
+            heap[position] = heap[parent];
+            position = parent;
+        }
+        heap[position] = packed;
+    }
+
+    // Replaces the minimum with packed and restores the heap
+    private void siftDown(long packed) {
+        int position = 0;
+        int half = size >>> 1;
+        while (position < half) {
+            int child = 2 * position + 1;
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (packed <= heap[child]) {
+                break;
+            }
+            heap[position] = heap[child];
+            position = child;
+        }
+        heap[position] = packed;
+    }
+
+    private static long pack(int score, int index) {
+        return (long) score << 32 | (~index & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,69 @@
+package com.streamexercises.generator;
+
+/**
+ * Shape of a synthetic data set produced by {@link SyntheticCatalogGenerator}.
+ *
+ * @param seed                 seed for every random choice; equal configs produce equal data sets
+ * @param songCount            number of songs in the catalog
+ * @param userCount            number of listeners
+ * @param artistCount          number of distinct artists; catalog sizes per artist follow a power law
+ * @param artistExponent       Zipf exponent of the artist catalog sizes
+ * @param playCountExponent    Zipf exponent of song play counts and of listen choices
+ * @param maxPlayCount         play count of the most played song
+ * @param collaborationRate    probability that a song features additional artists
+ * @param meanListensPerUser   mean length of a user's listening history (heavy tailed)
+ * @param maxListensPerUser    hard cap on a single user's listening history
+ * @param maxPlaylistsPerUser  each user owns between 0 and this many playlists
+ * @param minPlaylistSize      smallest generated playlist
+ * @param maxPlaylistSize      largest generated playlist
+ */
+public record GeneratorConfig(
+        long seed,
+        int songCount,
+        int userCount,
+        int artistCount,
+        double artistExponent,
+        double playCountExponent,
+        int maxPlayCount,
+        double collaborationRate,
+        int meanListensPerUser,
+        int maxListensPerUser,
+        int maxPlaylistsPerUser,
+        int minPlaylistSize,
+        int maxPlaylistSize) {
+
+    public GeneratorConfig {
+        if (songCount < 1) throw new IllegalArgumentException("songCount must be positive: " + songCount);
+        if (userCount < 0) throw new IllegalArgumentException("userCount must not be negative: " + userCount);
+        if (artistCount < 1) throw new IllegalArgumentException("artistCount must be positive: " + artistCount);
+        if (collaborationRate < 0.0 || collaborationRate > 1.0) {
+            throw new IllegalArgumentException("collaborationRate must be within [0, 1]: " + collaborationRate);
+        }
+        if (meanListensPerUser < 0 || maxListensPerUser < meanListensPerUser) {
+            throw new IllegalArgumentException("listens per user must satisfy 0 <= mean <= max");
+        }
+        if (minPlaylistSize < 1 || maxPlaylistSize < minPlaylistSize) {
+            throw new IllegalArgumentException("playlist sizes must satisfy 1 <= min <= max");
+        }
+    }
+
+    /**
+     * Defaults modelled on our production catalog: one artist per 20 songs,
+     * 15% collaborations, ~100 listens per user and playlists of 10 to 10,000 songs.
+     */
+    public static GeneratorConfig defaults(long seed, int songCount, int userCount) {
+        return new GeneratorConfig(seed, songCount, userCount,
+                Math.max(1, songCount / 20), 1.1, 1.0, 10_000_000, 0.15,
+                100, 100_000, 5, 10, 10_000);
+    }
+
+    public GeneratorConfig withListensPerUser(int mean, int max) {
+        return new GeneratorConfig(seed, songCount, userCount, artistCount, artistExponent, playCountExponent,
+                maxPlayCount, collaborationRate, mean, max, maxPlaylistsPerUser, minPlaylistSize, maxPlaylistSize);
+    }
+
+    public GeneratorConfig withPlaylists(int maxPerUser, int minSize, int maxSize) {
+        return new GeneratorConfig(seed, songCount, userCount, artistCount, artistExponent, playCountExponent,
+                maxPlayCount, collaborationRate, meanListensPerUser, maxListensPerUser, maxPerUser, minSize, maxSize);
+    }
+}
@@ -0,0 +1,336 @@
+package com.streamexercises.generator;
+
+import com.streamexercises.model.*;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.Year;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Deterministic generator for realistic, skewed music data sets.
+ *
+ * Every entity is derived from the configured seed and its own index, so the same
+ * {@link GeneratorConfig} always yields the same catalog, and users and playlists can
+ * be generated in parallel without changing the result. All methods return lazy
+ * streams: nothing is generated before it is consumed and no intermediate copies are
+ * kept, so callers decide what to retain.
+ *
+ * Shape of the generated data:
+ * - Artists publish albums with power-law frequency, so a few artists own large catalogs
+ * - Song play counts follow a Zipf law; listens and playlist picks use the same skew
+ * - A configurable share of songs features additional (collaborating) artists
+ * - Playlists range from tens to thousands of songs, most of them short
+ * - Listening histories are heavy tailed and contain replays of recent songs
+ *
+ * Typical usage:
+ * <pre>
+ * SyntheticCatalogGenerator generator = new SyntheticCatalogGenerator(GeneratorConfig.defaults(42, 1_000_000, 500_000));
+ * List&lt;Song&gt; songs = generator.songs().toList();
+ * List&lt;Album&gt; albums = generator.albums(songs).toList();
+ * List&lt;User&gt; users = generator.users(songs, albums).parallel().toList();
+ * List&lt;Playlist&gt; playlists = generator.playlists(songs, users).toList();
+ * </pre>
+ */
+public class SyntheticCatalogGenerator {
+
+    public static final String VARIOUS_ARTISTS = "Various Artists";
+
+    private static final Genre[] GENRES = Genre.values();
+    private static final String[] COUNTRIES = {
+            "United States", "United Kingdom", "Germany", "Brazil", "Mexico", "France", "Spain",
+            "Canada", "Japan", "Australia", "Italy", "Netherlands", "Sweden", "India", "Argentina"
+    };
+    private static final LocalDate FIRST_JOIN_DATE = LocalDate.of(2008, 1, 1);
+    private static final int JOIN_DATE_RANGE_DAYS = 365 * 17;
+    private static final int REPLAY_WINDOW = 16;
+
+    private static final long ALBUM_SALT = 0x41_4C_42_55_4DL;
+    private static final long SONG_SALT = 0x53_4F_4E_47L;
+    private static final long USER_SALT = 0x55_53_45_52L;
+    private static final long PLAYLIST_SALT = 0x50_4C_41_59L;
+
+    private final GeneratorConfig config;
+    private final ZipfDistribution artistRanks;
+    private final ZipfDistribution songRanks;
+    private final ZipfDistribution genreRanks;
+    private final ZipfDistribution countryRanks;
+
+    // Bijection rank <-> song index, so the most played songs are spread over the catalog
+    private final long rankMultiplier;
+    private final long rankMultiplierInverse;
+    private final long rankOffset;
+
+    public SyntheticCatalogGenerator(GeneratorConfig config) {
+        this.config = Objects.requireNonNull(config, "config");
+        this.artistRanks = new ZipfDistribution(config.artistCount(), config.artistExponent());
+        this.songRanks = new ZipfDistribution(config.songCount(), config.playCountExponent());
+        this.genreRanks = new ZipfDistribution(GENRES.length, 0.8);
+        this.countryRanks = new ZipfDistribution(COUNTRIES.length, 1.0);
+
+        long n = config.songCount();
+        long multiplier = Math.max(1, (long) (n * 0.6180339887498949)) | 1;
+        while (BigInteger.valueOf(multiplier).gcd(BigInteger.valueOf(n)).intValue() != 1) {
+            multiplier++;
+        }
+        this.rankMultiplier = multiplier % n;
+        this.rankMultiplierInverse = n == 1 ? 0 : BigInteger.valueOf(rankMultiplier)
+                .modInverse(BigInteger.valueOf(n)).longValue();
+        this.rankOffset = mix(config.seed()) % n;
+    }
+
+    public GeneratorConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Streams the whole song catalog in album order. The stream is sequential by
+     * nature (songs are laid out album by album); consume it once.
+     */
+    public Stream<Song> songs() {
+        Spliterator<Song> spliterator = new Spliterators.AbstractSpliterator<Song>(
+                config.songCount(), Spliterator.ORDERED | Spliterator.SIZED | Spliterator.NONNULL) {
+            private int songIndex;
+            private int albumIndex = -1;
+            private int remainingTracks;
+            private AlbumPlan plan;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super Song> action) {
+                if (songIndex >= config.songCount()) {
+                    return false;
+                }
+                if (remainingTracks == 0) {
+                    plan = albumPlan(++albumIndex);
+                    remainingTracks = plan.trackCount();
+                }
+                action.accept(song(songIndex++, plan));
+                remainingTracks--;
+                return true;
+            }
+        };
+        return StreamSupport.stream(spliterator, false);
+    }
+
+    /**
+     * Streams the albums for a catalog produced by {@link #songs()} of this generator.
+     * Each album receives the consecutive block of songs it was generated with.
+     */
+    public Stream<Album> albums(List<Song> songs) {
+        requireCatalog(songs);
+        Spliterator<Album> spliterator = new Spliterators.AbstractSpliterator<Album>(
+                Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            private int albumIndex;
+            private int offset;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super Album> action) {
+                if (offset >= songs.size()) {
+                    return false;
+                }
+                AlbumPlan plan = albumPlan(albumIndex);
+                int end = Math.min(offset + plan.trackCount(), songs.size());
+                action.accept(new Album(
+                        "Album " + albumIndex,
+                        plan.compilation() ? VARIOUS_ARTISTS : artistName(plan.artist()),
+                        Year.of(plan.year()),
+                        songs.subList(offset, end),
+                        plan.genre(),
+                        plan.compilation()));
+                albumIndex++;
+                offset = end;
+                return true;
+            }
+        };
+        return StreamSupport.stream(spliterator, false);
+    }
+
+    /**
+     * Streams the configured number of users, each with favorite genres, favorite albums
+     * and a listening history (which also fills their play counts). The stream supports
+     * {@code parallel()} and yields the same users either way.
+     */
+    public Stream<User> users(List<Song> songs, List<Album> albums) {
+        requireCatalog(songs);
+        ZipfDistribution albumRanks = albums.isEmpty() ? null : new ZipfDistribution(albums.size(), 1.0);
+        return IntStream.range(0, config.userCount())
+                .mapToObj(userIndex -> user(userIndex, songs, albums, albumRanks));
+    }
+
+    /**
+     * Streams the playlists owned by the given users. Playlist sizes are log-uniform
+     * between the configured bounds, skewed towards short playlists.
+     */
+    public Stream<Playlist> playlists(List<Song> songs, List<User> owners) {
+        requireCatalog(songs);
+        return IntStream.range(0, owners.size())
+                .boxed()
+                .flatMap(ownerIndex -> {
+                    SplittableRandom random = random(PLAYLIST_SALT, ownerIndex);
+                    int count = random.nextInt(config.maxPlaylistsPerUser() + 1);
+                    User owner = owners.get(ownerIndex);
+                    return IntStream.range(0, count)
+                            .mapToObj(p -> playlist(owner, p, random.split(), songs));
+                });
+    }
+
+    /**
+     * The catalog index of the song with the given popularity rank (0 = most played).
+     */
+    public int songIndexOfRank(int rank) {
+        return (int) ((rank * rankMultiplier + rankOffset) % config.songCount());
+    }
+
+    /**
+     * The popularity rank (0 = most played) of the song at the given catalog index.
+     */
+    public int rankOfSongIndex(int songIndex) {
+        long n = config.songCount();
+        return (int) (((songIndex - rankOffset) % n + n) % n * rankMultiplierInverse % n);
+    }
+
+    public static String artistName(int artistIndex) {
+        return "Artist " + artistIndex;
+    }
+
+    // Generation of single entities
+
+    private record AlbumPlan(int trackCount, int artist, Genre genre, int year, boolean compilation) {}
+
+    private AlbumPlan albumPlan(int albumIndex) {
+        SplittableRandom random = random(ALBUM_SALT, albumIndex);
+        boolean compilation = random.nextInt(25) == 0;
+        int trackCount;
+        if (compilation) {
+            trackCount = 12 + random.nextInt(10);
+        } else if (random.nextInt(8) == 0) {
+            trackCount = 1 + random.nextInt(4); // singles and EPs
+        } else {
+            trackCount = 8 + random.nextInt(9);
+        }
+        int artist = artistRanks.sample(random) - 1;
+        // Artists mostly stay within their own genre
+        Genre genre = random.nextInt(5) == 0
+                ? GENRES[genreRanks.sample(random) - 1]
+                : GENRES[(int) (mix(artist) % GENRES.length)];
+        // Skewed towards recent releases
+        int year = 2025 - (int) (75 * Math.pow(random.nextDouble(), 2.5));
+        return new AlbumPlan(trackCount, artist, genre, year, compilation);
+    }
+
+    private Song song(int songIndex, AlbumPlan plan) {
+        SplittableRandom random = random(SONG_SALT, songIndex);
+        int rank = rankOfSongIndex(songIndex) + 1;
+
+        Set<String> artists = new HashSet<>(4);
+        artists.add(artistName(plan.compilation() ? artistRanks.sample(random) - 1 : plan.artist()));
+        if (random.nextDouble() < config.collaborationRate()) {
+            int featured = 1 + (random.nextInt(4) == 0 ? 1 + random.nextInt(2) : 0);
+            for (int i = 0; i < featured; i++) {
+                artists.add(artistName(artistRanks.sample(random) - 1));
+            }
+        }
+
+        Genre primaryGenre = random.nextInt(10) == 0 ? GENRES[genreRanks.sample(random) - 1] : plan.genre();
+        Set<Genre> secondaryGenres = EnumSet.noneOf(Genre.class);
+        int secondaryCount = random.nextInt(10) < 6 ? 0 : 1 + random.nextInt(2);
+        for (int i = 0; i < secondaryCount; i++) {
+            Genre genre = GENRES[genreRanks.sample(random) - 1];
+            if (genre != primaryGenre) {
+                secondaryGenres.add(genre);
+            }
+        }
+
+        long seconds = Math.round(Math.exp(5.3 + 0.35 * random.nextGaussian()));
+        seconds = Math.max(60, Math.min(1200, seconds));
+
+        int playCount = (int) (config.maxPlayCount() / Math.pow(rank, config.playCountExponent()));
+        double popularity = 100.0 * (1.0 - Math.log(rank) / Math.log(config.songCount() + 1.0))
+                + 5.0 * random.nextGaussian();
+
+        return new Song("Track " + songIndex, artists, Duration.ofSeconds(seconds), Year.of(plan.year()),
+                primaryGenre, secondaryGenres, playCount, popularity);
+    }
+
+    private User user(int userIndex, List<Song> songs, List<Album> albums, ZipfDistribution albumRanks) {
+        SplittableRandom random = random(USER_SALT, userIndex);
+
+        Set<Genre> favoriteGenres = EnumSet.noneOf(Genre.class);
+        int favoriteCount = 1 + random.nextInt(4);
+        for (int i = 0; i < favoriteCount; i++) {
+            favoriteGenres.add(GENRES[genreRanks.sample(random) - 1]);
+        }
+
+        User user = new User(
+                "user" + userIndex,
+                "user" + userIndex + "@example.com",
+                FIRST_JOIN_DATE.plusDays(random.nextInt(JOIN_DATE_RANGE_DAYS)),
+                favoriteGenres,
+                COUNTRIES[countryRanks.sample(random) - 1],
+                random.nextInt(10) < 3);
+
+        if (albumRanks != null) {
+            int favoriteAlbums = random.nextInt(4);
+            for (int i = 0; i < favoriteAlbums; i++) {
+                user.addFavoriteAlbum(albums.get(albumRanks.sample(random) - 1));
+            }
+        }
+
+        // Pareto (alpha = 2) history length with the configured mean
+        double minimum = config.meanListensPerUser() / 2.0;
+        int listens = (int) Math.min(config.maxListensPerUser(),
+                Math.round(minimum / Math.sqrt(1.0 - random.nextDouble())));
+        int[] recent = new int[REPLAY_WINDOW];
+        // Listens play back to back from the join date, so timestamps are reproducible too
+        long listenedAt = user.getJoinDate().toEpochDay() * 86_400L;
+        for (int i = 0; i < listens; i++) {
+            int songIndex;
+            if (i >= REPLAY_WINDOW && random.nextInt(10) < 3) {
+                songIndex = recent[random.nextInt(REPLAY_WINDOW)];
+            } else {
+                songIndex = songIndexOfRank(songRanks.sample(random) - 1);
+            }
+            recent[i % REPLAY_WINDOW] = songIndex;
+            Song song = songs.get(songIndex);
+            user.recordSongListen(song.getIntId(), listenedAt);
+            listenedAt += song.getDuration().getSeconds();
+        }
+        return user;
+    }
+
+    private Playlist playlist(User owner, int playlistIndex, SplittableRandom random, List<Song> songs) {
+        double span = (double) config.maxPlaylistSize() / config.minPlaylistSize();
+        int size = (int) Math.round(config.minPlaylistSize() * Math.pow(span, Math.pow(random.nextDouble(), 3)));
+        size = Math.min(size, songs.size());
+
+        Playlist playlist = new Playlist(owner.getUsername() + " mix " + (playlistIndex + 1), owner.getId(),
+                random.nextBoolean(), null);
+        for (int attempts = 0; playlist.getNumberOfSongs() < size && attempts < 3 * size; attempts++) {
+            playlist.addSong(songs.get(songIndexOfRank(songRanks.sample(random) - 1)));
+        }
+        return playlist;
+    }
+
+    private void requireCatalog(List<Song> songs) {
+        if (songs.size() != config.songCount()) {
+            throw new IllegalArgumentException("Expected the " + config.songCount()
+                    + " songs produced by songs(), got " + songs.size());
+        }
+    }
+
+    private SplittableRandom random(long salt, long index) {
+        return new SplittableRandom(mix(config.seed() ^ mix(salt + index)));
+    }
+
+    // SplitMix64 finalizer, non-negative result
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return (z ^ (z >>> 31)) & Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,94 @@
+package com.streamexercises.generator;
+
+import java.util.SplittableRandom;
+
+/**
+ * Zipf distribution over the ranks {@code 1..n}: rank k is drawn with probability
+ * proportional to {@code 1 / k^exponent}.
+ *
+ * Sampling uses rejection-inversion (Hörmann and Derflinger, 1996), which needs
+ * O(1) memory and expected O(1) time per sample regardless of n, so it can drive
+ * catalogs with tens of millions of songs without precomputed CDF tables.
+ */
+public final class ZipfDistribution {
+
+    private final int numberOfElements;
+    private final double exponent;
+    private final double hIntegralX1;
+    private final double hIntegralNumberOfElements;
+    private final double s;
+
+    public ZipfDistribution(int numberOfElements, double exponent) {
+        if (numberOfElements < 1) {
+            throw new IllegalArgumentException("numberOfElements must be positive: " + numberOfElements);
+        }
+        if (exponent <= 0.0) {
+            throw new IllegalArgumentException("exponent must be positive: " + exponent);
+        }
+        this.numberOfElements = numberOfElements;
+        this.exponent = exponent;
+        this.hIntegralX1 = hIntegral(1.5) - 1.0;
+        this.hIntegralNumberOfElements = hIntegral(numberOfElements + 0.5);
+        this.s = 2.0 - hIntegralInverse(hIntegral(2.5) - h(2.0));
+    }
+
+    public int getNumberOfElements() {
+        return numberOfElements;
+    }
+
+    public double getExponent() {
+        return exponent;
+    }
+
+    /**
+     * Draws a rank in {@code [1, numberOfElements]}; rank 1 is the most likely.
+     */
+    public int sample(SplittableRandom random) {
+        while (true) {
+            double u = hIntegralNumberOfElements + random.nextDouble() * (hIntegralX1 - hIntegralNumberOfElements);
+            double x = hIntegralInverse(u);
+            int k = (int) (x + 0.5);
+            if (k < 1) {
+                k = 1;
+            } else if (k > numberOfElements) {
+                k = numberOfElements;
+            }
+            if (k - x <= s || u >= hIntegral(k + 0.5) - h(k)) {
+                return k;
+            }
+        }
+    }
+
+    private double hIntegral(double x) {
+        double logX = Math.log(x);
+        return helper2((1.0 - exponent) * logX) * logX;
+    }
+
+    private double h(double x) {
+        return Math.exp(-exponent * Math.log(x));
+    }
+
+    private double hIntegralInverse(double x) {
+        double t = x * (1.0 - exponent);
+        if (t < -1.0) {
+            t = -1.0;
+        }
+        return Math.exp(helper1(t) * x);
+    }
+
+    // log1p(x) / x, numerically stable around 0
+    private static double helper1(double x) {
+        if (Math.abs(x) > 1e-8) {
+            return Math.log1p(x) / x;
+        }
+        return 1.0 - x * (0.5 - x * (1.0 / 3.0 - 0.25 * x));
+    }
+
+    // expm1(x) / x, numerically stable around 0
+    private static double helper2(double x) {
+        if (Math.abs(x) > 1e-8) {
+            return Math.expm1(x) / x;
+        }
+        return 1.0 + x * 0.5 * (1.0 + x * (1.0 / 3.0) * (1.0 + 0.25 * x));
+    }
+}
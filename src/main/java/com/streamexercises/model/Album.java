@@ -2,31 +2,63 @@ package com.streamexercises.model;
 
 import java.time.Year;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Represents a music album in the streaming service
+ *
+ * Total play count, popularity sum and most popular song are kept up to date as songs
+ * are added and removed and as member songs report changes (see {@link SongListener}),
+ * so the album-level queries are O(1). Each member remembers what the aggregates count
+ * for it and every callback moves that to the song's current value, so changes racing
+ * with an add or remove are counted exactly once. Plays take no lock: the member keeps a
+ * high-water mark of the song's play count, advanced by compare-and-set. Member songs
+ * hold a reference to the album through its listeners, so call {@link #detach()} when
+ * discarding an album whose songs live on.
  */
 public class Album {
-    private final String id;
+    private final int id; // dense id allocated by IdRegistry.ALBUMS
     private final String title;
     private final String artist;
+    private final int artistId; // ArtistDictionary.INSTANCE id of the album artist
     private final Year releaseYear;
     private final List<Song> songs;
+    private final List<Member> members; // parallel to songs
     private final Genre primaryGenre;
     private final boolean isCompilation;
 
+    // Running aggregates; membership and popularity fields are guarded by aggregateLock
+    private final Object aggregateLock = new Object();
+    private final LongAdder totalPlayCount = new LongAdder();
+    private double popularitySum;
+    private double popularityCompensation; // Kahan compensation for popularitySum
+    private Song mostPopularSong;
+
+    // Marks a removed member's play count, so late callbacks add nothing
+    private static final long REMOVED = Long.MAX_VALUE;
+
     public Album(String title, String artist, Year releaseYear, List<Song> songs, Genre primaryGenre, boolean isCompilation) {
-        this.id = UUID.randomUUID().toString();
+        this.id = IdRegistry.ALBUMS.allocate();
         this.title = title;
         this.artist = artist;
+        this.artistId = artist != null ? ArtistDictionary.INSTANCE.intern(artist) : ArtistDictionary.NO_ARTIST;
         this.releaseYear = releaseYear;
-        this.songs = songs != null ? new ArrayList<>(songs) : new ArrayList<>();
+        this.songs = new ArrayList<>();
+        this.members = new ArrayList<>();
         this.primaryGenre = primaryGenre;
         this.isCompilation = isCompilation;
+        if (songs != null) {
+            songs.forEach(this::track);
+        }
     }
 
     // Getters
     public String getId() {
+        return IdRegistry.ALBUMS.key(id);
+    }
+
+    public int getIntId() {
         return id;
     }
 
@@ -38,6 +70,10 @@ public class Album {
         return artist;
     }
 
+    public int getArtistId() {
+        return artistId;
+    }
+
     public Year getReleaseYear() {
         return releaseYear;
     }
@@ -57,7 +93,47 @@ public class Album {
     // Methods
     public void addSong(Song song) {
         if (song != null && !songs.contains(song)) {
-            songs.add(song);
+            track(song);
+        }
+    }
+
+    /**
+     * Removes the song and stops following its changes; false if it is not on the album.
+     */
+    public boolean removeSong(Song song) {
+        if (song == null) {
+            return false;
+        }
+        Member member;
+        synchronized (aggregateLock) {
+            int index = songs.indexOf(song);
+            if (index < 0) {
+                return false;
+            }
+            songs.remove(index);
+            member = members.remove(index);
+            member.active = false;
+            addToPopularitySum(-member.countedPopularity);
+            if (song == mostPopularSong) {
+                mostPopularSong = findMostPopularSong();
+            }
+        }
+        song.removeListener(member);
+        totalPlayCount.add(-member.countedPlays.getAndSet(REMOVED));
+        return true;
+    }
+
+    /**
+     * Stops following changes of all member songs, so they no longer keep the album
+     * alive. The aggregates keep their current values.
+     */
+    public void detach() {
+        List<Member> current;
+        synchronized (aggregateLock) {
+            current = new ArrayList<>(members);
+        }
+        for (Member member : current) {
+            member.song.removeListener(member);
         }
     }
 
@@ -66,16 +142,115 @@ public class Album {
     }
 
     public double getAveragePopularity() {
-        return songs.stream()
-                .mapToDouble(Song::getPopularity)
-                .average()
-                .orElse(0.0);
+        synchronized (aggregateLock) {
+            return songs.isEmpty() ? 0.0 : (popularitySum - popularityCompensation) / songs.size();
+        }
     }
 
     public int getTotalPlayCount() {
-        return songs.stream()
-                .mapToInt(Song::getPlayCount)
-                .sum();
+        return (int) Math.min(totalPlayCount.sum(), Integer.MAX_VALUE);
+    }
+
+    /**
+     * Song with the highest popularity; the earliest one in track order wins ties.
+     */
+    public Optional<Song> getMostPopularSong() {
+        synchronized (aggregateLock) {
+            return Optional.ofNullable(mostPopularSong);
+        }
+    }
+
+    // Listen first, then count: a change seen by neither step cannot exist
+    private void track(Song song) {
+        Member member = new Member(song);
+        song.addListener(member);
+        synchronized (aggregateLock) {
+            songs.add(song);
+            members.add(member);
+            member.active = true;
+            member.countedPopularity = song.getPopularity();
+            addToPopularitySum(member.countedPopularity);
+            if (mostPopularSong == null || song.getPopularity() > mostPopularSong.getPopularity()) {
+                mostPopularSong = song;
+            }
+        }
+        member.countPlays();
+    }
+
+    private void refreshPopularity(Member member) {
+        synchronized (aggregateLock) {
+            if (!member.active) {
+                return;
+            }
+            Song song = member.song;
+            double popularity = song.getPopularity();
+            double delta = popularity - member.countedPopularity;
+            if (delta == 0) {
+                return;
+            }
+            member.countedPopularity = popularity;
+            addToPopularitySum(delta);
+            Song top = mostPopularSong;
+            if (song == top) {
+                if (delta < 0) {
+                    mostPopularSong = findMostPopularSong();
+                }
+            } else if (top == null || popularity > top.getPopularity()
+                    || (popularity == top.getPopularity() && songs.indexOf(song) < songs.indexOf(top))) {
+                mostPopularSong = song;
+            }
+        }
+    }
+
+    private void addToPopularitySum(double value) {
+        double adjusted = value - popularityCompensation;
+        double sum = popularitySum + adjusted;
+        popularityCompensation = (sum - popularitySum) - adjusted;
+        popularitySum = sum;
+    }
+
+    private Song findMostPopularSong() {
+        Song best = null;
+        for (Song song : songs) {
+            if (best == null || song.getPopularity() > best.getPopularity()) {
+                best = song;
+            }
+        }
+        return best;
+    }
+
+    // What the aggregates count for one member song
+    private final class Member implements SongListener {
+        private final Song song;
+        private final AtomicLong countedPlays = new AtomicLong(); // REMOVED once off the album
+        private double countedPopularity; // guarded by aggregateLock
+        private boolean active; // guarded by aggregateLock
+
+        Member(Song song) {
+            this.song = song;
+        }
+
+        @Override
+        public void playCountChanged(Song song, long delta) {
+            countPlays();
+        }
+
+        @Override
+        public void popularityChanged(Song song, double oldPopularity, double newPopularity) {
+            refreshPopularity(this);
+        }
+
+        // Play counts only grow, so the highest value read wins and later reads add the rest
+        void countPlays() {
+            long now = song.getPlayCountLong();
+            long counted;
+            while (now > (counted = countedPlays.get())) {
+                if (countedPlays.compareAndSet(counted, now)) {
+                    totalPlayCount.add(now - counted);
+                    return;
+                }
+            }
+        }
     }
 
     @Override
@@ -83,12 +258,12 @@ public class Album {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Album album = (Album) o;
-        return Objects.equals(id, album.id);
+        return id == album.id;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id);
+        return Integer.hashCode(id);
     }
 
     @Override
@@ -0,0 +1,97 @@
+package com.streamexercises.model;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Interns artist names to dense int ids.
+ *
+ * Each distinct name is stored once and mapped to an id in {@code [0, size())}, so
+ * songs and albums can reference artists by id and collaboration or favorite-artist
+ * checks run on primitives instead of strings. Lookups by id are a plain array read.
+ *
+ * One dictionary ({@link #INSTANCE}) is shared by the whole JVM. Reads are lock-free;
+ * interning a new name takes a short lock.
+ */
+public final class ArtistDictionary {
+
+    public static final ArtistDictionary INSTANCE = new ArtistDictionary();
+
+    /** Returned by {@link #lookup(String)} for names that were never interned. */
+    public static final int NO_ARTIST = -1;
+
+    private final Map<String, Integer> idsByName = new ConcurrentHashMap<>();
+    private volatile String[] names = new String[1024];
+    private volatile int size;
+
+    private ArtistDictionary() {
+    }
+
+    /**
+     * Returns the id for the name, assigning the next free id if the name is new.
+     */
+    public int intern(String name) {
+        if (name == null) {
+            throw new IllegalArgumentException("Artist name must not be null");
+        }
+        Integer id = idsByName.get(name);
+        return id != null ? id : register(name);
+    }
+
+    /**
+     * Returns the id for the name, or {@link #NO_ARTIST} without interning it.
+     */
+    public int lookup(String name) {
+        if (name == null) {
+            return NO_ARTIST;
+        }
+        Integer id = idsByName.get(name);
+        return id != null ? id : NO_ARTIST;
+    }
+
+    /**
+     * Sorted, distinct ids of the names that are already known; unknown names are skipped.
+     */
+    public int[] lookupAll(Collection<String> artistNames) {
+        if (artistNames == null || artistNames.isEmpty()) {
+            return new int[0];
+        }
+        return artistNames.stream()
+                .mapToInt(this::lookup)
+                .filter(id -> id != NO_ARTIST)
+                .sorted()
+                .distinct()
+                .toArray();
+    }
+
+    public String name(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("Unknown artist id: " + id);
+        }
+        return names[id];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private synchronized int register(String name) {
+        Integer existing = idsByName.get(name);
+        if (existing != null) {
+            return existing;
+        }
+        int id = size;
+        String[] current = names;
+        if (id == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+        }
+        current[id] = name;
+        names = current;
+        // Publish the name before the id becomes visible to lock-free readers
+        size = id + 1;
+        idsByName.put(name, id);
+        return id;
+    }
+}
@@ -0,0 +1,255 @@
+package com.streamexercises.model;
+
+import com.streamexercises.collection.DenseIdMap;
+import com.streamexercises.collection.IntIntHashMap;
+
+import java.util.*;
+
+/**
+ * Owns the songs, albums, playlists and users of the streaming service and keeps
+ * lookup indexes up to date as entities are added, so analytics can reuse them
+ * instead of rebuilding lookup maps on every call.
+ *
+ * Maintained indexes:
+ * - id → song, album, playlist and user (array-backed, keyed by the dense ids of {@link IdRegistry})
+ * - owner id → playlists
+ * - artist → albums (by album artist, keyed by {@link ArtistDictionary} id)
+ * - artist → songs (by every credited artist, keyed by {@link ArtistDictionary} id)
+ * - song id → ids of the playlists containing it, kept by the playlists' edits
+ *
+ * The song-to-playlists index carries popularity changes to the playlists: the catalog
+ * listens once to each song that is in some playlist and, on a change, marks the
+ * containing playlists so their next read recomputes the popularity summary. That index
+ * has its own lock, since playlists are edited and songs change from any thread.
+ *
+ * Adding an entity whose id is already known is a no-op. The catalog is not
+ * synchronized otherwise: build it from one thread, then share it with readers.
+ */
+public final class Catalog {
+    private final List<Song> songs = new ArrayList<>();
+    private final List<Album> albums = new ArrayList<>();
+    private final List<Playlist> playlists = new ArrayList<>();
+    private final List<User> users = new ArrayList<>();
+
+    private final DenseIdMap<Song> songsById = new DenseIdMap<>();
+    private final DenseIdMap<Album> albumsById = new DenseIdMap<>();
+    private final DenseIdMap<Playlist> playlistsById = new DenseIdMap<>();
+    private final DenseIdMap<User> usersById = new DenseIdMap<>();
+
+    private final DenseIdMap<List<Playlist>> playlistsByOwner = new DenseIdMap<>();
+    private final Map<String, List<Playlist>> playlistsByUnknownOwner = new HashMap<>(); // owner not a user yet
+    private final DenseIdMap<List<Album>> albumsByArtist = new DenseIdMap<>();
+    private final DenseIdMap<List<Song>> songsByArtist = new DenseIdMap<>();
+
+    // Song-to-playlists index, guarded by membershipLock
+    private final Object membershipLock = new Object();
+    private final DenseIdMap<IntIntHashMap> playlistIdsBySong = new DenseIdMap<>(); // playlist id → 1
+    private final DenseIdMap<Playlist> trackedPlaylists = new DenseIdMap<>();
+    private final SongListener popularityTracker = new SongListener() {
+        @Override
+        public void popularityChanged(Song song, double oldPopularity, double newPopularity) {
+            synchronized (membershipLock) {
+                IntIntHashMap playlistIds = playlistIdsBySong.get(song.getIntId());
+                if (playlistIds != null) {
+                    playlistIds.forEach((playlistId, member) -> trackedPlaylists.get(playlistId).popularityChanged());
+                }
+            }
+        }
+    };
+
+    public Catalog() {
+    }
+
+    public Catalog(Collection<Song> songs, Collection<Album> albums,
+                   Collection<Playlist> playlists, Collection<User> users) {
+        songs.forEach(this::addSong);
+        albums.forEach(this::addAlbum);
+        playlists.forEach(this::addPlaylist);
+        users.forEach(this::addUser);
+    }
+
+    // Mutators
+
+    public boolean addSong(Song song) {
+        if (song == null || songsById.putIfAbsent(song.getIntId(), song) != null) {
+            return false;
+        }
+        songs.add(song);
+        for (int i = 0; i < song.getArtistCount(); i++) {
+            songsByArtist.computeIfAbsent(song.getArtistId(i), key -> new ArrayList<>()).add(song);
+        }
+        return true;
+    }
+
+    /**
+     * Adds the album and any of its songs the catalog does not know yet.
+     */
+    public boolean addAlbum(Album album) {
+        if (album == null || albumsById.putIfAbsent(album.getIntId(), album) != null) {
+            return false;
+        }
+        albums.add(album);
+        if (album.getArtistId() != ArtistDictionary.NO_ARTIST) {
+            albumsByArtist.computeIfAbsent(album.getArtistId(), key -> new ArrayList<>()).add(album);
+        }
+        album.getSongs().forEach(this::addSong);
+        return true;
+    }
+
+    public boolean addPlaylist(Playlist playlist) {
+        if (playlist == null || playlistsById.putIfAbsent(playlist.getIntId(), playlist) != null) {
+            return false;
+        }
+        playlists.add(playlist);
+        synchronized (membershipLock) {
+            trackedPlaylists.put(playlist.getIntId(), playlist);
+        }
+        if (!playlist.trackBy(this)) {
+            synchronized (membershipLock) {
+                trackedPlaylists.remove(playlist.getIntId()); // another catalog reports its changes
+            }
+        }
+        if (playlist.getOwnerIntId() != IdRegistry.NO_ID) {
+            playlistsByOwner.computeIfAbsent(playlist.getOwnerIntId(), key -> new ArrayList<>()).add(playlist);
+        } else if (playlist.getOwnerId() != null) {
+            playlistsByUnknownOwner.computeIfAbsent(playlist.getOwnerId(), key -> new ArrayList<>()).add(playlist);
+        }
+        return true;
+    }
+
+    public boolean addUser(User user) {
+        if (user == null || usersById.putIfAbsent(user.getIntId(), user) != null) {
+            return false;
+        }
+        users.add(user);
+        if (!playlistsByUnknownOwner.isEmpty()) {
+            List<Playlist> owned = playlistsByUnknownOwner.remove(user.getId());
+            if (owned != null) {
+                playlistsByOwner.computeIfAbsent(user.getIntId(), key -> new ArrayList<>()).addAll(owned);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Records that the playlist gained or lost the song. Called by tracked playlists on
+     * every edit, before they read the song's popularity.
+     */
+    void trackMembership(Playlist playlist, Song song, boolean member) {
+        synchronized (membershipLock) {
+            IntIntHashMap playlistIds = playlistIdsBySong.get(song.getIntId());
+            if (member) {
+                if (playlistIds == null) {
+                    playlistIds = new IntIntHashMap(4);
+                    playlistIdsBySong.put(song.getIntId(), playlistIds);
+                    song.addListener(popularityTracker);
+                }
+                playlistIds.put(playlist.getIntId(), 1);
+            } else if (playlistIds != null) {
+                playlistIds.remove(playlist.getIntId(), 0);
+                if (playlistIds.isEmpty()) {
+                    playlistIdsBySong.remove(song.getIntId());
+                    song.removeListener(popularityTracker);
+                }
+            }
+        }
+    }
+
+    // Entity lists, in insertion order
+
+    public List<Song> getSongs() {
+        return Collections.unmodifiableList(songs);
+    }
+
+    public List<Album> getAlbums() {
+        return Collections.unmodifiableList(albums);
+    }
+
+    public List<Playlist> getPlaylists() {
+        return Collections.unmodifiableList(playlists);
+    }
+
+    public List<User> getUsers() {
+        return Collections.unmodifiableList(users);
+    }
+
+    // Index lookups; the nullable getters are meant for hot loops
+
+    public Song getSong(int songId) {
+        return songsById.get(songId);
+    }
+
+    public Song getSong(String songId) {
+        return songsById.get(IdRegistry.SONGS.resolve(songId));
+    }
+
+    public Album getAlbum(int albumId) {
+        return albumsById.get(albumId);
+    }
+
+    public Playlist getPlaylist(int playlistId) {
+        return playlistsById.get(playlistId);
+    }
+
+    public User getUser(int userId) {
+        return usersById.get(userId);
+    }
+
+    public Optional<Song> findSongById(String songId) {
+        return Optional.ofNullable(getSong(songId));
+    }
+
+    public Optional<Album> findAlbumById(String albumId) {
+        return Optional.ofNullable(albumsById.get(IdRegistry.ALBUMS.resolve(albumId)));
+    }
+
+    public Optional<Playlist> findPlaylistById(String playlistId) {
+        return Optional.ofNullable(playlistsById.get(IdRegistry.PLAYLISTS.resolve(playlistId)));
+    }
+
+    public Optional<User> findUserById(String userId) {
+        return Optional.ofNullable(usersById.get(IdRegistry.USERS.resolve(userId)));
+    }
+
+    public List<Playlist> getPlaylistsByOwner(int ownerId) {
+        List<Playlist> owned = playlistsByOwner.get(ownerId);
+        return owned != null ? Collections.unmodifiableList(owned) : List.of();
+    }
+
+    public List<Playlist> getPlaylistsByOwner(String ownerId) {
+        return getPlaylistsByOwner(IdRegistry.USERS.resolve(ownerId));
+    }
+
+    public List<Album> getAlbumsByArtist(int artistId) {
+        List<Album> artistAlbums = albumsByArtist.get(artistId);
+        return artistAlbums != null ? Collections.unmodifiableList(artistAlbums) : List.of();
+    }
+
+    public List<Album> getAlbumsByArtist(String artist) {
+        return getAlbumsByArtist(ArtistDictionary.INSTANCE.lookup(artist));
+    }
+
+    public List<Song> getSongsByArtist(int artistId) {
+        List<Song> artistSongs = songsByArtist.get(artistId);
+        return artistSongs != null ? Collections.unmodifiableList(artistSongs) : List.of();
+    }
+
+    public List<Song> getSongsByArtist(String artist) {
+        return getSongsByArtist(ArtistDictionary.INSTANCE.lookup(artist));
+    }
+
+    public int getArtistCount() {
+        return songsByArtist.size();
+    }
+
+    @Override
+    public String toString() {
+        return "Catalog{" +
+                "songs=" + songs.size() +
+                ", albums=" + albums.size() +
+                ", playlists=" + playlists.size() +
+                ", users=" + users.size() +
+                ", artists=" + songsByArtist.size() +
+                '}';
+    }
+}
@@ -1,7 +1,14 @@
 package com.streamexercises.model;
 
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.function.Consumer;
+
 /**
- * Represents music genres for categorizing songs and albums
+ * Represents music genres for categorizing songs and albums.
+ *
+ * Each genre also has a single-bit mask ({@code 1 << ordinal()}), so a set of genres
+ * fits in an int and set operations become bitwise operations.
  */
 public enum Genre {
     ROCK,
@@ -18,5 +25,45 @@ public enum Genre {
     RNB,
     INDIE,
     LATIN,
-    KPOP
-}
\ No newline at end of file
+    KPOP;
+
+    private static final Genre[] VALUES = values();
+
+    /** Mask with every genre set. */
+    public static final int ALL_MASK = (1 << VALUES.length) - 1;
+
+    public int mask() {
+        return 1 << ordinal();
+    }
+
+    public static Genre fromOrdinal(int ordinal) {
+        return VALUES[ordinal];
+    }
+
+    public static int maskOf(Collection<Genre> genres) {
+        int mask = 0;
+        if (genres != null) {
+            for (Genre genre : genres) {
+                if (genre != null) {
+                    mask |= genre.mask();
+                }
+            }
+        }
+        return mask;
+    }
+
+    public static EnumSet<Genre> fromMask(int mask) {
+        EnumSet<Genre> genres = EnumSet.noneOf(Genre.class);
+        forEach(mask, genres::add);
+        return genres;
+    }
+
+    /**
+     * Calls the action for every genre in the mask, in declaration order, without allocating.
+     */
+    public static void forEach(int mask, Consumer<Genre> action) {
+        for (int remaining = mask & ALL_MASK; remaining != 0; remaining &= remaining - 1) {
+            action.accept(VALUES[Integer.numberOfTrailingZeros(remaining)]);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.streamexercises.model;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Allocates dense 32-bit ids for one entity type.
+ *
+ * Ids start at 0 and are handed out consecutively, so they can index arrays directly.
+ * An entity may optionally carry an external string key (for example an id coming from
+ * another system); those keys are kept on the side in this registry, never in the entity.
+ * Entities without an external key still have a stable string form,
+ * {@code "<prefix>:<id>"}, which is derived on demand and resolves back to the same id.
+ *
+ * One registry per entity type is shared by the whole JVM. All methods are thread-safe.
+ */
+public final class IdRegistry {
+
+    public static final IdRegistry SONGS = new IdRegistry("song");
+    public static final IdRegistry ALBUMS = new IdRegistry("album");
+    public static final IdRegistry PLAYLISTS = new IdRegistry("playlist");
+    public static final IdRegistry USERS = new IdRegistry("user");
+
+    /** Returned by {@link #resolve(String)} for unknown keys. */
+    public static final int NO_ID = -1;
+
+    private final String prefix;
+    private final AtomicInteger nextId = new AtomicInteger();
+    private final Map<String, Integer> idsByExternalKey = new ConcurrentHashMap<>();
+    private final Map<Integer, String> externalKeysById = new ConcurrentHashMap<>();
+
+    private IdRegistry(String name) {
+        this.prefix = name + ':';
+    }
+
+    /**
+     * Allocates a new id without an external key.
+     */
+    public int allocate() {
+        int id = nextId.getAndIncrement();
+        if (id < 0) {
+            throw new IllegalStateException("Id space exhausted for " + prefix);
+        }
+        return id;
+    }
+
+    /**
+     * Returns the id registered for the external key, allocating one if the key is new.
+     * Derived keys (as returned by {@link #key(int)}) resolve to their existing id.
+     */
+    public int intern(String externalKey) {
+        if (externalKey == null) {
+            throw new IllegalArgumentException("externalKey must not be null");
+        }
+        if (isDerivedForm(externalKey)) {
+            int derived = parseDerived(externalKey);
+            if (derived == NO_ID) {
+                throw new IllegalArgumentException("Key " + externalKey + " is reserved for derived ids");
+            }
+            return derived;
+        }
+        Integer known = idsByExternalKey.get(externalKey);
+        if (known != null) {
+            return known;
+        }
+        return idsByExternalKey.computeIfAbsent(externalKey, key -> {
+            int id = allocate();
+            externalKeysById.put(id, key);
+            return id;
+        });
+    }
+
+    /**
+     * Returns the id for a key, or {@link #NO_ID} if the key was never issued.
+     */
+    public int resolve(String key) {
+        if (key == null) {
+            return NO_ID;
+        }
+        if (isDerivedForm(key)) {
+            return parseDerived(key);
+        }
+        Integer known = idsByExternalKey.get(key);
+        return known != null ? known : NO_ID;
+    }
+
+    /**
+     * The string form of an id: its external key if it has one, the derived key otherwise.
+     */
+    public String key(int id) {
+        if (!externalKeysById.isEmpty()) {
+            String external = externalKeysById.get(id);
+            if (external != null) {
+                return external;
+            }
+        }
+        return prefix + id;
+    }
+
+    /**
+     * Whether the key has the reserved derived form {@code "<prefix>:<digits>"}, whether
+     * or not it names an issued id; such keys are never accepted by {@link #intern}.
+     */
+    public boolean isDerivedKey(String key) {
+        return key != null && isDerivedForm(key);
+    }
+
+    public boolean hasExternalKey(int id) {
+        return externalKeysById.containsKey(id);
+    }
+
+    /**
+     * Number of ids allocated so far; every issued id is below this bound.
+     */
+    public int size() {
+        return nextId.get();
+    }
+
+    // "<prefix>:<digits>" is reserved for derived keys and never accepted as an external key
+    private boolean isDerivedForm(String key) {
+        if (!key.startsWith(prefix) || key.length() == prefix.length()) {
+            return false;
+        }
+        for (int i = prefix.length(); i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int parseDerived(String key) {
+        int digits = key.length() - prefix.length();
+        if (digits > 10 || (digits > 1 && key.charAt(prefix.length()) == '0')) {
+            return NO_ID;
+        }
+        long id = Long.parseLong(key, prefix.length(), key.length(), 10);
+        // Only ids that were actually issued without an external key have a derived key
+        if (id >= nextId.get() || (!externalKeysById.isEmpty() && externalKeysById.containsKey((int) id))) {
+            return NO_ID;
+        }
+        return (int) id;
+    }
+
+    @Override
+    public String toString() {
+        return "IdRegistry{" +
+                "prefix='" + prefix + '\'' +
+                ", size=" + nextId.get() +
+                ", externalKeys=" + externalKeysById.size() +
+                '}';
+    }
+}
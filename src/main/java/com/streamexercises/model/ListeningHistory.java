@@ -0,0 +1,410 @@
+package com.streamexercises.model;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Compact, append-only sequence of listens: dense song ids (see {@link IdRegistry#SONGS})
+ * with the epoch second of each listen.
+ *
+ * Entries are packed into blocks of {@value #BLOCK_SIZE}. Inside a block each entry is
+ * stored as a varint of the zigzag song-id delta to the previous entry, followed by a
+ * varint of the (non-negative) time delta, so a typical listen takes 3-5 bytes instead
+ * of a String reference plus the String itself. Full blocks are trimmed to their exact size.
+ *
+ * The history can be bounded by entry count, by age relative to the newest listen, or
+ * both. Old entries are dropped as new ones arrive; whole blocks are released once all
+ * their entries are gone.
+ *
+ * Listens of song ids unknown to the registry are kept too, in order: each distinct
+ * such id is stored once in a side table and the entry refers to it. Those entries read
+ * as {@link IdRegistry#NO_ID} with the original string on {@link Cursor#unresolvedSongId()}.
+ * The side table is only reset by {@link #clear()}.
+ *
+ * Reading is sequential through {@link #cursor()} or {@link #iterator()}; nothing is
+ * materialized. A cursor reads the entries present when it was created: full blocks are
+ * never written again, so it shares them and copies only the partly filled last block.
+ * It may therefore be walked on another thread while entries are appended, as long as
+ * creating it is ordered with the appends (for example under the same lock). Not
+ * synchronized otherwise.
+ */
+public final class ListeningHistory implements Iterable<Integer> {
+
+    static final int BLOCK_SIZE = 128;
+    private static final int INITIAL_BLOCK_BYTES = 64;
+    private static final String[] NO_UNRESOLVED = new String[0];
+
+    /** Value for {@code maxEntries} meaning "no count bound". */
+    public static final int UNBOUNDED = Integer.MAX_VALUE;
+
+    private final ArrayDeque<Block> blocks = new ArrayDeque<>();
+    // Song ids unknown to the registry; entries refer to slot i as the negative id ~i
+    private String[] unresolved = NO_UNRESOLVED;
+    private int unresolvedCount;
+    private Map<String, Integer> unresolvedSlots; // null while there are none
+    private int maxEntries;
+    private long maxAgeSeconds; // Long.MAX_VALUE when unbounded
+    private int skip; // entries of the first block that were already evicted
+    private int size;
+    private long lastSecond = Long.MIN_VALUE;
+    private long oldestSecond; // epoch second of the oldest kept entry, valid while size > 0
+
+    public ListeningHistory() {
+        this(UNBOUNDED, null);
+    }
+
+    /**
+     * @param maxEntries most entries to keep, or {@link #UNBOUNDED}
+     * @param maxAge     keep only listens at most this old relative to the newest one; null for no bound
+     */
+    public ListeningHistory(int maxEntries, Duration maxAge) {
+        setBounds(maxEntries, maxAge);
+    }
+
+    /**
+     * Changes the bounds and evicts whatever no longer fits.
+     */
+    public void setBounds(int maxEntries, Duration maxAge) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+        }
+        if (maxAge != null && maxAge.isNegative()) {
+            throw new IllegalArgumentException("maxAge must not be negative: " + maxAge);
+        }
+        this.maxEntries = maxEntries;
+        this.maxAgeSeconds = maxAge != null ? maxAge.getSeconds() : Long.MAX_VALUE;
+        evict();
+    }
+
+    /**
+     * Appends a listen. Timestamps earlier than the previous listen are clamped to it,
+     * so the sequence stays in time order.
+     */
+    public void append(int songId, long epochSecond) {
+        if (songId < 0) {
+            throw new IllegalArgumentException("songId must not be negative: " + songId);
+        }
+        appendEntry(songId, epochSecond);
+    }
+
+    /**
+     * Appends a listen of a song id that {@link IdRegistry#SONGS} does not know (null
+     * allowed). It keeps its place in the sequence and counts towards the bounds like any
+     * other listen.
+     */
+    public void appendUnresolved(String songId, long epochSecond) {
+        if (unresolvedSlots == null) {
+            unresolvedSlots = new HashMap<>();
+        }
+        Integer slot = unresolvedSlots.get(songId);
+        if (slot == null) {
+            if (unresolvedCount == unresolved.length) {
+                unresolved = Arrays.copyOf(unresolved, Math.max(4, unresolvedCount * 2));
+            }
+            slot = unresolvedCount;
+            unresolved[unresolvedCount++] = songId;
+            unresolvedSlots.put(songId, slot);
+        }
+        appendEntry(~slot, epochSecond);
+    }
+
+    private void appendEntry(int entry, long epochSecond) {
+        long second = Math.max(epochSecond, lastSecond);
+        Block tail = blocks.peekLast();
+        if (tail == null || tail.count == BLOCK_SIZE) {
+            if (tail != null) {
+                tail.trim();
+            }
+            tail = new Block(second);
+            blocks.addLast(tail);
+        }
+        tail.append(entry, second);
+        if (size == 0) {
+            oldestSecond = second;
+        }
+        lastSecond = second;
+        size++;
+        evict();
+    }
+
+    public void clear() {
+        blocks.clear();
+        skip = 0;
+        size = 0;
+        lastSecond = Long.MIN_VALUE;
+        // A fresh table, so cursors taken earlier keep reading theirs
+        unresolved = NO_UNRESOLVED;
+        unresolvedCount = 0;
+        unresolvedSlots = null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getMaxEntries() {
+        return maxEntries;
+    }
+
+    /**
+     * Approximate number of bytes used by the encoded entries.
+     */
+    public long encodedBytes() {
+        long bytes = 0;
+        for (Block block : blocks) {
+            bytes += block.bytes.length;
+        }
+        return bytes;
+    }
+
+    public Cursor cursor() {
+        int blockCount = blocks.size();
+        byte[][] bytes = new byte[blockCount][];
+        int[] counts = new int[blockCount];
+        long[] firstSeconds = new long[blockCount];
+        int index = 0;
+        for (Block block : blocks) {
+            // Only the last block can still be appended to
+            boolean growing = index == blockCount - 1 && block.count < BLOCK_SIZE;
+            bytes[index] = growing ? Arrays.copyOf(block.bytes, block.length) : block.bytes;
+            counts[index] = block.count;
+            firstSeconds[index] = block.firstSecond;
+            index++;
+        }
+        return new Cursor(bytes, counts, firstSeconds, skip, unresolved);
+    }
+
+    // Eviction only looks at the first block, which holds every entry that can expire next
+    private Cursor firstBlockCursor() {
+        Block first = blocks.peekFirst();
+        return first == null
+                ? new Cursor(new byte[0][], new int[0], new long[0], 0, unresolved)
+                : new Cursor(new byte[][] {first.bytes}, new int[] {first.count}, new long[] {first.firstSecond},
+                        skip, unresolved);
+    }
+
+    /**
+     * Song ids from oldest to newest, {@link IdRegistry#NO_ID} for unresolved ones.
+     */
+    @Override
+    public PrimitiveIterator.OfInt iterator() {
+        Cursor cursor = cursor();
+        return new PrimitiveIterator.OfInt() {
+            private boolean ready;
+            private boolean hasNext;
+
+            @Override
+            public boolean hasNext() {
+                if (!ready) {
+                    hasNext = cursor.advance();
+                    ready = true;
+                }
+                return hasNext;
+            }
+
+            @Override
+            public int nextInt() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                ready = false;
+                return cursor.songId();
+            }
+        };
+    }
+
+    public int[] toSongIdArray() {
+        int[] songIds = new int[size];
+        Cursor cursor = cursor();
+        for (int i = 0; cursor.advance(); i++) {
+            songIds[i] = cursor.songId();
+        }
+        return songIds;
+    }
+
+    private void evict() {
+        boolean timeBounded = maxAgeSeconds != Long.MAX_VALUE;
+        if (size > maxEntries) {
+            while (size > maxEntries) {
+                dropOldest();
+            }
+            if (timeBounded) {
+                oldestSecond = readOldestSecond();
+            }
+        }
+        if (timeBounded && size > 0 && oldestSecond < lastSecond - maxAgeSeconds) {
+            long cutoff = lastSecond - maxAgeSeconds;
+            // Whole blocks first, then entries inside the (new) first block
+            while (blocks.size() > 1 && blocks.peekFirst().lastSecond < cutoff) {
+                Block first = blocks.pollFirst();
+                size -= first.count - skip;
+                skip = 0;
+            }
+            Cursor cursor = firstBlockCursor();
+            int expired = 0;
+            while (cursor.advance() && cursor.epochSecond() < cutoff) {
+                expired++;
+            }
+            for (int i = 0; i < expired; i++) {
+                dropOldest();
+            }
+            oldestSecond = readOldestSecond();
+        }
+    }
+
+    private long readOldestSecond() {
+        Cursor cursor = firstBlockCursor();
+        return cursor.advance() ? cursor.epochSecond() : Long.MIN_VALUE;
+    }
+
+    private void dropOldest() {
+        skip++;
+        size--;
+        if (skip == blocks.peekFirst().count) {
+            blocks.pollFirst();
+            skip = 0;
+        }
+    }
+
+    private static final class Block {
+        private final long firstSecond; // base for the first entry's time delta
+        private byte[] bytes = new byte[INITIAL_BLOCK_BYTES];
+        private int length;
+        private int count;
+        private int lastSongId;
+        private long lastSecond;
+
+        Block(long firstSecond) {
+            this.firstSecond = firstSecond;
+            this.lastSecond = firstSecond;
+        }
+
+        void append(int songId, long second) {
+            ensureRoom(15);
+            int delta = songId - lastSongId;
+            writeVarint(Integer.toUnsignedLong((delta << 1) ^ (delta >> 31)));
+            writeVarint(second - lastSecond);
+            lastSongId = songId;
+            lastSecond = second;
+            count++;
+        }
+
+        void trim() {
+            if (bytes.length != length) {
+                bytes = Arrays.copyOf(bytes, length);
+            }
+        }
+
+        private void ensureRoom(int extra) {
+            if (length + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+            }
+        }
+
+        private void writeVarint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+    }
+
+    /**
+     * Forward-only cursor from the oldest to the newest entry: call {@link #advance()}
+     * before reading each entry.
+     */
+    public static final class Cursor {
+        private final byte[][] blockBytes;
+        private final int[] blockCounts;
+        private final long[] blockFirstSeconds;
+        private final int skip; // entries of the first block to pass over
+        private final String[] unresolved; // shared; slots are written once, before entries refer to them
+        private int block = -1;
+        private int indexInBlock;
+        private int position;
+        private int songId;
+        private long second;
+
+        private Cursor(byte[][] blockBytes, int[] blockCounts, long[] blockFirstSeconds, int skip,
+                       String[] unresolved) {
+            this.blockBytes = blockBytes;
+            this.blockCounts = blockCounts;
+            this.blockFirstSeconds = blockFirstSeconds;
+            this.skip = skip;
+            this.unresolved = unresolved;
+        }
+
+        public boolean advance() {
+            while (block < 0 || indexInBlock == blockCounts[block]) {
+                if (block + 1 == blockCounts.length) {
+                    return false;
+                }
+                block++;
+                indexInBlock = 0;
+                position = 0;
+                songId = 0;
+                second = blockFirstSeconds[block];
+                if (block == 0) {
+                    for (int i = 0; i < skip && i < blockCounts[0]; i++) {
+                        decodeNext();
+                    }
+                }
+            }
+            decodeNext();
+            return true;
+        }
+
+        /**
+         * Dense id of the listened song, or {@link IdRegistry#NO_ID} if the registry did not
+         * know it (see {@link #unresolvedSongId()}).
+         */
+        public int songId() {
+            return songId >= 0 ? songId : IdRegistry.NO_ID;
+        }
+
+        public boolean isResolved() {
+            return songId >= 0;
+        }
+
+        /**
+         * The song id string as given for an unresolved listen; null for resolved ones.
+         */
+        public String unresolvedSongId() {
+            return songId >= 0 ? null : unresolved[~songId];
+        }
+
+        public long epochSecond() {
+            return second;
+        }
+
+        private void decodeNext() {
+            int zigzagged = (int) readVarint();
+            songId += (zigzagged >>> 1) ^ -(zigzagged & 1);
+            second += readVarint();
+            indexInBlock++;
+        }
+
+        private long readVarint() {
+            byte[] bytes = blockBytes[block];
+            long value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = bytes[position++];
+                value |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            return value;
+        }
+    }
+}
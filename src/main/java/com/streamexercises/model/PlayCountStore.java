@@ -0,0 +1,233 @@
+package com.streamexercises.model;
+
+import com.streamexercises.collection.IntIntConsumer;
+import com.streamexercises.collection.IntIntHashMap;
+import com.streamexercises.collection.TopKSelector;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Per-user play counts (song id → number of plays) that can be written from many
+ * ingest threads at once.
+ *
+ * Counts are keyed by the dense song id of {@link IdRegistry#SONGS} in an
+ * {@link IntIntHashMap}, so an entry is two ints rather than a String key, a boxed
+ * Integer and a map node. The String-keyed methods translate at the boundary with
+ * {@link IdRegistry#resolve}: song ids the registry does not know (ids from other
+ * systems, typos, deleted songs) are counted in a small String-keyed side map instead
+ * of taking a dense id. They show in the String-keyed reads and the total, but not in
+ * the dense-id methods.
+ *
+ * Each user owns one store with its own lock, so threads recording listens for
+ * different users never contend and write throughput grows with the number of
+ * ingest threads. The total is maintained on every write, so reading it does not
+ * walk the entries. Readers that need more than one value take a {@link #snapshot()},
+ * which is a consistent copy: it never shows half of a concurrent update.
+ */
+public final class PlayCountStore {
+
+    private final StampedLock lock = new StampedLock();
+    private final IntIntHashMap counts = new IntIntHashMap();
+    private Map<String, Integer> unresolvedCounts; // song ids unknown to the registry; null while there are none
+    private long totalPlays;
+
+    public void add(String songId, int plays) {
+        if (songId == null || plays <= 0) {
+            return;
+        }
+        int id = IdRegistry.SONGS.resolve(songId);
+        if (id != IdRegistry.NO_ID) {
+            add(id, plays);
+            return;
+        }
+        long stamp = lock.writeLock();
+        try {
+            unresolved().merge(songId, plays, Integer::sum);
+            totalPlays += plays;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void add(int songId, int plays) {
+        if (plays <= 0) {
+            return;
+        }
+        long stamp = lock.writeLock();
+        try {
+            counts.addTo(songId, plays);
+            totalPlays += plays;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Replaces every count with the given ones, atomically for readers.
+     */
+    public void replaceAll(Map<String, Integer> playCounts) {
+        long stamp = lock.writeLock();
+        try {
+            counts.clear();
+            unresolvedCounts = null;
+            totalPlays = 0;
+            playCounts.forEach((songId, plays) -> {
+                if (songId != null && plays != null && plays > 0) {
+                    int id = IdRegistry.SONGS.resolve(songId);
+                    if (id != IdRegistry.NO_ID) {
+                        counts.put(id, plays);
+                    } else {
+                        unresolved().put(songId, plays);
+                    }
+                    totalPlays += plays;
+                }
+            });
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public int get(String songId) {
+        int id = IdRegistry.SONGS.resolve(songId);
+        long stamp = lock.readLock();
+        try {
+            int plays = id != IdRegistry.NO_ID ? counts.get(id) : 0;
+            // A key may have been counted here before a song with that id existed
+            return unresolvedCounts != null ? plays + unresolvedCounts.getOrDefault(songId, 0) : plays;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public int get(int songId) {
+        long stamp = lock.readLock();
+        try {
+            return counts.get(songId);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Sum of all plays, saturated to {@code Integer.MAX_VALUE}.
+     */
+    public int total() {
+        long stamp = lock.tryOptimisticRead();
+        long total = totalPlays;
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                total = totalPlays;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return (int) Math.min(total, Integer.MAX_VALUE);
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return unresolvedCounts == null ? counts.size() : merged().size();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Song id with the highest count; ties go to whichever entry the map visits first.
+     */
+    public Optional<String> mostPlayed() {
+        long stamp = lock.readLock();
+        try {
+            if (unresolvedCounts == null) {
+                int[] top = counts.topKeysByValue(1);
+                return top.length > 0 ? Optional.of(IdRegistry.SONGS.key(top[0])) : Optional.empty();
+            }
+            return merged().entrySet().stream()
+                    .max(Map.Entry.comparingByValue())
+                    .map(Map.Entry::getKey);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Dense ids of the {@code k} most played songs, most played first; ties keep the
+     * order of {@link #snapshot()}. Song ids unknown to the registry are not included.
+     */
+    public int[] topSongIds(int k) {
+        long stamp = lock.readLock();
+        try {
+            return counts.topKeysByValue(k);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Allocation-free form of {@link #topSongIds(int)}: selects {@code selector.capacity()}
+     * ids into {@code target} and returns how many were written.
+     */
+    public int topSongIds(TopKSelector selector, int[] target) {
+        long stamp = lock.readLock();
+        try {
+            return counts.topKeysByValue(selector, target);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Visits every (dense song id, count) pair under the read lock, so writers wait
+     * until the walk is done. Keep the action short. Song ids unknown to the registry
+     * are not visited.
+     */
+    public void forEach(IntIntConsumer action) {
+        long stamp = lock.readLock();
+        try {
+            counts.forEach(action);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Consistent, unmodifiable copy of the counts keyed by song id string.
+     */
+    public Map<String, Integer> snapshot() {
+        long stamp = lock.readLock();
+        try {
+            return Collections.unmodifiableMap(merged());
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    // Callers hold the lock
+    private Map<String, Integer> merged() {
+        int unresolvedSize = unresolvedCounts != null ? unresolvedCounts.size() : 0;
+        Map<String, Integer> copy = new LinkedHashMap<>((counts.size() + unresolvedSize) * 4 / 3 + 1);
+        counts.forEach((songId, plays) -> copy.put(IdRegistry.SONGS.key(songId), plays));
+        if (unresolvedCounts != null) {
+            unresolvedCounts.forEach((songId, plays) -> copy.merge(songId, plays, Integer::sum));
+        }
+        return copy;
+    }
+
+    private Map<String, Integer> unresolved() {
+        if (unresolvedCounts == null) {
+            unresolvedCounts = new HashMap<>();
+        }
+        return unresolvedCounts;
+    }
+}
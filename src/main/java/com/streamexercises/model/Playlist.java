@@ -1,34 +1,86 @@
 package com.streamexercises.model;
 
+import com.streamexercises.collection.IntSorts;
+
+import java.text.CollationKey;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.IntBinaryOperator;
 
 /**
  * Represents a playlist in the music streaming service
+ *
+ * Duration, genre and popularity summaries are kept as running totals, updated as songs
+ * are added and removed, so they cost O(1) regardless of playlist length. Member songs
+ * can also change popularity. A {@link Catalog} holding the playlist tells it when one
+ * of its songs does, through one song-to-playlists index for all playlists, and the next
+ * read recomputes the popularity sum from the songs under the playlist's lock. Outside a
+ * catalog nothing reports those changes, so reads check the songs themselves: the
+ * average is recomputed and the cached popularity order revalidated on every call.
+ *
+ * Playback orders are lazy: {@link #shuffledOrder(long)} draws a seeded shuffle one
+ * track at a time, and the title and popularity orders are computed once and cached
+ * until the next edit (or, for popularity, the next popularity change of a member song).
  */
 public class Playlist {
-    private final String id;
+    private final int id; // dense id allocated by IdRegistry.PLAYLISTS
     private String name;
-    private final String ownerId;
+    private int ownerId; // dense user id, IdRegistry.NO_ID while unknown or when there is no owner
+    private final String ownerKey; // owner id as given while it did not resolve, else null
     private final LocalDateTime creationDate;
-    private final List<Song> songs;
+    private final SongSequence songs; // chunked storage with an id index for membership
+    private final List<Song> songsView;
     private boolean isPublic;
     private String description;
 
+    // Running summaries of the songs
+    private long totalSeconds;
+    private long totalNanos;
+    private final int[] primaryGenreCounts = new int[Genre.values().length];
+    private final int[] genreMemberCounts = new int[Genre.values().length]; // songs having the genre as primary or secondary
+
+    // Popularity fields are guarded by popularityLock, since readers may recompute them
+    private final Object popularityLock = new Object();
+    private double popularitySum;
+    private double popularityCompensation; // Kahan compensation for popularitySum
+    private int summedChanges; // popularityChanges when popularitySum was last exact
+    private final AtomicInteger popularityChanges = new AtomicInteger(); // bumped by the tracking catalog
+    private volatile Catalog tracker; // reports member popularity changes; null outside a catalog
+
+    // Cached sort orders, valid while their version matches the playlist's
+    private int version; // bumped by every edit of the songs
+    private List<Song> titleOrder;
+    private int titleOrderVersion = -1;
+    private List<Song> popularityOrder;
+    private int popularityOrderVersion = -1;
+    private int popularityOrderChanges;
+    private double[] popularityOrderValues; // popularity of each song in popularityOrder when it was taken
+
+    /**
+     * The owner is a reference: an id that is not (yet) known to {@link IdRegistry#USERS}
+     * is kept as given and resolved again on later reads, never registered.
+     */
     public Playlist(String name, String ownerId, boolean isPublic, String description) {
-        this.id = UUID.randomUUID().toString();
+        this.id = IdRegistry.PLAYLISTS.allocate();
         this.name = name;
-        this.ownerId = ownerId;
+        this.ownerId = IdRegistry.USERS.resolve(ownerId);
+        this.ownerKey = this.ownerId == IdRegistry.NO_ID ? ownerId : null;
         this.creationDate = LocalDateTime.now();
-        this.songs = new ArrayList<>();
+        this.songs = new SongSequence();
+        this.songsView = new SongsView();
         this.isPublic = isPublic;
         this.description = description;
     }
 
     // Getters and Setters
     public String getId() {
+        return IdRegistry.PLAYLISTS.key(id);
+    }
+
+    public int getIntId() {
         return id;
     }
 
@@ -41,15 +93,66 @@ public class Playlist {
     }
 
     public String getOwnerId() {
-        return ownerId;
+        if (ownerKey != null) {
+            return ownerKey;
+        }
+        return ownerId != IdRegistry.NO_ID ? IdRegistry.USERS.key(ownerId) : null;
+    }
+
+    /**
+     * Dense id of the owner, or {@link IdRegistry#NO_ID} if there is no owner or no user
+     * with the owner's id exists yet.
+     */
+    public int getOwnerIntId() {
+        int owner = ownerId;
+        if (owner == IdRegistry.NO_ID && ownerKey != null) {
+            owner = IdRegistry.USERS.resolve(ownerKey);
+            ownerId = owner; // idempotent, so racing readers may both store it
+        }
+        return owner;
     }
 
     public LocalDateTime getCreationDate() {
         return creationDate;
     }
 
+    /**
+     * Read-only live view of the songs; it reflects later edits. Readers that need a
+     * stable version should take {@link #snapshotSongs()} instead of copying this list.
+     */
     public List<Song> getSongs() {
-        return Collections.unmodifiableList(songs);
+        return songsView;
+    }
+
+    /**
+     * Frozen version of the songs in O(1), sharing storage with the playlist. Safe to
+     * read from other threads while the owner keeps editing; keep it to undo later edits
+     * with {@link #restoreSongs(SongSequence.Snapshot)}.
+     */
+    public SongSequence.Snapshot snapshotSongs() {
+        return songs.snapshot();
+    }
+
+    /**
+     * Replaces the songs with an earlier snapshot and recomputes the summaries.
+     */
+    public void restoreSongs(SongSequence.Snapshot snapshot) {
+        Objects.requireNonNull(snapshot, "snapshot");
+        Catalog catalog = tracker;
+        if (catalog != null) {
+            songs.forEach(song -> catalog.trackMembership(this, song, false));
+        }
+        songs.restore(snapshot);
+        version++;
+        totalSeconds = 0;
+        totalNanos = 0;
+        Arrays.fill(primaryGenreCounts, 0);
+        Arrays.fill(genreMemberCounts, 0);
+        synchronized (popularityLock) {
+            popularitySum = 0.0;
+            popularityCompensation = 0.0;
+        }
+        songs.forEach(song -> updateSummaries(song, 1));
     }
 
     public boolean isPublic() {
@@ -70,18 +173,37 @@ public class Playlist {
 
     // Methods
     public void addSong(Song song) {
-        if (song != null && !songs.contains(song)) {
-            songs.add(song);
+        if (songs.add(song)) {
+            updateSummaries(song, 1);
         }
     }
 
+    /**
+     * Inserts the song at the position (0 to size) unless the playlist already has it.
+     */
+    public boolean insertSong(int index, Song song) {
+        if (songs.insert(index, song)) {
+            updateSummaries(song, 1);
+            return true;
+        }
+        return false;
+    }
+
+    public boolean containsSong(Song song) {
+        return songs.contains(song);
+    }
+
     public boolean removeSong(Song song) {
-        return songs.remove(song);
+        if (songs.remove(song)) {
+            updateSummaries(song, -1);
+            return true;
+        }
+        return false;
     }
 
     public void removeSongAt(int index) {
         if (index >= 0 && index < songs.size()) {
-            songs.remove(index);
+            updateSummaries(songs.removeAt(index), -1);
         }
     }
 
@@ -90,43 +212,262 @@ public class Playlist {
     }
 
     public Duration getTotalDuration() {
-        return songs.stream()
-                .map(Song::getDuration)
-                .reduce(Duration.ZERO, Duration::plus);
+        return Duration.ofSeconds(totalSeconds, totalNanos);
+    }
+
+    public long getTotalSeconds() {
+        return getTotalDuration().getSeconds();
     }
 
     public Set<Genre> getAllGenres() {
-        return songs.stream()
-                .flatMap(song -> song.getAllGenres().stream())
-                .collect(Collectors.toSet());
+        return Genre.fromMask(getGenreMask());
+    }
+
+    /**
+     * Mask of every primary and secondary genre present in the playlist.
+     */
+    public int getGenreMask() {
+        int mask = 0;
+        for (int ordinal = 0; ordinal < genreMemberCounts.length; ordinal++) {
+            if (genreMemberCounts[ordinal] > 0) {
+                mask |= 1 << ordinal;
+            }
+        }
+        return mask;
     }
 
+    /**
+     * Number of songs whose primary genre is the given one.
+     */
+    public int getPrimaryGenreCount(Genre genre) {
+        return genre != null ? primaryGenreCounts[genre.ordinal()] : 0;
+    }
+
+    /**
+     * Most common primary genre; ties go to the genre declared first.
+     */
     public Optional<Genre> getMostFrequentGenre() {
-        return songs.stream()
-                .map(Song::getPrimaryGenre)
-                .collect(Collectors.groupingBy(genre -> genre, Collectors.counting()))
-                .entrySet().stream()
-                .max(Map.Entry.comparingByValue())
-                .map(Map.Entry::getKey);
+        int best = -1;
+        for (int ordinal = 0; ordinal < primaryGenreCounts.length; ordinal++) {
+            if (primaryGenreCounts[ordinal] > 0 && (best < 0 || primaryGenreCounts[ordinal] > primaryGenreCounts[best])) {
+                best = ordinal;
+            }
+        }
+        return best >= 0 ? Optional.of(Genre.fromOrdinal(best)) : Optional.empty();
     }
 
     public double getAveragePopularity() {
-        return songs.stream()
-                .mapToDouble(Song::getPopularity)
-                .average()
-                .orElse(0.0);
+        int size = songs.size();
+        if (size == 0) {
+            return 0.0;
+        }
+        synchronized (popularityLock) {
+            int changes = popularityChanges.get(); // read first: later changes make the sum stale
+            if (tracker == null || changes != summedChanges) {
+                popularitySum = 0.0;
+                popularityCompensation = 0.0;
+                songs.forEach(song -> addToPopularitySum(song.getPopularity()));
+                summedChanges = changes;
+            }
+            return (popularitySum - popularityCompensation) / size;
+        }
+    }
+
+    /**
+     * Called by the tracking catalog after a member song changed popularity.
+     */
+    void popularityChanged() {
+        popularityChanges.incrementAndGet();
+    }
+
+    /**
+     * Lets the catalog report popularity changes of the songs from now on. A playlist
+     * is tracked by the first catalog it is added to; false if that was another one.
+     */
+    boolean trackBy(Catalog catalog) {
+        if (tracker != null) {
+            return tracker == catalog;
+        }
+        tracker = catalog;
+        songs.forEach(song -> catalog.trackMembership(this, song, true));
+        popularityChanged(); // changes before this were not reported
+        return true;
+    }
+
+    private void updateSummaries(Song song, int sign) {
+        version++;
+        Duration duration = song.getDuration();
+        if (duration != null) {
+            totalSeconds += sign * duration.getSeconds();
+            totalNanos += sign * duration.getNano();
+        }
+        if (song.getPrimaryGenre() != null) {
+            primaryGenreCounts[song.getPrimaryGenre().ordinal()] += sign;
+        }
+        for (int remaining = song.getGenreMask(); remaining != 0; remaining &= remaining - 1) {
+            genreMemberCounts[Integer.numberOfTrailingZeros(remaining)] += sign;
+        }
+        Catalog catalog = tracker;
+        if (catalog != null) {
+            // Before reading the popularity: a change after this is reported
+            catalog.trackMembership(this, song, sign > 0);
+        }
+        synchronized (popularityLock) {
+            if (songs.isEmpty()) {
+                popularitySum = 0.0;
+                popularityCompensation = 0.0;
+            } else {
+                addToPopularitySum(sign * song.getPopularity());
+            }
+        }
+    }
+
+    private void addToPopularitySum(double value) {
+        double adjusted = value - popularityCompensation;
+        double sum = popularitySum + adjusted;
+        popularityCompensation = (sum - popularitySum) - adjusted;
+        popularitySum = sum;
     }
 
     public void shuffle() {
-        Collections.shuffle(songs);
+        List<Song> ordered = Arrays.asList(songs.toArray());
+        Collections.shuffle(ordered);
+        songs.reorder(ordered.toArray(new Song[0]));
+        version++;
+    }
+
+    /**
+     * Shuffled playback over the current songs, drawn lazily from the seed. Later edits
+     * of the playlist do not affect an order that was already handed out.
+     */
+    public ShuffledOrder shuffledOrder(long seed) {
+        return new ShuffledOrder(songs.snapshot(), seed);
+    }
+
+    /**
+     * Songs ordered by title using root-locale collation keys; equal titles keep playlist order.
+     * Cached until the playlist is edited.
+     */
+    public List<Song> getSongsByTitle() {
+        if (titleOrderVersion != version) {
+            Song[] current = songs.toArray();
+            CollationKey[] keys = new CollationKey[current.length];
+            for (int i = 0; i < current.length; i++) {
+                keys[i] = current[i].getTitleCollationKey();
+            }
+            titleOrder = orderBy(current, (a, b) -> keys[a].compareTo(keys[b]));
+            titleOrderVersion = version;
+        }
+        return titleOrder;
+    }
+
+    /**
+     * Songs by descending popularity; equal popularity keeps playlist order. Cached until
+     * the playlist is edited or one of its songs changes popularity.
+     */
+    public List<Song> getSongsByPopularity() {
+        int changes = popularityChanges.get(); // read first: later changes make this stale
+        boolean valid = popularityOrderVersion == version
+                && (tracker != null ? popularityOrderChanges == changes : popularityUnchanged());
+        if (!valid) {
+            Song[] current = songs.toArray();
+            double[] popularity = new double[current.length];
+            for (int i = 0; i < current.length; i++) {
+                popularity[i] = current[i].getPopularity();
+            }
+            int[] order = sortedPositions(current.length, (a, b) -> Double.compare(popularity[b], popularity[a]));
+            double[] values = new double[order.length];
+            for (int i = 0; i < order.length; i++) {
+                values[i] = popularity[order[i]];
+            }
+            popularityOrder = select(current, order);
+            popularityOrderVersion = version;
+            popularityOrderChanges = changes;
+            popularityOrderValues = values;
+        }
+        return popularityOrder;
+    }
+
+    // Untracked playlists: whether every song still has the popularity the cached order was built from
+    private boolean popularityUnchanged() {
+        for (int i = 0; i < popularityOrderValues.length; i++) {
+            if (popularityOrder.get(i).getPopularity() != popularityOrderValues[i]) {
+                return false;
+            }
+        }
+        return true;
     }
 
     public void sortByTitle() {
-        songs.sort(Comparator.comparing(Song::getTitle));
+        List<Song> ordered = getSongsByTitle();
+        songs.reorder(ordered.toArray(new Song[0]));
+        // The playlist now is in title order, so the cached order stays valid
+        version++;
+        titleOrderVersion = version;
     }
 
     public void sortByPopularity() {
-        songs.sort(Comparator.comparing(Song::getPopularity).reversed());
+        List<Song> ordered = getSongsByPopularity();
+        songs.reorder(ordered.toArray(new Song[0]));
+        version++;
+        popularityOrderVersion = version;
+    }
+
+    private static List<Song> orderBy(Song[] current, IntBinaryOperator indexComparator) {
+        return select(current, sortedPositions(current.length, indexComparator));
+    }
+
+    private static int[] sortedPositions(int length, IntBinaryOperator indexComparator) {
+        int[] order = new int[length];
+        Arrays.setAll(order, i -> i);
+        IntSorts.stableSort(order, indexComparator);
+        return order;
+    }
+
+    private static List<Song> select(Song[] current, int[] order) {
+        Song[] ordered = new Song[current.length];
+        for (int i = 0; i < order.length; i++) {
+            ordered[i] = current[order[i]];
+        }
+        return Collections.unmodifiableList(Arrays.asList(ordered));
+    }
+
+    // Read-only live view of the songs; positional reads walk the chunks
+    private final class SongsView extends AbstractList<Song> {
+        @Override
+        public Song get(int index) {
+            return songs.get(index);
+        }
+
+        @Override
+        public int size() {
+            return songs.size();
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            return o instanceof Song song && songs.contains(song);
+        }
+
+        @Override
+        public int indexOf(Object o) {
+            return o instanceof Song song ? songs.indexOf(song) : -1;
+        }
+
+        @Override
+        public int lastIndexOf(Object o) {
+            return indexOf(o);
+        }
+
+        @Override
+        public Iterator<Song> iterator() {
+            return songs.iterator(); // does not support remove()
+        }
+
+        @Override
+        public void forEach(Consumer<? super Song> action) {
+            songs.forEach(action);
+        }
     }
 
     @Override
@@ -134,19 +475,19 @@ public class Playlist {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Playlist playlist = (Playlist) o;
-        return Objects.equals(id, playlist.id);
+        return id == playlist.id;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id);
+        return Integer.hashCode(id);
     }
 
     @Override
     public String toString() {
         return "Playlist{" +
                 "name='" + name + '\'' +
-                ", ownerId='" + ownerId + '\'' +
+                ", ownerId='" + getOwnerId() + '\'' +
                 ", creationDate=" + creationDate +
                 ", numberOfSongs=" + songs.size() +
                 ", isPublic=" + isPublic +
@@ -0,0 +1,62 @@
+package com.streamexercises.model;
+
+import com.streamexercises.collection.IntIntHashMap;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.SplittableRandom;
+
+/**
+ * Seeded random permutation of a frozen song list, produced one track at a time.
+ *
+ * Runs Fisher-Yates lazily: drawing the next track swaps one virtual position with a
+ * random later one. Only positions that were displaced are remembered (in an
+ * {@link IntIntHashMap}), so the first k tracks cost O(k) time and memory whatever the
+ * list length. The same seed over the same songs always yields the same order.
+ *
+ * Not synchronized.
+ */
+public final class ShuffledOrder implements Iterator<Song> {
+
+    private final List<Song> songs;
+    private final SplittableRandom random;
+    private final IntIntHashMap displaced = new IntIntHashMap(); // position -> index now stored there
+    private int position;
+
+    /**
+     * @param songs an immutable list, e.g. a {@link SongSequence.Snapshot}; get(i) should be cheap
+     */
+    public ShuffledOrder(List<Song> songs, long seed) {
+        this.songs = songs;
+        this.random = new SplittableRandom(seed);
+    }
+
+    @Override
+    public boolean hasNext() {
+        return position < songs.size();
+    }
+
+    @Override
+    public Song next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        int swapWith = position + random.nextInt(songs.size() - position);
+        int chosen = displaced.getOrDefault(swapWith, swapWith);
+        if (swapWith != position) {
+            displaced.put(swapWith, displaced.getOrDefault(position, position));
+        }
+        // The current position is never read again
+        displaced.remove(position, 0);
+        position++;
+        return songs.get(chosen);
+    }
+
+    /**
+     * Number of tracks not yet drawn.
+     */
+    public int remaining() {
+        return songs.size() - position;
+    }
+}
@@ -1,41 +1,60 @@
 package com.streamexercises.model;
 
+import java.text.CollationKey;
+import java.text.Collator;
 import java.time.Duration;
 import java.time.Year;
-import java.util.HashSet;
-import java.util.Objects;
-import java.util.Set;
-import java.util.UUID;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 /**
  * Represents a song in the music streaming service
  */
 public class Song {
-    private final String id;
+    private final int id; // dense id allocated by IdRegistry.SONGS
     private final String title;
-    private final Set<String> artists;
+    private final int[] artistIds; // sorted, distinct ids from ArtistDictionary.INSTANCE
     private final Duration duration;
     private final Year releaseYear;
     private final Genre primaryGenre;
-    private final Set<Genre> secondaryGenres;
-    private int playCount;
-    private double popularity; // 0.0 to 100.0
+    private final int secondaryGenreMask; // bit per Genre, see Genre.mask()
+    private final LongAdder playCount; // striped, so concurrent listens do not contend
+    private volatile double popularity; // 0.0 to 100.0
+    private volatile SongListener[] listeners = NO_LISTENERS; // copy-on-write
+    private volatile CollationKey titleKey; // computed on first use; titles never change
+    private volatile String idKey; // string form of id, built on first getId()
+
+    private static final SongListener[] NO_LISTENERS = new SongListener[0];
+    // Collator instances are not thread-safe
+    private static final ThreadLocal<Collator> TITLE_COLLATOR = ThreadLocal.withInitial(() -> Collator.getInstance(Locale.ROOT));
 
     public Song(String title, Set<String> artists, Duration duration, Year releaseYear, 
                 Genre primaryGenre, Set<Genre> secondaryGenres, int playCount, double popularity) {
-        this.id = UUID.randomUUID().toString();
+        this.id = IdRegistry.SONGS.allocate();
         this.title = title;
-        this.artists = artists != null ? new HashSet<>(artists) : new HashSet<>();
+        this.artistIds = internArtists(artists);
         this.duration = duration;
         this.releaseYear = releaseYear;
         this.primaryGenre = primaryGenre;
-        this.secondaryGenres = secondaryGenres != null ? new HashSet<>(secondaryGenres) : new HashSet<>();
-        this.playCount = playCount;
+        this.secondaryGenreMask = Genre.maskOf(secondaryGenres);
+        this.playCount = new LongAdder();
+        this.playCount.add(playCount);
         this.popularity = Math.max(0.0, Math.min(100.0, popularity));
     }
 
     // Getters
     public String getId() {
+        String key = idKey;
+        if (key == null) {
+            key = IdRegistry.SONGS.key(id);
+            idKey = key; // racing callers build equal strings
+        }
+        return key;
+    }
+
+    public int getIntId() {
         return id;
     }
 
@@ -43,8 +62,55 @@ public class Song {
         return title;
     }
 
+    /**
+     * Collation key of the title (root locale), for locale-aware title ordering with
+     * cheap byte-wise comparisons. Computed once and cached.
+     */
+    public CollationKey getTitleCollationKey() {
+        CollationKey key = titleKey;
+        if (key == null) {
+            key = TITLE_COLLATOR.get().getCollationKey(title != null ? title : "");
+            titleKey = key;
+        }
+        return key;
+    }
+
     public Set<String> getArtists() {
-        return new HashSet<>(artists);
+        return new HashSet<>(getArtistNames());
+    }
+
+    /**
+     * Read-only view of the artist names; nothing is copied.
+     */
+    public List<String> getArtistNames() {
+        return new AbstractList<>() {
+            @Override
+            public String get(int index) {
+                return ArtistDictionary.INSTANCE.name(artistIds[index]);
+            }
+
+            @Override
+            public int size() {
+                return artistIds.length;
+            }
+        };
+    }
+
+    public int getArtistCount() {
+        return artistIds.length;
+    }
+
+    /**
+     * The artist id at the given position; ids are sorted ascending.
+     */
+    public int getArtistId(int index) {
+        return artistIds[index];
+    }
+
+    public void forEachArtistId(IntConsumer action) {
+        for (int artistId : artistIds) {
+            action.accept(artistId);
+        }
     }
 
     public Duration getDuration() {
@@ -60,11 +126,30 @@ public class Song {
     }
 
     public Set<Genre> getSecondaryGenres() {
-        return new HashSet<>(secondaryGenres);
+        return Genre.fromMask(secondaryGenreMask);
+    }
+
+    public int getSecondaryGenreMask() {
+        return secondaryGenreMask;
     }
 
+    /**
+     * Mask of the primary and all secondary genres.
+     */
+    public int getGenreMask() {
+        return primaryGenre != null ? secondaryGenreMask | primaryGenre.mask() : secondaryGenreMask;
+    }
+
+    /**
+     * Current play count, saturated to {@code Integer.MAX_VALUE}. Not an atomic snapshot
+     * while other threads are still incrementing.
+     */
     public int getPlayCount() {
-        return playCount;
+        return (int) Math.min(playCount.sum(), Integer.MAX_VALUE);
+    }
+
+    public long getPlayCountLong() {
+        return playCount.sum();
     }
 
     public double getPopularity() {
@@ -72,48 +157,147 @@ public class Song {
     }
 
     // Methods
+    // Safe to call from several threads at once
     public void incrementPlayCount() {
-        playCount++;
+        playCount.increment();
+        for (SongListener listener : listeners) {
+            listener.playCountChanged(this, 1);
+        }
     }
 
     public void incrementPlayCount(int count) {
         if (count > 0) {
-            playCount += count;
+            playCount.add(count);
+            for (SongListener listener : listeners) {
+                listener.playCountChanged(this, count);
+            }
         }
     }
 
     public void updatePopularity(double newPopularity) {
-        this.popularity = Math.max(0.0, Math.min(100.0, newPopularity));
+        double clamped = Math.max(0.0, Math.min(100.0, newPopularity));
+        double previous;
+        synchronized (this) {
+            previous = popularity;
+            popularity = clamped;
+        }
+        if (previous != clamped) {
+            for (SongListener listener : listeners) {
+                listener.popularityChanged(this, previous, clamped);
+            }
+        }
+    }
+
+    /**
+     * Registers a listener for play count and popularity changes. A listener added
+     * n times is notified n times.
+     */
+    public synchronized void addListener(SongListener listener) {
+        Objects.requireNonNull(listener, "listener");
+        SongListener[] current = listeners;
+        SongListener[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = listener;
+        listeners = updated;
+    }
+
+    /**
+     * Removes one registration of the listener; returns false if it was not registered.
+     */
+    public synchronized boolean removeListener(SongListener listener) {
+        SongListener[] current = listeners;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == listener) {
+                SongListener[] updated = new SongListener[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                listeners = updated;
+                return true;
+            }
+        }
+        return false;
     }
 
     public boolean hasArtist(String artist) {
-        return artists.contains(artist);
+        return hasArtist(ArtistDictionary.INSTANCE.lookup(artist));
+    }
+
+    public boolean hasArtist(int artistId) {
+        return artistId >= 0 && Arrays.binarySearch(artistIds, artistId) >= 0;
+    }
+
+    /**
+     * Whether any of this song's artists is in the given sorted array of artist ids.
+     */
+    public boolean hasAnyArtist(int[] sortedArtistIds) {
+        for (int artistId : artistIds) {
+            if (Arrays.binarySearch(sortedArtistIds, artistId) >= 0) {
+                return true;
+            }
+        }
+        return false;
     }
 
     public Set<Genre> getAllGenres() {
-        Set<Genre> allGenres = new HashSet<>(secondaryGenres);
-        allGenres.add(primaryGenre);
+        EnumSet<Genre> allGenres = Genre.fromMask(secondaryGenreMask);
+        if (primaryGenre != null) {
+            allGenres.add(primaryGenre);
+        }
         return allGenres;
     }
 
+    public boolean hasGenre(Genre genre) {
+        return genre != null && (getGenreMask() & genre.mask()) != 0;
+    }
+
+    public boolean hasSecondaryGenre(Genre genre) {
+        return genre != null && (secondaryGenreMask & genre.mask()) != 0;
+    }
+
+    /**
+     * Visits the primary and secondary genres (each once, in Genre declaration order) without allocating.
+     */
+    public void forEachGenre(Consumer<Genre> action) {
+        Genre.forEach(getGenreMask(), action);
+    }
+
+    public void forEachSecondaryGenre(Consumer<Genre> action) {
+        Genre.forEach(secondaryGenreMask, action);
+    }
+
+    private static int[] internArtists(Set<String> artists) {
+        if (artists == null || artists.isEmpty()) {
+            return new int[0];
+        }
+        int[] ids = new int[artists.size()];
+        int count = 0;
+        for (String artist : artists) {
+            if (artist != null) {
+                ids[count++] = ArtistDictionary.INSTANCE.intern(artist);
+            }
+        }
+        ids = Arrays.copyOf(ids, count);
+        Arrays.sort(ids);
+        return ids;
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         Song song = (Song) o;
-        return Objects.equals(id, song.id);
+        return id == song.id;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id);
+        return Integer.hashCode(id);
     }
 
     @Override
     public String toString() {
         return "Song{" +
                 "title='" + title + '\'' +
-                ", artists=" + String.join(", ", artists) +
+                ", artists=" + String.join(", ", getArtistNames()) +
                 ", duration=" + duration.toMinutes() + ":" + duration.toSecondsPart() +
                 ", releaseYear=" + releaseYear +
                 ", primaryGenre=" + primaryGenre +
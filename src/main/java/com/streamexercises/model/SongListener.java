@@ -0,0 +1,20 @@
+package com.streamexercises.model;
+
+/**
+ * Notified when a song's play count or popularity changes, so owners of derived
+ * aggregates (albums, playlists, indexes) can update them in place instead of
+ * recomputing from all songs.
+ *
+ * Callbacks run on the thread that made the change, after it is visible through the
+ * song's getters, and outside any lock held by the song. They must be short and must
+ * not throw. Changes made concurrently may be delivered in either order, so listeners
+ * should apply the deltas rather than assume a sequence.
+ */
+public interface SongListener {
+
+    default void playCountChanged(Song song, long delta) {
+    }
+
+    default void popularityChanged(Song song, double oldPopularity, double newPopularity) {
+    }
+}
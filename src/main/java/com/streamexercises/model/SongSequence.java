@@ -0,0 +1,523 @@
+package com.streamexercises.model;
+
+import com.streamexercises.collection.IntIntHashMap;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Ordered sequence of distinct songs, the storage behind {@link Playlist}.
+ *
+ * Songs are kept in chunks of at most {@value #CHUNK_CAPACITY}. Positional operations
+ * find their chunk through a Fenwick tree over the chunk sizes and then shift within a
+ * single chunk, so they cost O(log n + CHUNK_CAPACITY) instead of O(n). Appends go
+ * straight to the last chunk. Chunk arrays grow on demand, so short playlists stay small.
+ * Splitting or merging chunks, which happens at most once per CHUNK_CAPACITY / 2 edits
+ * of a chunk, rebuilds the tree in O(n / CHUNK_CAPACITY).
+ *
+ * Membership uses an {@link IntIntHashMap} from dense song id to the serial number of
+ * the chunk holding the song, and a second one from serial number to the chunk's current
+ * position. They answer {@link #contains(Song)} in O(1), and a removal by song only has
+ * to search that one chunk.
+ *
+ * {@link #snapshot()} freezes the current version in O(1). Chunks carry an ownership
+ * token and are copied on their next write once a snapshot may see them; the chunk table
+ * is copied once on the first edit after a snapshot. Versions therefore share every chunk
+ * that has not been edited since. Snapshots are immutable and can be read from any thread
+ * while the sequence keeps changing; the sequence itself is not synchronized.
+ */
+public final class SongSequence implements Iterable<Song> {
+
+    static final int CHUNK_CAPACITY = 256;
+    private static final int INITIAL_CHUNK_LENGTH = 8;
+    private static final int MERGE_THRESHOLD = CHUNK_CAPACITY / 2;
+
+    private Chunk[] chunks = new Chunk[4];
+    private int chunkCount;
+    private int size;
+    private int nextSerial;
+    private final IntIntHashMap chunkSerialBySongId = new IntIntHashMap();
+    private final IntIntHashMap chunkIndexBySerial = new IntIntHashMap();
+    private int[] sizeTree = new int[5]; // Fenwick tree over chunk sizes; node i + 1 is chunk i
+    private Object owner = new Object(); // chunks created under another token are shared
+    private boolean chunksShared; // the chunks array is referenced by a snapshot
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean contains(Song song) {
+        return song != null && chunkSerialBySongId.containsKey(song.getIntId());
+    }
+
+    /**
+     * Appends the song unless it is already present.
+     */
+    public boolean add(Song song) {
+        if (song == null || contains(song)) {
+            return false;
+        }
+        Chunk last = chunkCount > 0 ? chunks[chunkCount - 1] : null;
+        if (last == null || last.size == CHUNK_CAPACITY) {
+            last = newChunk(INITIAL_CHUNK_LENGTH);
+            insertChunk(chunkCount, last);
+        } else {
+            last = writable(chunkCount - 1);
+        }
+        last.ensureRoom();
+        last.songs[last.size++] = song;
+        resized(chunkCount - 1, 1);
+        chunkSerialBySongId.put(song.getIntId(), last.serial);
+        size++;
+        return true;
+    }
+
+    /**
+     * Inserts the song at the index (0..size) unless it is already present.
+     */
+    public boolean insert(int index, Song song) {
+        if (index == size) {
+            return add(song);
+        }
+        Objects.checkIndex(index, size);
+        if (song == null || contains(song)) {
+            return false;
+        }
+        int chunkIndex = chunkIndexOfPosition(index);
+        int offset = index - startOf(chunkIndex);
+        Chunk chunk = writable(chunkIndex);
+        if (chunk.size == CHUNK_CAPACITY) {
+            split(chunkIndex);
+            if (offset > chunk.size) {
+                offset -= chunk.size;
+                chunkIndex++;
+                chunk = chunks[chunkIndex];
+            }
+        }
+        chunk.ensureRoom();
+        System.arraycopy(chunk.songs, offset, chunk.songs, offset + 1, chunk.size - offset);
+        chunk.songs[offset] = song;
+        chunk.size++;
+        resized(chunkIndex, 1);
+        chunkSerialBySongId.put(song.getIntId(), chunk.serial);
+        size++;
+        return true;
+    }
+
+    public Song get(int index) {
+        Objects.checkIndex(index, size);
+        int chunkIndex = chunkIndexOfPosition(index);
+        return chunks[chunkIndex].songs[index - startOf(chunkIndex)];
+    }
+
+    public Song removeAt(int index) {
+        Objects.checkIndex(index, size);
+        int chunkIndex = chunkIndexOfPosition(index);
+        return removeFrom(chunkIndex, index - startOf(chunkIndex));
+    }
+
+    public boolean remove(Song song) {
+        if (!contains(song)) {
+            return false;
+        }
+        int chunkIndex = chunkIndexOfSerial(chunkSerialBySongId.get(song.getIntId()));
+        removeFrom(chunkIndex, offsetInChunk(chunks[chunkIndex], song));
+        return true;
+    }
+
+    /**
+     * Position of the song, or -1 if it is not in the sequence.
+     */
+    public int indexOf(Song song) {
+        if (!contains(song)) {
+            return -1;
+        }
+        int chunkIndex = chunkIndexOfSerial(chunkSerialBySongId.get(song.getIntId()));
+        return startOf(chunkIndex) + offsetInChunk(chunks[chunkIndex], song);
+    }
+
+    public void clear() {
+        if (chunksShared) {
+            chunks = new Chunk[4];
+            chunksShared = false;
+        } else {
+            Arrays.fill(chunks, 0, chunkCount, null);
+        }
+        chunkCount = 0;
+        size = 0;
+        chunkSerialBySongId.clear();
+        chunkIndexBySerial.clear();
+        Arrays.fill(sizeTree, 0);
+    }
+
+    public Song[] toArray() {
+        Song[] result = new Song[size];
+        int position = 0;
+        for (int i = 0; i < chunkCount; i++) {
+            System.arraycopy(chunks[i].songs, 0, result, position, chunks[i].size);
+            position += chunks[i].size;
+        }
+        return result;
+    }
+
+    /**
+     * Replaces the order with the given one, which must hold exactly the current songs
+     * (as produced by sorting or shuffling {@link #toArray()}).
+     */
+    void reorder(Song[] ordered) {
+        if (ordered.length != size) {
+            throw new IllegalArgumentException("Reordering must keep the same songs");
+        }
+        clear();
+        for (Song song : ordered) {
+            add(song);
+        }
+    }
+
+    /**
+     * Freezes the current contents in O(1). Later edits of this sequence do not affect
+     * the snapshot, and the snapshot shares all chunks those edits leave untouched.
+     */
+    public Snapshot snapshot() {
+        chunksShared = true;
+        owner = new Object();
+        return new Snapshot(chunks, chunkCount, size);
+    }
+
+    /**
+     * Makes this sequence hold the snapshot's songs, sharing its chunks. Rebuilding the
+     * membership index costs O(n).
+     */
+    public void restore(Snapshot snapshot) {
+        chunks = snapshot.chunks;
+        chunkCount = snapshot.chunkCount;
+        size = snapshot.size;
+        chunksShared = true;
+        owner = new Object();
+        chunkSerialBySongId.clear();
+        chunkIndexBySerial.clear();
+        for (int i = 0; i < chunkCount; i++) {
+            Chunk chunk = chunks[i];
+            nextSerial = Math.max(nextSerial, chunk.serial + 1);
+            for (int j = 0; j < chunk.size; j++) {
+                chunkSerialBySongId.put(chunk.songs[j].getIntId(), chunk.serial);
+            }
+        }
+        reindexChunks(0);
+    }
+
+    @Override
+    public void forEach(Consumer<? super Song> action) {
+        for (int i = 0; i < chunkCount; i++) {
+            Chunk chunk = chunks[i];
+            for (int j = 0; j < chunk.size; j++) {
+                action.accept(chunk.songs[j]);
+            }
+        }
+    }
+
+    @Override
+    public Iterator<Song> iterator() {
+        return new Iterator<>() {
+            private int chunkIndex;
+            private int offset;
+
+            @Override
+            public boolean hasNext() {
+                while (chunkIndex < chunkCount && offset == chunks[chunkIndex].size) {
+                    chunkIndex++;
+                    offset = 0;
+                }
+                return chunkIndex < chunkCount;
+            }
+
+            @Override
+            public Song next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return chunks[chunkIndex].songs[offset++];
+            }
+        };
+    }
+
+    private Song removeFrom(int chunkIndex, int offset) {
+        Chunk chunk = writable(chunkIndex);
+        Song removed = chunk.songs[offset];
+        System.arraycopy(chunk.songs, offset + 1, chunk.songs, offset, chunk.size - offset - 1);
+        chunk.songs[--chunk.size] = null;
+        resized(chunkIndex, -1);
+        chunkSerialBySongId.remove(removed.getIntId(), 0);
+        size--;
+        if (chunk.size == 0) {
+            removeChunk(chunkIndex);
+        } else if (chunkIndex + 1 < chunkCount && chunk.size + chunks[chunkIndex + 1].size <= MERGE_THRESHOLD) {
+            mergeWithNext(chunkIndex);
+        } else if (chunkIndex > 0 && chunk.size + chunks[chunkIndex - 1].size <= MERGE_THRESHOLD) {
+            mergeWithNext(chunkIndex - 1);
+        }
+        return removed;
+    }
+
+    // Moves the upper half of a full chunk into a new chunk right after it
+    private void split(int chunkIndex) {
+        Chunk chunk = writable(chunkIndex);
+        Chunk upper = newChunk(CHUNK_CAPACITY);
+        int half = chunk.size / 2;
+        upper.size = chunk.size - half;
+        System.arraycopy(chunk.songs, half, upper.songs, 0, upper.size);
+        Arrays.fill(chunk.songs, half, chunk.size, null);
+        chunk.size = half;
+        resized(chunkIndex, -upper.size);
+        for (int i = 0; i < upper.size; i++) {
+            chunkSerialBySongId.put(upper.songs[i].getIntId(), upper.serial);
+        }
+        insertChunk(chunkIndex + 1, upper);
+    }
+
+    private void mergeWithNext(int chunkIndex) {
+        Chunk chunk = writable(chunkIndex);
+        Chunk next = chunks[chunkIndex + 1];
+        for (int i = 0; i < next.size; i++) {
+            chunkSerialBySongId.put(next.songs[i].getIntId(), chunk.serial);
+        }
+        if (chunk.songs.length < chunk.size + next.size) {
+            chunk.songs = Arrays.copyOf(chunk.songs, CHUNK_CAPACITY);
+        }
+        System.arraycopy(next.songs, 0, chunk.songs, chunk.size, next.size);
+        chunk.size += next.size;
+        removeChunk(chunkIndex + 1);
+    }
+
+    private Chunk newChunk(int length) {
+        return new Chunk(nextSerial++, new Song[length], 0, owner);
+    }
+
+    // The chunk at the index, copied first if a snapshot may still see it
+    private Chunk writable(int chunkIndex) {
+        unshareChunks();
+        Chunk chunk = chunks[chunkIndex];
+        if (chunk.owner != owner) {
+            chunk = new Chunk(chunk.serial, chunk.songs.clone(), chunk.size, owner);
+            chunks[chunkIndex] = chunk;
+        }
+        return chunk;
+    }
+
+    private void unshareChunks() {
+        if (chunksShared) {
+            chunks = chunks.clone();
+            chunksShared = false;
+        }
+    }
+
+    private void insertChunk(int chunkIndex, Chunk chunk) {
+        unshareChunks();
+        if (chunkCount == chunks.length) {
+            chunks = Arrays.copyOf(chunks, chunks.length * 2);
+        }
+        System.arraycopy(chunks, chunkIndex, chunks, chunkIndex + 1, chunkCount - chunkIndex);
+        chunks[chunkIndex] = chunk;
+        chunkCount++;
+        if (chunkIndex == chunkCount - 1) {
+            appendToTree(chunk);
+        } else {
+            reindexChunks(chunkIndex);
+        }
+    }
+
+    private void removeChunk(int chunkIndex) {
+        unshareChunks();
+        chunkIndexBySerial.remove(chunks[chunkIndex].serial, 0);
+        System.arraycopy(chunks, chunkIndex + 1, chunks, chunkIndex, chunkCount - chunkIndex - 1);
+        chunks[--chunkCount] = null;
+        reindexChunks(chunkIndex);
+    }
+
+    // Rebuilds the size tree and the positions of the chunks from the index on, in O(chunkCount)
+    private void reindexChunks(int fromChunk) {
+        if (sizeTree.length <= chunkCount) {
+            sizeTree = new int[chunks.length + 1];
+        } else {
+            Arrays.fill(sizeTree, 0);
+        }
+        for (int node = 1; node <= chunkCount; node++) {
+            sizeTree[node] += chunks[node - 1].size;
+            int parent = node + (node & -node);
+            if (parent <= chunkCount) {
+                sizeTree[parent] += sizeTree[node];
+            }
+        }
+        for (int i = fromChunk; i < chunkCount; i++) {
+            chunkIndexBySerial.put(chunks[i].serial, i);
+        }
+    }
+
+    // Adds the node of a chunk just appended as the last one, in O(log chunkCount)
+    private void appendToTree(Chunk chunk) {
+        int node = chunkCount;
+        if (sizeTree.length <= node) {
+            sizeTree = Arrays.copyOf(sizeTree, chunks.length + 1);
+        }
+        sizeTree[node] = startOf(node - 1) - startOf(node - (node & -node)) + chunk.size;
+        chunkIndexBySerial.put(chunk.serial, node - 1);
+    }
+
+    private void resized(int chunkIndex, int delta) {
+        for (int node = chunkIndex + 1; node <= chunkCount; node += node & -node) {
+            sizeTree[node] += delta;
+        }
+    }
+
+    private int chunkIndexOfPosition(int index) {
+        // Descend the tree to the last chunk that starts at or before the index
+        int chunkIndex = 0;
+        int remaining = index;
+        for (int step = Integer.highestOneBit(chunkCount); step > 0; step >>= 1) {
+            int node = chunkIndex + step;
+            if (node <= chunkCount && sizeTree[node] <= remaining) {
+                chunkIndex = node;
+                remaining -= sizeTree[node];
+            }
+        }
+        if (chunkIndex >= chunkCount) {
+            throw new IndexOutOfBoundsException(index);
+        }
+        return chunkIndex;
+    }
+
+    private int startOf(int chunkIndex) {
+        int start = 0;
+        for (int node = chunkIndex; node > 0; node -= node & -node) {
+            start += sizeTree[node];
+        }
+        return start;
+    }
+
+    private int chunkIndexOfSerial(int serial) {
+        int chunkIndex = chunkIndexBySerial.getOrDefault(serial, -1);
+        if (chunkIndex < 0) {
+            throw new IllegalStateException("No chunk with serial " + serial);
+        }
+        return chunkIndex;
+    }
+
+    private static int offsetInChunk(Chunk chunk, Song song) {
+        int songId = song.getIntId();
+        for (int i = 0; i < chunk.size; i++) {
+            if (chunk.songs[i].getIntId() == songId) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("Song " + song.getId() + " is not in its indexed chunk");
+    }
+
+    private static final class Chunk {
+        final int serial; // kept by copies, so the membership index stays valid
+        final Object owner;
+        Song[] songs;
+        int size;
+
+        Chunk(int serial, Song[] songs, int size, Object owner) {
+            this.serial = serial;
+            this.songs = songs;
+            this.size = size;
+            this.owner = owner;
+        }
+
+        // Room for one more song; callers never exceed CHUNK_CAPACITY
+        void ensureRoom() {
+            if (size == songs.length) {
+                songs = Arrays.copyOf(songs, Math.min(CHUNK_CAPACITY, songs.length * 2));
+            }
+        }
+    }
+
+    /**
+     * Immutable version of a {@link SongSequence}. Positional reads binary-search chunk
+     * start offsets that are computed on first use.
+     */
+    public static final class Snapshot extends AbstractList<Song> {
+        private final Chunk[] chunks;
+        private final int chunkCount;
+        private final int size;
+        private volatile int[] chunkStarts; // lazily computed; racing threads compute the same array
+
+        private Snapshot(Chunk[] chunks, int chunkCount, int size) {
+            this.chunks = chunks;
+            this.chunkCount = chunkCount;
+            this.size = size;
+        }
+
+        @Override
+        public Song get(int index) {
+            Objects.checkIndex(index, size);
+            int[] starts = chunkStarts();
+            int chunkIndex = Arrays.binarySearch(starts, 0, chunkCount, index);
+            if (chunkIndex < 0) {
+                chunkIndex = -chunkIndex - 2;
+            }
+            return chunks[chunkIndex].songs[index - starts[chunkIndex]];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public void forEach(Consumer<? super Song> action) {
+            for (int i = 0; i < chunkCount; i++) {
+                Chunk chunk = chunks[i];
+                for (int j = 0; j < chunk.size; j++) {
+                    action.accept(chunk.songs[j]);
+                }
+            }
+        }
+
+        @Override
+        public Iterator<Song> iterator() {
+            return new Iterator<>() {
+                private int chunkIndex;
+                private int offset;
+
+                @Override
+                public boolean hasNext() {
+                    while (chunkIndex < chunkCount && offset == chunks[chunkIndex].size) {
+                        chunkIndex++;
+                        offset = 0;
+                    }
+                    return chunkIndex < chunkCount;
+                }
+
+                @Override
+                public Song next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+                    return chunks[chunkIndex].songs[offset++];
+                }
+            };
+        }
+
+        private int[] chunkStarts() {
+            int[] starts = chunkStarts;
+            if (starts == null) {
+                starts = new int[chunkCount];
+                for (int i = 1; i < chunkCount; i++) {
+                    starts[i] = starts[i - 1] + chunks[i - 1].size;
+                }
+                chunkStarts = starts;
+            }
+            return starts;
+        }
+    }
+}
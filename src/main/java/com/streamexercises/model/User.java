@@ -1,5 +1,9 @@
 package com.streamexercises.model;
 
+import com.streamexercises.collection.IntIntConsumer;
+import com.streamexercises.collection.TopKSelector;
+
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.*;
 
@@ -7,47 +11,64 @@ import java.util.*;
  * Represents a user of the music streaming service
  */
 public class User {
-    private final String id;
+    private final int id; // dense id allocated by IdRegistry.USERS
+    private final String unregisteredId; // id string that could not be registered (see the test constructor), else null
     private final String username;
     private final String email;
     private final LocalDate joinDate;
-    private final Set<Genre> favoriteGenres;
-    private final Map<String, Integer> songPlayCounts; // Maps songId to play count
+    private int favoriteGenreMask; // bit per Genre, see Genre.mask()
+    private final PlayCountStore songPlayCounts; // Maps songId to play count; safe for concurrent writers
     private final Set<Album> favoriteAlbums;
     private final String country;
-    private boolean isPremium;
-    private List<String> listeningHistory; // Ordered list of song IDs representing listening sequence
+    private volatile boolean isPremium;
+    private final ListeningHistory listeningHistory; // Ordered, compact sequence of listened song ids
+    private volatile UserListener[] listeners = NO_LISTENERS; // copy-on-write
+
+    private static final UserListener[] NO_LISTENERS = new UserListener[0];
+
+    /** Epoch second given to imported listens whose time is not known. */
+    public static final long UNKNOWN_LISTEN_TIME = 0L;
 
     public User(String username, String email, LocalDate joinDate, Set<Genre> favoriteGenres, 
                 String country, boolean isPremium) {
-        this.id = UUID.randomUUID().toString();
+        this.id = IdRegistry.USERS.allocate();
+        this.unregisteredId = null;
         this.username = username;
         this.email = email;
         this.joinDate = joinDate;
-        this.favoriteGenres = favoriteGenres != null ? new HashSet<>(favoriteGenres) : new HashSet<>();
-        this.songPlayCounts = new HashMap<>();
+        this.favoriteGenreMask = Genre.maskOf(favoriteGenres);
+        this.songPlayCounts = new PlayCountStore();
         this.favoriteAlbums = new HashSet<>();
         this.country = country;
         this.isPremium = isPremium;
-        this.listeningHistory = new ArrayList<>();
+        this.listeningHistory = new ListeningHistory();
     }
 
-    // Constructor overload for simpler test cases (used in tests)
+    // Constructor overload for simpler test cases (used in tests). The id becomes the user's
+    // external key; an id in the reserved "user:<n>" form that was never issued cannot be
+    // registered, so the user gets a fresh dense id and keeps the string itself.
     public User(String id, String username, boolean isPremium) {
-        this.id = id;
+        IdRegistry registry = IdRegistry.USERS;
+        int known = registry.resolve(id);
+        boolean registrable = known != IdRegistry.NO_ID || (id != null && !registry.isDerivedKey(id));
+        this.id = known != IdRegistry.NO_ID ? known : registrable ? registry.intern(id) : registry.allocate();
+        this.unregisteredId = registrable ? null : id;
         this.username = username;
         this.email = username + "@example.com";
         this.joinDate = LocalDate.now();
-        this.favoriteGenres = new HashSet<>();
-        this.songPlayCounts = new HashMap<>();
+        this.songPlayCounts = new PlayCountStore();
         this.favoriteAlbums = new HashSet<>();
         this.country = "Unknown";
         this.isPremium = isPremium;
-        this.listeningHistory = new ArrayList<>();
+        this.listeningHistory = new ListeningHistory();
     }
 
     // Getters
     public String getId() {
+        return unregisteredId != null ? unregisteredId : IdRegistry.USERS.key(id);
+    }
+
+    public int getIntId() {
         return id;
     }
 
@@ -64,11 +85,60 @@ public class User {
     }
 
     public Set<Genre> getFavoriteGenres() {
-        return Collections.unmodifiableSet(favoriteGenres);
+        return Collections.unmodifiableSet(Genre.fromMask(favoriteGenreMask));
+    }
+
+    public int getFavoriteGenreMask() {
+        return favoriteGenreMask;
     }
 
+    public boolean hasFavoriteGenre(Genre genre) {
+        return genre != null && (favoriteGenreMask & genre.mask()) != 0;
+    }
+
+    /**
+     * Consistent snapshot of the per-song play counts; later plays are not reflected.
+     */
     public Map<String, Integer> getSongPlayCounts() {
-        return Collections.unmodifiableMap(songPlayCounts);
+        return songPlayCounts.snapshot();
+    }
+
+    public int getPlayCount(String songId) {
+        return songPlayCounts.get(songId);
+    }
+
+    public int getPlayCount(int songId) {
+        return songPlayCounts.get(songId);
+    }
+
+    public boolean hasPlayed(int songId) {
+        return songPlayCounts.get(songId) > 0;
+    }
+
+    public int getPlayedSongCount() {
+        return songPlayCounts.size();
+    }
+
+    /**
+     * Visits every (dense song id, play count) pair without boxing.
+     */
+    public void forEachSongPlayCount(IntIntConsumer action) {
+        songPlayCounts.forEach(action);
+    }
+
+    /**
+     * Dense ids of the {@code k} most played songs, most played first.
+     */
+    public int[] getTopPlayedSongIds(int k) {
+        return songPlayCounts.topSongIds(k);
+    }
+
+    /**
+     * Allocation-free form of {@link #getTopPlayedSongIds(int)} for batch jobs that reuse
+     * one selector and buffer per thread; returns the number of ids written to {@code target}.
+     */
+    public int getTopPlayedSongIds(TopKSelector selector, int[] target) {
+        return songPlayCounts.topSongIds(selector, target);
     }
 
     public Set<Album> getFavoriteAlbums() {
@@ -84,36 +154,133 @@ public class User {
     }
 
     public void setPremium(boolean premium) {
-        isPremium = premium;
+        boolean changed;
+        synchronized (this) {
+            changed = isPremium != premium;
+            isPremium = premium;
+        }
+        if (changed) {
+            for (UserListener listener : listeners) {
+                listener.premiumChanged(this);
+            }
+        }
+    }
+
+    /**
+     * Registers a listener for play count and premium status changes. A listener added
+     * n times is notified n times.
+     */
+    public synchronized void addListener(UserListener listener) {
+        Objects.requireNonNull(listener, "listener");
+        UserListener[] current = listeners;
+        UserListener[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = listener;
+        listeners = updated;
+    }
+
+    /**
+     * Removes one registration of the listener; returns false if it was not registered.
+     */
+    public synchronized boolean removeListener(UserListener listener) {
+        UserListener[] current = listeners;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == listener) {
+                UserListener[] updated = new UserListener[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                listeners = updated;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Copy of the listening history as song id strings. Sequence analytics should walk
+     * {@link #listeningHistoryCursor()} instead, which materializes nothing.
+     */
+    public synchronized List<String> getListeningHistory() {
+        List<String> songIds = new ArrayList<>(listeningHistory.size());
+        ListeningHistory.Cursor cursor = listeningHistory.cursor();
+        while (cursor.advance()) {
+            songIds.add(cursor.isResolved() ? IdRegistry.SONGS.key(cursor.songId()) : cursor.unresolvedSongId());
+        }
+        return Collections.unmodifiableList(songIds);
     }
 
-    public List<String> getListeningHistory() {
-        return Collections.unmodifiableList(listeningHistory);
+    public synchronized int getListeningHistorySize() {
+        return listeningHistory.size();
     }
 
-    public void setListeningHistory(List<String> listeningHistory) {
-        this.listeningHistory = listeningHistory != null ? 
-            new ArrayList<>(listeningHistory) : new ArrayList<>();
+    /**
+     * Cursor over the dense song ids of the history as of this call, oldest first. Listens
+     * recorded afterwards are not visible, so it may be walked while other threads keep
+     * recording listens for this user. Listens of song ids the registry does not know read
+     * as {@link IdRegistry#NO_ID}.
+     */
+    public synchronized ListeningHistory.Cursor listeningHistoryCursor() {
+        return listeningHistory.cursor();
+    }
+
+    /**
+     * Replaces the history with listens whose time is not known. They are stamped
+     * {@link #UNKNOWN_LISTEN_TIME}, so they count as older than any listen recorded later
+     * and are the first to go when the history is bounded by age. Every entry is kept in
+     * order, including nulls and song ids unknown to {@link IdRegistry#SONGS}; those are
+     * not registered but kept as given (see {@link ListeningHistory#appendUnresolved}).
+     */
+    public synchronized void setListeningHistory(List<String> listeningHistory) {
+        this.listeningHistory.clear();
+        if (listeningHistory != null) {
+            for (String songId : listeningHistory) {
+                int id = IdRegistry.SONGS.resolve(songId);
+                if (id != IdRegistry.NO_ID) {
+                    this.listeningHistory.append(id, UNKNOWN_LISTEN_TIME);
+                } else {
+                    this.listeningHistory.appendUnresolved(songId, UNKNOWN_LISTEN_TIME);
+                }
+            }
+        }
+    }
+
+    /**
+     * Bounds the history by entry count ({@link ListeningHistory#UNBOUNDED} for none) and
+     * by age relative to the newest listen (null for none); older listens are dropped.
+     * Play counts are not affected.
+     */
+    public synchronized void limitListeningHistory(int maxEntries, Duration maxAge) {
+        listeningHistory.setBounds(maxEntries, maxAge);
     }
 
     // Methods
     public void addFavoriteGenre(Genre genre) {
         if (genre != null) {
-            favoriteGenres.add(genre);
+            favoriteGenreMask |= genre.mask();
         }
     }
 
     public void removeFavoriteGenre(Genre genre) {
-        favoriteGenres.remove(genre);
+        if (genre != null) {
+            favoriteGenreMask &= ~genre.mask();
+        }
     }
 
+    // Play counting may be called from several ingest threads at once
     public void playSong(String songId) {
-        songPlayCounts.merge(songId, 1, Integer::sum);
+        playSong(songId, 1);
     }
 
     public void playSong(String songId, int count) {
+        if (songId != null && count > 0) {
+            songPlayCounts.add(songId, count);
+            playCountsChanged();
+        }
+    }
+
+    public void playSong(int songId, int count) {
         if (count > 0) {
-            songPlayCounts.merge(songId, count, Integer::sum);
+            songPlayCounts.add(songId, count);
+            playCountsChanged();
         }
     }
 
@@ -128,22 +295,41 @@ public class User {
     }
 
     public int getTotalPlayCount() {
-        return songPlayCounts.values().stream()
-                .mapToInt(Integer::intValue)
-                .sum();
+        return songPlayCounts.total();
     }
 
     public Optional<String> getMostPlayedSongId() {
-        return songPlayCounts.entrySet().stream()
-                .max(Map.Entry.comparingByValue())
-                .map(Map.Entry::getKey);
+        return songPlayCounts.mostPlayed();
     }
 
+    /**
+     * Records a listen now. A song id unknown to {@link IdRegistry#SONGS} is not
+     * registered: the history keeps it as given and the play is counted under the string.
+     */
     public void recordSongListen(String songId) {
-        if (songId != null && !songId.isBlank()) {
-            listeningHistory.add(songId);
-            playSong(songId); // Also increment play count
+        if (songId == null || songId.isBlank()) {
+            return;
         }
+        int id = IdRegistry.SONGS.resolve(songId);
+        if (id != IdRegistry.NO_ID) {
+            recordSongListen(id);
+        } else {
+            synchronized (this) {
+                listeningHistory.appendUnresolved(songId, System.currentTimeMillis() / 1000);
+            }
+            playSong(songId, 1);
+        }
+    }
+
+    public void recordSongListen(int songId) {
+        recordSongListen(songId, System.currentTimeMillis() / 1000);
+    }
+
+    public void recordSongListen(int songId, long epochSecond) {
+        synchronized (this) {
+            listeningHistory.append(songId, epochSecond);
+        }
+        playSong(songId, 1); // Also increment play count
     }
 
     public void updateTotalPlayCount() {
@@ -153,8 +339,14 @@ public class User {
 
     public void setSongPlayCounts(Map<String, Integer> playCounts) {
         if (playCounts != null) {
-            songPlayCounts.clear();
-            songPlayCounts.putAll(playCounts);
+            songPlayCounts.replaceAll(playCounts);
+            playCountsChanged();
+        }
+    }
+
+    private void playCountsChanged() {
+        for (UserListener listener : listeners) {
+            listener.playCountChanged(this);
         }
     }
 
@@ -163,12 +355,12 @@ public class User {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         User user = (User) o;
-        return Objects.equals(id, user.id);
+        return id == user.id;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(id);
+        return Integer.hashCode(id);
     }
 
     @Override
@@ -0,0 +1,20 @@
+package com.streamexercises.model;
+
+/**
+ * Notified when a user's play counts or subscription status change, so live aggregates
+ * over many users (such as premium/free play statistics) can update one user at a time
+ * instead of re-reading every user.
+ *
+ * Callbacks run on the thread that made the change, after it is visible through the
+ * user's getters, and outside any lock held by the user. They must be short and must
+ * not throw. Concurrent changes may be delivered in either order, so listeners should
+ * re-read the user's current state rather than rely on the sequence of calls.
+ */
+public interface UserListener {
+
+    default void playCountChanged(User user) {
+    }
+
+    default void premiumChanged(User user) {
+    }
+}
@@ -0,0 +1,345 @@
+package com.streamexercises.service;
+
+import com.streamexercises.collection.IntSorts;
+import com.streamexercises.model.Album;
+import com.streamexercises.model.Genre;
+import com.streamexercises.model.Song;
+import com.streamexercises.model.SongListener;
+
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Answers "albums released after a year, with at least a given average popularity, that
+ * belong to or contain a genre" without scanning every album and song.
+ *
+ * Three indexes over the albums, addressed by their position in the constructor's list:
+ * - release year: positions sorted by year, so "after year" is a suffix found by binary search
+ * - genre: one bitmap per genre of the albums whose primary genre is it or that contain a
+ *   song with it as primary genre (plus one for "no genre")
+ * - popularity: positions sorted by descending average popularity, so "at least" is a prefix
+ *
+ * A query walks the smallest of the three candidate sets and checks the other conditions
+ * per candidate in constant time. Results keep the order of the constructor's list.
+ *
+ * Years, genres and track lists are captured when the index is built. Average popularity
+ * follows the indexed songs through a {@link SongListener} per album: a popularity change
+ * marks the album as changed, and queries read a changed album's current average instead
+ * of the popularity order's, and walk the changed albums besides the order's prefix. Once
+ * {@value #CHANGES_BEFORE_REBUILD} albums have changed, the order is rebuilt on
+ * {@link BackgroundRebuilds#EXECUTOR} and published for later queries, so neither queries
+ * nor changing threads ever sort. Queries are safe from many threads. The listeners keep
+ * the index reachable from its songs until {@link #close()}.
+ */
+public final class AlbumIndex {
+
+    private static final int NO_GENRE = Genre.values().length; // bitmap slot for null genres
+    private static final int NO_YEAR = Integer.MIN_VALUE;
+
+    // Changed albums kept beside the popularity order before it is rebuilt
+    static final int CHANGES_BEFORE_REBUILD = 64;
+    private static final ThreadLocal<BitSet> RESULT_SCRATCH = ThreadLocal.withInitial(BitSet::new);
+
+    private final List<Album> albums;
+    private final int[] years; // by position
+    private final int[] positionsByYear;
+    private final int[] sortedYears; // years[positionsByYear[i]]
+    private final BitSet[] albumsWithGenre;
+    private final int[] genreCounts; // cardinality of each bitmap
+    private final AlbumTracker[] trackers; // by position
+    private final Object changeLock = new Object(); // serializes writers of popularity
+    private volatile Popularity popularity;
+    private boolean rebuildScheduled; // guarded by changeLock
+    private boolean closed; // guarded by changeLock
+
+    public AlbumIndex(List<Album> albums) {
+        this.albums = List.copyOf(albums);
+        int count = this.albums.size();
+
+        this.years = new int[count];
+        this.trackers = new AlbumTracker[count];
+        this.albumsWithGenre = new BitSet[NO_GENRE + 1];
+        for (int slot = 0; slot <= NO_GENRE; slot++) {
+            albumsWithGenre[slot] = new BitSet(count);
+        }
+        int[] positions = new int[count];
+        for (int position = 0; position < count; position++) {
+            Album album = this.albums.get(position);
+            Year releaseYear = album.getReleaseYear();
+            years[position] = releaseYear != null ? releaseYear.getValue() : NO_YEAR;
+            positions[position] = position;
+            albumsWithGenre[slot(album.getPrimaryGenre())].set(position);
+            trackers[position] = new AlbumTracker(position);
+            for (Song song : album.getSongs()) {
+                albumsWithGenre[slot(song.getPrimaryGenre())].set(position);
+            }
+        }
+        this.genreCounts = new int[NO_GENRE + 1];
+        for (int slot = 0; slot <= NO_GENRE; slot++) {
+            genreCounts[slot] = albumsWithGenre[slot].cardinality();
+        }
+        IntSorts.stableSort(positions, (a, b) -> Integer.compare(years[a], years[b]));
+        this.positionsByYear = positions;
+        this.sortedYears = new int[count];
+        for (int i = 0; i < count; i++) {
+            sortedYears[i] = years[positions[i]];
+        }
+        synchronized (changeLock) {
+            // Listen before reading: changes from here on wait for the lock and mark their album after the build
+            for (int position = 0; position < count; position++) {
+                for (Song song : this.albums.get(position).getSongs()) {
+                    song.addListener(trackers[position]);
+                }
+            }
+            this.popularity = new Popularity(new PopularityOrder(this.albums));
+        }
+    }
+
+    /**
+     * Stops following popularity changes of the indexed songs. Later queries use the
+     * average popularities as of the call.
+     */
+    public void close() {
+        for (int position = 0; position < albums.size(); position++) {
+            for (Song song : albums.get(position).getSongs()) {
+                song.removeListener(trackers[position]);
+            }
+        }
+        PopularityOrder order = new PopularityOrder(albums);
+        synchronized (changeLock) {
+            closed = true;
+            popularity = new Popularity(order);
+        }
+    }
+
+    public int size() {
+        return albums.size();
+    }
+
+    /**
+     * Albums released strictly after {@code yearAfter}, with an average popularity of at
+     * least {@code minAvgPopularity}, whose primary genre is {@code genre} or that contain
+     * a song with that primary genre. A null genre matches albums or songs without one.
+     */
+    public List<Album> find(Year yearAfter, double minAvgPopularity, Genre genre) {
+        Objects.requireNonNull(yearAfter, "yearAfter");
+        Popularity popularity = this.popularity;
+        BitSet genreMatches = albumsWithGenre[slot(genre)];
+        int genreCount = genreCounts[slot(genre)];
+        int threshold = yearAfter.getValue();
+
+        int yearFrom = firstIndexAfter(sortedYears, threshold);
+        int yearCount = positionsByYear.length - yearFrom;
+        int orderCount = popularity.order.countAtLeast(minAvgPopularity);
+        int changedCount = popularity.changedCount;
+        int[] changed = popularity.changed; // read after the count: entries below it are written
+
+        BitSet result = RESULT_SCRATCH.get();
+        if (genreCount <= yearCount && genreCount <= orderCount + changedCount) {
+            for (int position = genreMatches.nextSetBit(0); position >= 0;
+                 position = genreMatches.nextSetBit(position + 1)) {
+                if (years[position] > threshold && atLeast(popularity, position, minAvgPopularity)) {
+                    result.set(position);
+                }
+            }
+        } else if (yearCount <= orderCount + changedCount) {
+            for (int i = yearFrom; i < positionsByYear.length; i++) {
+                int position = positionsByYear[i];
+                if (genreMatches.get(position) && atLeast(popularity, position, minAvgPopularity)) {
+                    result.set(position);
+                }
+            }
+        } else {
+            // A changed album may have left the prefix or joined it since the order was built
+            for (int i = 0; i < orderCount; i++) {
+                int position = popularity.order.positions[i];
+                if (genreMatches.get(position) && years[position] > threshold
+                        && atLeast(popularity, position, minAvgPopularity)) {
+                    result.set(position);
+                }
+            }
+            for (int i = 0; i < changedCount; i++) {
+                int position = changed[i];
+                if (genreMatches.get(position) && years[position] > threshold
+                        && atLeast(popularity, position, minAvgPopularity)) {
+                    result.set(position);
+                }
+            }
+        }
+
+        List<Album> matches = new ArrayList<>(result.cardinality());
+        for (int position = result.nextSetBit(0); position >= 0; position = result.nextSetBit(position + 1)) {
+            matches.add(albums.get(position));
+        }
+        result.clear();
+        return matches;
+    }
+
+    // Albums changed since the popularity order was built, for tests
+    int pendingChanges() {
+        return popularity.changedCount;
+    }
+
+    private boolean atLeast(Popularity popularity, int position, double minimum) {
+        return popularity.isChanged(position)
+                ? albums.get(position).getAveragePopularity() >= minimum
+                : popularity.order.averages[position] >= minimum;
+    }
+
+    private void onPopularityChanged(int position) {
+        synchronized (changeLock) {
+            if (!closed && popularity.markChanged(position)) {
+                scheduleRebuildIfDue();
+            }
+        }
+    }
+
+    // Caller holds changeLock
+    private void scheduleRebuildIfDue() {
+        if (!rebuildScheduled && popularity.changedCount >= CHANGES_BEFORE_REBUILD) {
+            rebuildScheduled = true;
+            BackgroundRebuilds.EXECUTOR.execute(this::rebuild);
+        }
+    }
+
+    // Albums changing after the marked count may be read before or after their change, so they stay marked
+    private void rebuild() {
+        int rebuiltChanges;
+        synchronized (changeLock) {
+            rebuiltChanges = popularity.changedCount;
+        }
+        PopularityOrder order = new PopularityOrder(albums);
+        synchronized (changeLock) {
+            rebuildScheduled = false;
+            if (closed) {
+                return;
+            }
+            Popularity current = popularity;
+            Popularity next = new Popularity(order);
+            for (int i = rebuiltChanges; i < current.changedCount; i++) {
+                next.markChanged(current.changed[i]);
+            }
+            popularity = next;
+            scheduleRebuildIfDue();
+        }
+    }
+
+    // Index of the first year greater than the given one
+    private static int firstIndexAfter(int[] sorted, int year) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] <= year) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int slot(Genre genre) {
+        return genre != null ? genre.ordinal() : NO_GENRE;
+    }
+
+    /**
+     * Average popularities as of a rebuild, with positions by descending value.
+     */
+    private static final class PopularityOrder {
+        final double[] averages; // by position
+        final int[] positions;
+        final double[] sortedAverages; // descending
+
+        PopularityOrder(List<Album> albums) {
+            int count = albums.size();
+            this.averages = new double[count];
+            int[] order = new int[count];
+            for (int position = 0; position < count; position++) {
+                averages[position] = albums.get(position).getAveragePopularity();
+                order[position] = position;
+            }
+            IntSorts.stableSort(order, (a, b) -> Double.compare(averages[b], averages[a]));
+            this.positions = order;
+            this.sortedAverages = new double[count];
+            for (int i = 0; i < count; i++) {
+                sortedAverages[i] = averages[order[i]];
+            }
+        }
+
+        // Length of the prefix whose averages are >= minimum
+        int countAtLeast(double minimum) {
+            int low = 0;
+            int high = sortedAverages.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (sortedAverages[mid] >= minimum) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * A popularity order and the albums changed since it was built. Albums are marked by
+     * writers holding changeLock; the list only grows, so readers take its count first
+     * and never see a copy shorter than that.
+     */
+    private static final class Popularity {
+        final PopularityOrder order;
+        private final AtomicLongArray changedBits; // one bit per position
+        volatile int[] changed = new int[CHANGES_BEFORE_REBUILD];
+        volatile int changedCount;
+
+        Popularity(PopularityOrder order) {
+            this.order = order;
+            this.changedBits = new AtomicLongArray((order.averages.length + 63) >>> 6);
+        }
+
+        boolean isChanged(int position) {
+            return (changedBits.get(position >>> 6) & (1L << position)) != 0;
+        }
+
+        // False if the album was already marked
+        boolean markChanged(int position) {
+            long bits = changedBits.get(position >>> 6);
+            if ((bits & (1L << position)) != 0) {
+                return false;
+            }
+            changedBits.set(position >>> 6, bits | (1L << position));
+            int count = changedCount;
+            int[] list = changed;
+            if (count == list.length) {
+                list = Arrays.copyOf(list, count * 2);
+                changed = list;
+            }
+            list[count] = position;
+            changedCount = count + 1;
+            return true;
+        }
+    }
+
+    /**
+     * Marks one album as changed when the popularity of one of its songs changes.
+     */
+    private final class AlbumTracker implements SongListener {
+        private final int position;
+
+        AlbumTracker(int position) {
+            this.position = position;
+        }
+
+        @Override
+        public void popularityChanged(Song song, double oldPopularity, double newPopularity) {
+            onPopularityChanged(position);
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.streamexercises.service;
+
+import com.streamexercises.model.ArtistDictionary;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+/**
+ * Clusters and influence ranks over a {@link CollaborationGraph}: connected components,
+ * degree and weighted-degree centrality, and PageRank.
+ *
+ * Works directly on the graph's compressed rows (one int array each for offsets,
+ * neighbors and shared-song weights), captured when the analytics are created; songs
+ * added to the graph afterwards are not seen. Artists are indexed by their
+ * {@link ArtistDictionary} id. Artists without collaborations have degree 0, form
+ * their own single-artist component and get no PageRank.
+ *
+ * Every pass is a loop over artists on the common fork-join pool (via parallel
+ * streams), and each artist's result is written only by the task that owns it:
+ * - components use a lock-free union-find whose roots are always the lowest id
+ * - PageRank pulls from neighbors, so no two tasks write the same rank
+ * Results do not depend on the number of threads, except PageRank's last digits.
+ */
+public final class ArtistGraphAnalytics {
+
+    public static final double DEFAULT_DAMPING = 0.85;
+    public static final int DEFAULT_MAX_ITERATIONS = 50;
+    public static final double DEFAULT_TOLERANCE = 1e-9;
+
+    private final int artistCount;
+    private final int[] offsets;
+    private final int[] neighbors;
+    private final int[] weights;
+
+    // Computed on first use; recomputing after a racing first use gives the same arrays
+    private volatile int[] componentLabels;
+    private volatile long[] weightedDegrees;
+
+    /**
+     * Captures the graph's current rows, folding in pending songs first.
+     */
+    public ArtistGraphAnalytics(CollaborationGraph graph) {
+        graph.compact();
+        this.artistCount = graph.rowCount();
+        this.offsets = graph.rowOffsets();
+        this.neighbors = graph.rowNeighbors();
+        this.weights = graph.rowWeights();
+    }
+
+    /**
+     * Number of artist ids covered: one past the highest id with a collaboration.
+     */
+    public int artistCount() {
+        return artistCount;
+    }
+
+    public int degree(int artist) {
+        return artist >= 0 && artist < artistCount ? offsets[artist + 1] - offsets[artist] : 0;
+    }
+
+    /**
+     * Distinct collaborators per artist id.
+     */
+    public int[] degrees() {
+        int[] degrees = new int[artistCount];
+        artists().forEach(artist -> degrees[artist] = offsets[artist + 1] - offsets[artist]);
+        return degrees;
+    }
+
+    /**
+     * Songs shared with collaborators per artist id, counted once per collaborator.
+     */
+    public long[] weightedDegrees() {
+        return strengths().clone();
+    }
+
+    /**
+     * The lowest artist id in each artist's connected component, per artist id.
+     */
+    public int[] componentLabels() {
+        return components().clone();
+    }
+
+    /**
+     * Number of clusters: components with at least two artists.
+     */
+    public int clusterCount() {
+        int[] labels = components();
+        return (int) artists()
+                .filter(artist -> labels[artist] == artist && degree(artist) > 0)
+                .count();
+    }
+
+    /**
+     * Names of the artists in the same cluster as the given one, by id; just the artist
+     * itself if it has no collaborations, empty if it is unknown.
+     */
+    public List<String> cluster(String artist) {
+        ArtistDictionary artists = ArtistDictionary.INSTANCE;
+        int id = artists.lookup(artist);
+        if (id == ArtistDictionary.NO_ARTIST) {
+            return List.of();
+        }
+        if (id >= artistCount) {
+            return List.of(artist);
+        }
+        int[] labels = components();
+        int label = labels[id];
+        List<String> names = new ArrayList<>();
+        for (int other = label; other < artistCount; other++) {
+            if (labels[other] == label) {
+                names.add(artists.name(other));
+            }
+        }
+        return names;
+    }
+
+    /**
+     * PageRank with {@link #DEFAULT_DAMPING}, iterated until the L1 change falls below
+     * {@link #DEFAULT_TOLERANCE} or {@link #DEFAULT_MAX_ITERATIONS} is reached.
+     */
+    public double[] pageRank() {
+        return pageRank(DEFAULT_DAMPING, DEFAULT_MAX_ITERATIONS, DEFAULT_TOLERANCE);
+    }
+
+    /**
+     * PageRank per artist id over the weighted collaboration graph: a random walk moves
+     * to a collaborator in proportion to the songs they share, and teleports to a random
+     * collaborating artist with probability {@code 1 - damping}. Ranks of collaborating
+     * artists sum to 1; artists without collaborations rank 0.
+     */
+    public double[] pageRank(double damping, int maxIterations, double tolerance) {
+        if (damping < 0.0 || damping > 1.0) {
+            throw new IllegalArgumentException("damping must be in [0, 1]: " + damping);
+        }
+        if (maxIterations < 0) {
+            throw new IllegalArgumentException("maxIterations must not be negative: " + maxIterations);
+        }
+        long[] strength = strengths();
+        int connected = (int) artists().filter(artist -> strength[artist] > 0).count();
+        double[] rank = new double[artistCount];
+        if (connected == 0) {
+            return rank;
+        }
+        double teleport = (1.0 - damping) / connected;
+        artists().forEach(artist -> rank[artist] = strength[artist] > 0 ? 1.0 / connected : 0.0);
+
+        double[] share = new double[artistCount]; // rank passed along per shared song
+        double[] next = new double[artistCount];
+        double[] current = rank;
+        for (int iteration = 0; iteration < maxIterations; iteration++) {
+            double[] ranks = current;
+            double[] updated = next;
+            artists().forEach(artist -> share[artist] = strength[artist] > 0 ? ranks[artist] / strength[artist] : 0.0);
+            double change = artists().mapToDouble(artist -> {
+                if (strength[artist] == 0) {
+                    return 0.0;
+                }
+                double inflow = 0.0;
+                for (int slot = offsets[artist]; slot < offsets[artist + 1]; slot++) {
+                    inflow += share[neighbors[slot]] * weights[slot];
+                }
+                updated[artist] = teleport + damping * inflow;
+                return Math.abs(updated[artist] - ranks[artist]);
+            }).sum();
+            next = current;
+            current = updated;
+            if (change < tolerance) {
+                break;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Names of the {@code k} artists with the highest scores (for example {@link #pageRank()}
+     * or {@link #weightedDegrees()} converted to doubles), highest first; ties go to the
+     * lower id. Artists scoring 0 are skipped.
+     */
+    public static List<String> topArtists(double[] scores, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative: " + k);
+        }
+        // Min-heap of the best k so far: lowest score, then highest id, on top
+        PriorityQueue<Integer> best = new PriorityQueue<>(Math.max(1, Math.min(k, scores.length)), (a, b) -> {
+            int byScore = Double.compare(scores[a], scores[b]);
+            return byScore != 0 ? byScore : Integer.compare(b, a);
+        });
+        for (int artist = 0; artist < scores.length && k > 0; artist++) {
+            if (scores[artist] <= 0.0) {
+                continue;
+            }
+            if (best.size() < k) {
+                best.add(artist);
+            } else if (scores[artist] > scores[best.peek()]) {
+                best.poll();
+                best.add(artist);
+            }
+        }
+        String[] names = new String[best.size()];
+        for (int i = names.length - 1; i >= 0; i--) {
+            names[i] = ArtistDictionary.INSTANCE.name(best.poll());
+        }
+        return List.of(names);
+    }
+
+    private long[] strengths() {
+        long[] result = weightedDegrees;
+        if (result == null) {
+            long[] sums = new long[artistCount];
+            artists().forEach(artist -> {
+                long sum = 0;
+                for (int slot = offsets[artist]; slot < offsets[artist + 1]; slot++) {
+                    sum += weights[slot];
+                }
+                sums[artist] = sum;
+            });
+            weightedDegrees = result = sums;
+        }
+        return result;
+    }
+
+    private int[] components() {
+        int[] result = componentLabels;
+        if (result == null) {
+            AtomicIntegerArray parents = new AtomicIntegerArray(artistCount);
+            artists().forEach(artist -> parents.set(artist, artist));
+            artists().forEach(artist -> {
+                for (int slot = offsets[artist]; slot < offsets[artist + 1]; slot++) {
+                    if (neighbors[slot] > artist) {
+                        union(parents, artist, neighbors[slot]);
+                    }
+                }
+            });
+            int[] labels = new int[artistCount];
+            artists().forEach(artist -> labels[artist] = find(parents, artist));
+            componentLabels = result = labels;
+        }
+        return result;
+    }
+
+    private static void union(AtomicIntegerArray parents, int a, int b) {
+        while (true) {
+            int rootA = find(parents, a);
+            int rootB = find(parents, b);
+            if (rootA == rootB) {
+                return;
+            }
+            // Link the higher root below the lower one; fails if another task re-linked it first
+            int high = Math.max(rootA, rootB);
+            int low = Math.min(rootA, rootB);
+            if (parents.compareAndSet(high, high, low)) {
+                return;
+            }
+        }
+    }
+
+    private static int find(AtomicIntegerArray parents, int node) {
+        int parent = parents.get(node);
+        while (parent != node) {
+            int grandparent = parents.get(parent);
+            // Path halving; losing the race only skips a shortcut
+            parents.compareAndSet(node, parent, grandparent);
+            node = grandparent;
+            parent = parents.get(node);
+        }
+        return node;
+    }
+
+    private IntStream artists() {
+        return IntStream.range(0, artistCount).parallel();
+    }
+}
@@ -0,0 +1,22 @@
+package com.streamexercises.service;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The one background thread on which the service indexes rebuild their derived
+ * structures, so neither queries nor the threads reporting changes pay for a rebuild.
+ * Tasks run one at a time in submission order; the thread is a daemon and never keeps
+ * the JVM alive.
+ */
+final class BackgroundRebuilds {
+
+    static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "index-rebuilds");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private BackgroundRebuilds() {
+    }
+}
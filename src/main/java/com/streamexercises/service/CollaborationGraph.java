@@ -0,0 +1,442 @@
+package com.streamexercises.service;
+
+import com.streamexercises.collection.DenseIdMap;
+import com.streamexercises.collection.IntIntHashMap;
+import com.streamexercises.collection.TopKSelector;
+import com.streamexercises.model.ArtistDictionary;
+import com.streamexercises.model.Song;
+import com.streamexercises.service.MusicAnalyticsService.ArtistPair;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.IntStream;
+
+/**
+ * Undirected graph of artists who share songs, keyed by {@link ArtistDictionary} ids.
+ *
+ * The bulk of the graph is kept in compressed sparse row form:
+ * - {@code offsets[a] .. offsets[a + 1]} is artist {@code a}'s row of slots
+ * - per slot, the neighbor id (rows are sorted) and the number of shared songs
+ * - per slot whose neighbor id is above the row's, the shared songs as indexes into
+ *   the graph's song list, so each edge's songs are stored once
+ *
+ * Songs added after the last build go to a small delta that queries merge with the rows:
+ * per-artist neighbor → weight maps, and per edge the indexes of its delta songs, kept
+ * with the lower artist. When the delta grows past an eighth of the compressed songs it
+ * is folded in by rebuilding the rows.
+ *
+ * A build buckets each song's artist pairs by artist in one linear pass, then sorts
+ * and compacts every artist's bucket independently; with {@code parallel}, the
+ * per-artist work runs on the common fork-join pool.
+ *
+ * Not synchronized: add songs from one thread, or guard the graph externally.
+ */
+public final class CollaborationGraph {
+
+    private static final int MIN_DELTA_SONGS = 1024;
+
+    private final boolean parallel;
+    private final List<Song> songs = new ArrayList<>(); // by song index
+    private final BitSet added = new BitSet(); // dense song ids already in the graph
+
+    // Rows over songs [0, compressedSongs)
+    private int compressedSongs;
+    private int[] offsets = {0}; // artist id → first slot; length rows + 1
+    private int[] neighbors = new int[0]; // per slot
+    private int[] weights = new int[0]; // per slot
+    private int[] songOffsets = {0}; // per slot → first entry in songIndexes; length slots + 1
+    private int[] songIndexes = new int[0];
+    private long compressedEdges;
+
+    // Delta over songs [compressedSongs, songs.size())
+    private DenseIdMap<IntIntHashMap> deltaWeights = new DenseIdMap<>();
+    private DenseIdMap<IntIntHashMap> deltaEdgeIds = new DenseIdMap<>(); // lower artist → higher artist → 1 + edge id
+    private int[][] deltaEdgeSongs = new int[16][]; // by edge id: song indexes, the first delta weight ones in use
+    private int deltaEdgeIdCount;
+    private long deltaEdges; // edges that are not in the rows
+
+    public CollaborationGraph(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    public CollaborationGraph(Collection<Song> songs, boolean parallel) {
+        this(parallel);
+        for (Song song : songs) {
+            if (!added.get(song.getIntId())) {
+                added.set(song.getIntId());
+                this.songs.add(song);
+            }
+        }
+        compact();
+    }
+
+    /**
+     * Adds the song's collaborations; returns false if the song was already in the graph.
+     */
+    public boolean add(Song song) {
+        if (added.get(song.getIntId())) {
+            return false;
+        }
+        added.set(song.getIntId());
+        int index = songs.size();
+        songs.add(song);
+        int artistCount = song.getArtistCount();
+        for (int i = 0; i < artistCount - 1; i++) {
+            int artist = song.getArtistId(i); // ids are ascending, so artist < other
+            for (int j = i + 1; j < artistCount; j++) {
+                int other = song.getArtistId(j);
+                deltaOf(other).addTo(artist, 1);
+                int weight = deltaOf(artist).addTo(other, 1);
+                if (weight == 1 && compressedWeight(artist, other) == 0) {
+                    deltaEdges++;
+                }
+                addDeltaSong(artist, other, weight, index);
+            }
+        }
+        if (songs.size() - compressedSongs > Math.max(MIN_DELTA_SONGS, compressedSongs / 8)) {
+            compact();
+        }
+        return true;
+    }
+
+    /**
+     * Folds songs added since the last build into the compressed rows.
+     */
+    public void compact() {
+        if (compressedSongs == songs.size()) {
+            return;
+        }
+        build();
+        deltaWeights = new DenseIdMap<>();
+        deltaEdgeIds = new DenseIdMap<>();
+        deltaEdgeSongs = new int[16][];
+        deltaEdgeIdCount = 0;
+        deltaEdges = 0;
+    }
+
+    public int songCount() {
+        return songs.size();
+    }
+
+    /**
+     * Number of distinct artist pairs with at least one shared song.
+     */
+    public long edgeCount() {
+        return compressedEdges + deltaEdges;
+    }
+
+    /**
+     * Number of songs the two artists share.
+     */
+    public int weight(int artist, int other) {
+        IntIntHashMap delta = deltaWeights.get(artist);
+        return compressedWeight(artist, other) + (delta != null ? delta.get(other) : 0);
+    }
+
+    public int weight(String artist, String other) {
+        ArtistDictionary artists = ArtistDictionary.INSTANCE;
+        int artistId = artists.lookup(artist);
+        int otherId = artists.lookup(other);
+        return artistId != ArtistDictionary.NO_ARTIST && otherId != ArtistDictionary.NO_ARTIST
+                ? weight(artistId, otherId)
+                : 0;
+    }
+
+    /**
+     * Sorted ids of the artist's collaborators.
+     */
+    public int[] neighbors(int artist) {
+        int from = rowStart(artist);
+        int to = rowEnd(artist);
+        IntIntHashMap delta = deltaWeights.get(artist);
+        if (delta == null) {
+            return Arrays.copyOfRange(neighbors, from, to);
+        }
+        int[] result = Arrays.copyOf(Arrays.copyOfRange(neighbors, from, to), to - from + delta.size());
+        int count = to - from;
+        for (int other : delta.keys()) {
+            if (compressedWeight(artist, other) == 0) {
+                result[count++] = other;
+            }
+        }
+        result = Arrays.copyOf(result, count);
+        Arrays.sort(result);
+        return result;
+    }
+
+    public int degree(int artist) {
+        return neighbors(artist).length;
+    }
+
+    /**
+     * Songs shared by the two artists, in the order they were added.
+     */
+    public List<Song> songs(int artist, int other) {
+        int lower = Math.min(artist, other);
+        int higher = Math.max(artist, other);
+        List<Song> shared = new ArrayList<>(sharedSongs(lower, higher));
+        IntIntHashMap edgeIds = deltaEdgeIds.get(lower);
+        int edgeId = edgeIds != null ? edgeIds.get(higher) - 1 : -1;
+        if (edgeId >= 0) {
+            int[] indexes = deltaEdgeSongs[edgeId];
+            for (int i = 0, count = deltaWeights.get(lower).get(higher); i < count; i++) {
+                shared.add(songs.get(indexes[i]));
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * Ids of the artist's {@code k} most frequent collaborators, most shared songs first;
+     * ties go to the lower id.
+     */
+    public int[] topCollaborators(int artist, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative: " + k);
+        }
+        TopKSelector selector = new TopKSelector(k);
+        IntIntHashMap delta = deltaWeights.get(artist);
+        for (int slot = rowStart(artist), end = rowEnd(artist); slot < end; slot++) {
+            selector.offer(weights[slot] + (delta != null ? delta.get(neighbors[slot]) : 0), neighbors[slot]);
+        }
+        if (delta != null) {
+            delta.forEach((other, weight) -> {
+                if (compressedWeight(artist, other) == 0) {
+                    selector.offer(weight, other);
+                }
+            });
+        }
+        return selector.indexes();
+    }
+
+    /**
+     * Names of the artist's {@code k} most frequent collaborators; empty for unknown artists.
+     */
+    public List<String> topCollaborators(String artist, int k) {
+        ArtistDictionary artists = ArtistDictionary.INSTANCE;
+        int artistId = artists.lookup(artist);
+        if (artistId == ArtistDictionary.NO_ARTIST) {
+            return List.of();
+        }
+        int[] ids = topCollaborators(artistId, k);
+        List<String> names = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            names.add(artists.name(id));
+        }
+        return names;
+    }
+
+    /**
+     * Every artist pair with its shared songs, shaped like the exercise 12 result. Folds
+     * pending songs into the rows first; song lists are read-only views.
+     */
+    public Map<ArtistPair, List<Song>> toMap() {
+        compact();
+        ArtistDictionary artists = ArtistDictionary.INSTANCE;
+        Map<ArtistPair, List<Song>> result = new HashMap<>((int) (compressedEdges * 4 / 3 + 1));
+        for (int artist = 0; artist < offsets.length - 1; artist++) {
+            for (int slot = offsets[artist]; slot < offsets[artist + 1]; slot++) {
+                if (neighbors[slot] > artist) {
+                    result.put(new ArtistPair(artists.name(artist), artists.name(neighbors[slot])),
+                            new SongList(songOffsets[slot], songOffsets[slot + 1]));
+                }
+            }
+        }
+        return result;
+    }
+
+    // Compressed rows for graph algorithms in this package; pending songs are not included.
+    // A rebuild replaces the arrays rather than writing into them, so callers may keep them.
+
+    int rowCount() {
+        return offsets.length - 1;
+    }
+
+    int[] rowOffsets() {
+        return offsets;
+    }
+
+    int[] rowNeighbors() {
+        return neighbors;
+    }
+
+    int[] rowWeights() {
+        return weights;
+    }
+
+    private IntIntHashMap deltaOf(int artist) {
+        return deltaWeights.computeIfAbsent(artist, key -> new IntIntHashMap());
+    }
+
+    // Records the song index as the weight-th delta song of the edge
+    private void addDeltaSong(int lower, int higher, int weight, int index) {
+        IntIntHashMap edgeIds = deltaEdgeIds.computeIfAbsent(lower, key -> new IntIntHashMap());
+        int edgeId = edgeIds.get(higher) - 1;
+        if (edgeId < 0) {
+            edgeId = deltaEdgeIdCount++;
+            if (edgeId == deltaEdgeSongs.length) {
+                deltaEdgeSongs = Arrays.copyOf(deltaEdgeSongs, edgeId * 2);
+            }
+            deltaEdgeSongs[edgeId] = new int[2];
+            edgeIds.put(higher, edgeId + 1);
+        }
+        int[] indexes = deltaEdgeSongs[edgeId];
+        if (weight > indexes.length) {
+            indexes = Arrays.copyOf(indexes, indexes.length * 2);
+            deltaEdgeSongs[edgeId] = indexes;
+        }
+        indexes[weight - 1] = index;
+    }
+
+    private int rowStart(int artist) {
+        return artist >= 0 && artist < offsets.length - 1 ? offsets[artist] : 0;
+    }
+
+    private int rowEnd(int artist) {
+        return artist >= 0 && artist < offsets.length - 1 ? offsets[artist + 1] : 0;
+    }
+
+    private int slotOf(int artist, int other) {
+        int from = rowStart(artist);
+        int slot = Arrays.binarySearch(neighbors, from, rowEnd(artist), other);
+        return slot >= from ? slot : -1;
+    }
+
+    private int compressedWeight(int artist, int other) {
+        int slot = slotOf(artist, other);
+        return slot >= 0 ? weights[slot] : 0;
+    }
+
+    private List<Song> sharedSongs(int lower, int higher) {
+        int slot = lower != higher ? slotOf(lower, higher) : -1;
+        return slot >= 0 ? new SongList(songOffsets[slot], songOffsets[slot + 1]) : List.of();
+    }
+
+    private void build() {
+        int songCount = songs.size();
+        int rows = 0;
+        for (Song song : songs) {
+            int artistCount = song.getArtistCount();
+            if (artistCount > 1) {
+                rows = Math.max(rows, song.getArtistId(artistCount - 1) + 1);
+            }
+        }
+
+        // Bucket (neighbor << 32 | song index) by artist; buckets fill in song order
+        int[] bucketStarts = new int[rows + 1];
+        for (Song song : songs) {
+            int artistCount = song.getArtistCount();
+            for (int i = 0; artistCount > 1 && i < artistCount; i++) {
+                bucketStarts[song.getArtistId(i) + 1] += artistCount - 1;
+            }
+        }
+        for (int artist = 0; artist < rows; artist++) {
+            bucketStarts[artist + 1] = Math.addExact(bucketStarts[artist + 1], bucketStarts[artist]);
+        }
+        long[] buckets = new long[bucketStarts[rows]];
+        int[] cursors = Arrays.copyOf(bucketStarts, rows);
+        for (int index = 0; index < songCount; index++) {
+            Song song = songs.get(index);
+            int artistCount = song.getArtistCount();
+            for (int i = 0; artistCount > 1 && i < artistCount; i++) {
+                int artist = song.getArtistId(i);
+                for (int j = 0; j < artistCount; j++) {
+                    if (j != i) {
+                        buckets[cursors[artist]++] = (long) song.getArtistId(j) << 32 | index;
+                    }
+                }
+            }
+        }
+
+        // Per artist: sort by neighbor, then count slots and owned song entries
+        int[] slotCounts = new int[rows + 1];
+        int[] songCounts = new int[rows + 1];
+        rowRange(rows).forEach(artist -> {
+            int from = bucketStarts[artist];
+            int to = bucketStarts[artist + 1];
+            Arrays.sort(buckets, from, to);
+            int slots = 0;
+            int owned = 0;
+            for (int i = from; i < to; i++) {
+                int other = (int) (buckets[i] >>> 32);
+                if (i == from || other != (int) (buckets[i - 1] >>> 32)) {
+                    slots++;
+                }
+                if (other > artist) {
+                    owned++;
+                }
+            }
+            slotCounts[artist + 1] = slots;
+            songCounts[artist + 1] = owned;
+        });
+        for (int artist = 0; artist < rows; artist++) {
+            slotCounts[artist + 1] += slotCounts[artist];
+            songCounts[artist + 1] += songCounts[artist];
+        }
+
+        int slotTotal = slotCounts[rows];
+        int[] newNeighbors = new int[slotTotal];
+        int[] newWeights = new int[slotTotal];
+        int[] newSongOffsets = new int[slotTotal + 1];
+        int[] newSongIndexes = new int[songCounts[rows]];
+        rowRange(rows).forEach(artist -> {
+            int slot = slotCounts[artist] - 1;
+            int songCursor = songCounts[artist];
+            for (int i = bucketStarts[artist], to = bucketStarts[artist + 1]; i < to; i++) {
+                int other = (int) (buckets[i] >>> 32);
+                if (i == bucketStarts[artist] || other != newNeighbors[slot]) {
+                    slot++;
+                    newNeighbors[slot] = other;
+                    newSongOffsets[slot] = songCursor;
+                }
+                newWeights[slot]++;
+                if (other > artist) {
+                    newSongIndexes[songCursor++] = (int) buckets[i];
+                }
+            }
+        });
+        newSongOffsets[slotTotal] = newSongIndexes.length;
+
+        offsets = slotCounts;
+        neighbors = newNeighbors;
+        weights = newWeights;
+        songOffsets = newSongOffsets;
+        songIndexes = newSongIndexes;
+        compressedEdges = slotTotal / 2;
+        compressedSongs = songCount;
+    }
+
+    private IntStream rowRange(int rows) {
+        IntStream range = IntStream.range(0, rows);
+        return parallel ? range.parallel() : range;
+    }
+
+    private final class SongList extends AbstractList<Song> {
+        private final int[] indexes = songIndexes; // rows built later leave this range intact
+        private final int from;
+        private final int to;
+
+        SongList(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public Song get(int index) {
+            Objects.checkIndex(index, to - from);
+            return songs.get(indexes[from + index]);
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+    }
+}
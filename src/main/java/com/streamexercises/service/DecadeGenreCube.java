@@ -0,0 +1,324 @@
+package com.streamexercises.service;
+
+import com.streamexercises.model.Genre;
+import com.streamexercises.model.Song;
+import com.streamexercises.model.SongListener;
+import com.streamexercises.service.MusicAnalyticsService.Decade;
+import com.streamexercises.service.MusicAnalyticsService.SongSummary;
+
+import java.time.Year;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Songs grouped by release decade and primary genre, with per-cell aggregates kept up
+ * to date instead of regrouping the library on every request.
+ *
+ * Cells are addressed by decade ordinal (decades since the earliest one seen) and
+ * {@link Genre#ordinal()}, with one extra column for songs without a genre. Each cell
+ * keeps:
+ * - the song count
+ * - the sums of popularity and play counts, updated through a {@link SongListener}
+ *   registered on each song
+ * - a posting list of the cell's songs in insertion order
+ *
+ * Each song's listener remembers the play count and popularity it last added to the
+ * cell, and on every change adds the difference to the song's current values. A change
+ * racing with adding the song is therefore counted exactly once, and the sums settle on
+ * the songs' latest values whatever order the callbacks run in. Plays take no lock: play
+ * counts only grow, so the listener advances a high-water mark by compare-and-set and
+ * adds the difference to the cell's {@link LongAdder}, which is summed when the cube is
+ * read. Popularity changes are rare and update the cell under its lock.
+ * {@link #close()} removes the listeners; until then the songs keep the cube reachable.
+ *
+ * {@link SongSummary} objects are created only when a caller reads a cell's songs, through
+ * {@link #page} or the lazy lists of {@link #songs} and {@link #toMap()}. Each read
+ * reflects the song's current popularity and play count.
+ *
+ * Adding songs is not synchronized: build the cube from one thread, then share it with
+ * readers. Aggregates may be updated from any thread.
+ */
+public final class DecadeGenreCube {
+
+    private static final int GENRE_COLUMNS = Genre.values().length + 1; // last column: no genre
+    private static final int NO_GENRE = GENRE_COLUMNS - 1;
+
+    private final List<Member> members = new ArrayList<>(); // by position
+    private final BitSet added = new BitSet(); // dense song ids already in the cube
+    private Cell[][] cells = new Cell[0][]; // [decade ordinal][genre column]; null rows for empty decades
+    private int firstDecade; // year / 10 of decade ordinal 0
+
+    public DecadeGenreCube() {
+    }
+
+    public DecadeGenreCube(Collection<Song> songs) {
+        songs.forEach(this::add);
+    }
+
+    /**
+     * Adds the song to its cell; returns false if it was already in the cube.
+     *
+     * @throws NullPointerException if the song has no release year
+     */
+    public boolean add(Song song) {
+        Year releaseYear = Objects.requireNonNull(song.getReleaseYear(), "releaseYear");
+        if (added.get(song.getIntId())) {
+            return false;
+        }
+        added.set(song.getIntId());
+        int position = members.size();
+        Cell cell = cellFor(releaseYear.getValue() / 10, column(song.getPrimaryGenre()));
+        Member member = new Member(song, cell);
+        members.add(member);
+        cell.append(position);
+        cell.track(member);
+        return true;
+    }
+
+    public int size() {
+        return members.size();
+    }
+
+    /**
+     * Stops following play count and popularity changes of the songs, so they no longer
+     * keep the cube alive. Aggregates keep their current values.
+     */
+    public void close() {
+        for (Member member : members) {
+            member.song.removeListener(member);
+        }
+    }
+
+    /**
+     * Aggregates of one cell; an empty summary if the cell has no songs.
+     */
+    public CellSummary summary(Decade decade, Genre genre) {
+        Cell cell = existingCell(decade, genre);
+        return cell != null ? cell.summary(decade, genre) : new CellSummary(decade, genre, 0, 0.0, 0L);
+    }
+
+    /**
+     * Aggregates of every non-empty cell, by decade and then genre.
+     */
+    public List<CellSummary> summaries() {
+        List<CellSummary> summaries = new ArrayList<>();
+        for (int ordinal = 0; ordinal < cells.length; ordinal++) {
+            for (int column = 0; cells[ordinal] != null && column < GENRE_COLUMNS; column++) {
+                Cell cell = cells[ordinal][column];
+                if (cell != null && cell.size > 0) {
+                    summaries.add(cell.summary(decadeOf(ordinal), genreOf(column)));
+                }
+            }
+        }
+        return summaries;
+    }
+
+    /**
+     * Summaries of songs {@code [offset, offset + limit)} of a cell, in insertion order.
+     */
+    public List<SongSummary> page(Decade decade, Genre genre, int offset, int limit) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("offset and limit must not be negative");
+        }
+        List<SongSummary> cellSongs = songs(decade, genre);
+        int from = Math.min(offset, cellSongs.size());
+        int to = (int) Math.min((long) from + limit, cellSongs.size());
+        return new ArrayList<>(cellSongs.subList(from, to));
+    }
+
+    /**
+     * Read-only view of a cell's songs that creates each summary when it is read.
+     */
+    public List<SongSummary> songs(Decade decade, Genre genre) {
+        Cell cell = existingCell(decade, genre);
+        return cell != null ? new SummaryList(cell) : List.of();
+    }
+
+    /**
+     * Decade → genre → songs, shaped like the exercise 11 result. Song lists are lazy
+     * views ({@link #songs}), so building the map creates no summaries.
+     */
+    public Map<Decade, Map<Genre, List<SongSummary>>> toMap() {
+        Map<Decade, Map<Genre, List<SongSummary>>> result = new HashMap<>();
+        for (int ordinal = 0; ordinal < cells.length; ordinal++) {
+            for (int column = 0; cells[ordinal] != null && column < GENRE_COLUMNS; column++) {
+                Cell cell = cells[ordinal][column];
+                if (cell != null && cell.size > 0) {
+                    result.computeIfAbsent(decadeOf(ordinal), key -> new HashMap<>())
+                            .put(genreOf(column), new SummaryList(cell));
+                }
+            }
+        }
+        return result;
+    }
+
+    private Cell existingCell(Decade decade, Genre genre) {
+        return existingCell(decade.startYear() / 10, column(genre));
+    }
+
+    private Cell existingCell(int decadeKey, int column) {
+        int ordinal = decadeKey - firstDecade;
+        return ordinal >= 0 && ordinal < cells.length && cells[ordinal] != null ? cells[ordinal][column] : null;
+    }
+
+    private Cell cellFor(int decadeKey, int column) {
+        if (cells.length == 0) {
+            firstDecade = decadeKey;
+        }
+        if (decadeKey < firstDecade) {
+            int shift = firstDecade - decadeKey;
+            Cell[][] grown = new Cell[cells.length + shift][];
+            System.arraycopy(cells, 0, grown, shift, cells.length);
+            cells = grown;
+            firstDecade = decadeKey;
+        } else if (decadeKey - firstDecade >= cells.length) {
+            cells = Arrays.copyOf(cells, decadeKey - firstDecade + 1);
+        }
+        int ordinal = decadeKey - firstDecade;
+        if (cells[ordinal] == null) {
+            cells[ordinal] = new Cell[GENRE_COLUMNS];
+        }
+        Cell cell = cells[ordinal][column];
+        if (cell == null) {
+            cell = new Cell();
+            cells[ordinal][column] = cell;
+        }
+        return cell;
+    }
+
+    private Decade decadeOf(int ordinal) {
+        return new Decade((firstDecade + ordinal) * 10);
+    }
+
+    private static int column(Genre genre) {
+        return genre != null ? genre.ordinal() : NO_GENRE;
+    }
+
+    private static Genre genreOf(int column) {
+        return column != NO_GENRE ? Genre.fromOrdinal(column) : null;
+    }
+
+    private static SongSummary summarize(Song song) {
+        return new SongSummary(
+                song.getTitle(),
+                String.join(", ", song.getArtistNames()),
+                song.getPopularity(),
+                song.getPlayCount());
+    }
+
+    /**
+     * Count and sums of one cell, as of the call.
+     */
+    public record CellSummary(Decade decade, Genre genre, int songCount, double popularitySum, long playSum) {
+
+        public double averagePopularity() {
+            return songCount > 0 ? popularitySum / songCount : 0.0;
+        }
+    }
+
+    /**
+     * One cell.
+     */
+    private static final class Cell {
+        private int[] positions = new int[8];
+        private int size;
+        // Sums are written by song listeners on any thread; popularitySum is guarded by this
+        private double popularitySum;
+        private final LongAdder playSum = new LongAdder();
+
+        void append(int position) {
+            if (size == positions.length) {
+                positions = Arrays.copyOf(positions, size * 2);
+            }
+            positions[size++] = position;
+        }
+
+        // Listens first, then counts: a change seen by neither step cannot exist
+        void track(Member member) {
+            member.song.addListener(member);
+            refreshPopularity(member);
+            countPlays(member);
+        }
+
+        // Moves the member's share of the popularity sum to the song's current value
+        synchronized void refreshPopularity(Member member) {
+            double popularity = member.song.getPopularity();
+            popularitySum += popularity - member.popularity;
+            member.popularity = popularity;
+        }
+
+        // Play counts only grow, so the highest value read wins and later reads add the rest
+        void countPlays(Member member) {
+            long now = member.song.getPlayCountLong();
+            long counted;
+            while (now > (counted = member.plays.get())) {
+                if (member.plays.compareAndSet(counted, now)) {
+                    playSum.add(now - counted);
+                    return;
+                }
+            }
+        }
+
+        CellSummary summary(Decade decade, Genre genre) {
+            double popularity;
+            synchronized (this) {
+                popularity = popularitySum;
+            }
+            return new CellSummary(decade, genre, size, popularity, playSum.sum());
+        }
+    }
+
+    /**
+     * A song in the cube and the listener that keeps its cell's sums current.
+     */
+    private static final class Member implements SongListener {
+        final Song song;
+        final Cell cell;
+        // Values last added to the cell's sums
+        final AtomicLong plays = new AtomicLong();
+        double popularity; // guarded by the cell
+
+        Member(Song song, Cell cell) {
+            this.song = song;
+            this.cell = cell;
+        }
+
+        @Override
+        public void playCountChanged(Song song, long delta) {
+            cell.countPlays(this);
+        }
+
+        @Override
+        public void popularityChanged(Song song, double oldPopularity, double newPopularity) {
+            cell.refreshPopularity(this);
+        }
+    }
+
+    private final class SummaryList extends AbstractList<SongSummary> {
+        private final Cell cell;
+
+        SummaryList(Cell cell) {
+            this.cell = cell;
+        }
+
+        @Override
+        public SongSummary get(int index) {
+            Objects.checkIndex(index, cell.size);
+            return summarize(members.get(cell.positions[index]).song);
+        }
+
+        @Override
+        public int size() {
+            return cell.size;
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.streamexercises.service;
+
+import com.streamexercises.collection.IntIntConsumer;
+import com.streamexercises.model.Genre;
+import com.streamexercises.model.User;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds users who share at least one favorite genre, without comparing every pair of users.
+ *
+ * Users are grouped into buckets by their favorite-genre mask (15 bits, so at most
+ * 2^15 - 1 non-empty buckets; users without favorites are in none). Two users overlap
+ * exactly when their buckets' masks intersect, so overlaps are decided once per pair
+ * of buckets instead of once per pair of users, and every user of a bucket shares the
+ * same candidate list.
+ *
+ * Users are addressed by their position in the list given to the constructor; results
+ * list other users in that order. The full result grows quadratically with the number
+ * of users, so besides {@link #toMap()} there is {@link #page(int, int)} for a slice of
+ * users and {@link #forEachOverlappingPair(IntIntConsumer)}, which materializes nothing.
+ *
+ * The index is immutable and safe to share between threads; it does not observe later
+ * changes to the users' favorite genres.
+ */
+public final class GenreOverlapIndex {
+
+    private static final int NO_BUCKET = -1;
+
+    private final List<User> users;
+    private final int[] bucketOfUser;
+    private final int[] bucketMasks;
+    private final int[][] bucketMembers; // user positions, ascending
+
+    public GenreOverlapIndex(List<User> users) {
+        this.users = List.copyOf(users);
+        int userCount = this.users.size();
+        this.bucketOfUser = new int[userCount];
+
+        int[] bucketByMask = new int[Genre.ALL_MASK + 1];
+        Arrays.fill(bucketByMask, NO_BUCKET);
+        int[] masks = new int[16];
+        int[] sizes = new int[16];
+        int bucketCount = 0;
+        for (int i = 0; i < userCount; i++) {
+            int mask = this.users.get(i).getFavoriteGenreMask() & Genre.ALL_MASK;
+            if (mask == 0) {
+                bucketOfUser[i] = NO_BUCKET;
+                continue;
+            }
+            int bucket = bucketByMask[mask];
+            if (bucket == NO_BUCKET) {
+                if (bucketCount == masks.length) {
+                    masks = Arrays.copyOf(masks, bucketCount * 2);
+                    sizes = Arrays.copyOf(sizes, bucketCount * 2);
+                }
+                bucket = bucketCount++;
+                bucketByMask[mask] = bucket;
+                masks[bucket] = mask;
+            }
+            bucketOfUser[i] = bucket;
+            sizes[bucket]++;
+        }
+
+        this.bucketMasks = Arrays.copyOf(masks, bucketCount);
+        this.bucketMembers = new int[bucketCount][];
+        for (int bucket = 0; bucket < bucketCount; bucket++) {
+            bucketMembers[bucket] = new int[sizes[bucket]];
+        }
+        int[] filled = new int[bucketCount];
+        for (int i = 0; i < userCount; i++) {
+            int bucket = bucketOfUser[i];
+            if (bucket != NO_BUCKET) {
+                bucketMembers[bucket][filled[bucket]++] = i;
+            }
+        }
+    }
+
+    public int getUserCount() {
+        return users.size();
+    }
+
+    /**
+     * Number of distinct non-empty favorite-genre masks among the users.
+     */
+    public int getBucketCount() {
+        return bucketMasks.length;
+    }
+
+    /**
+     * Number of other users sharing a favorite genre with the user at {@code userIndex},
+     * computed from bucket sizes without listing them.
+     */
+    public int overlapCount(int userIndex) {
+        int bucket = bucketOfUser[userIndex];
+        if (bucket == NO_BUCKET) {
+            return 0;
+        }
+        int mask = bucketMasks[bucket];
+        int count = 0;
+        for (int other = 0; other < bucketMasks.length; other++) {
+            if ((bucketMasks[other] & mask) != 0) {
+                count += bucketMembers[other].length;
+            }
+        }
+        return count - 1;
+    }
+
+    /**
+     * Positions of the other users sharing a favorite genre with the user at {@code userIndex}, ascending.
+     */
+    public int[] overlappingUserIndexes(int userIndex) {
+        int bucket = bucketOfUser[userIndex];
+        if (bucket == NO_BUCKET) {
+            return new int[0];
+        }
+        int[] candidates = candidates(bucket);
+        int self = Arrays.binarySearch(candidates, userIndex);
+        int[] result = new int[candidates.length - 1];
+        System.arraycopy(candidates, 0, result, 0, self);
+        System.arraycopy(candidates, self + 1, result, self, result.length - self);
+        return result;
+    }
+
+    public List<String> overlappingUsernames(int userIndex) {
+        int[] others = overlappingUserIndexes(userIndex);
+        List<String> usernames = new ArrayList<>(others.length);
+        for (int other : others) {
+            usernames.add(users.get(other).getUsername());
+        }
+        return usernames;
+    }
+
+    /**
+     * Username → usernames of the other users sharing a favorite genre, for every user.
+     *
+     * The candidate usernames are resolved once per bucket; each user's list is a
+     * read-only view of its bucket's array that skips the user itself.
+     *
+     * @throws IllegalStateException if two users have the same username
+     */
+    public Map<String, List<String>> toMap() {
+        Map<String, List<String>> result = new HashMap<>(users.size() * 4 / 3 + 1);
+        for (int bucket = 0; bucket < bucketMasks.length; bucket++) {
+            int[] candidates = candidates(bucket);
+            String[] usernames = usernamesAt(candidates);
+            for (int member : bucketMembers[bucket]) {
+                put(result, member, new ExcludingList(usernames, Arrays.binarySearch(candidates, member)));
+            }
+        }
+        for (int i = 0; i < users.size(); i++) {
+            if (bucketOfUser[i] == NO_BUCKET) {
+                put(result, i, List.of());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Same as {@link #toMap()}, but only for the users at positions
+     * {@code [fromUser, fromUser + maxUsers)}, in that order. Candidates are still
+     * resolved once per bucket within the page.
+     */
+    public Map<String, List<String>> page(int fromUser, int maxUsers) {
+        if (fromUser < 0 || maxUsers < 0) {
+            throw new IllegalArgumentException("fromUser and maxUsers must not be negative");
+        }
+        int toUser = (int) Math.min((long) fromUser + maxUsers, users.size());
+        Map<String, List<String>> result = new LinkedHashMap<>();
+        Map<Integer, int[]> candidatesByBucket = new HashMap<>();
+        Map<Integer, String[]> usernamesByBucket = new HashMap<>();
+        for (int i = fromUser; i < toUser; i++) {
+            int bucket = bucketOfUser[i];
+            if (bucket == NO_BUCKET) {
+                put(result, i, List.of());
+                continue;
+            }
+            int[] candidates = candidatesByBucket.computeIfAbsent(bucket, this::candidates);
+            String[] usernames = usernamesByBucket.computeIfAbsent(bucket, key -> usernamesAt(candidates));
+            put(result, i, new ExcludingList(usernames, Arrays.binarySearch(candidates, i)));
+        }
+        return result;
+    }
+
+    /**
+     * Calls {@code action(user, other)} for every ordered pair of distinct users sharing a
+     * favorite genre. Pairs are grouped by the first user's bucket; only one bucket's
+     * candidates are held at a time.
+     */
+    public void forEachOverlappingPair(IntIntConsumer action) {
+        for (int bucket = 0; bucket < bucketMasks.length; bucket++) {
+            int[] candidates = candidates(bucket);
+            for (int member : bucketMembers[bucket]) {
+                for (int candidate : candidates) {
+                    if (candidate != member) {
+                        action.accept(member, candidate);
+                    }
+                }
+            }
+        }
+    }
+
+    // Every user (the bucket's own members included) in a bucket whose mask intersects this one, ascending
+    private int[] candidates(int bucket) {
+        int mask = bucketMasks[bucket];
+        int total = 0;
+        for (int other = 0; other < bucketMasks.length; other++) {
+            if ((bucketMasks[other] & mask) != 0) {
+                total += bucketMembers[other].length;
+            }
+        }
+        int[] candidates = new int[total];
+        int length = 0;
+        for (int other = 0; other < bucketMasks.length; other++) {
+            if ((bucketMasks[other] & mask) != 0) {
+                int[] members = bucketMembers[other];
+                System.arraycopy(members, 0, candidates, length, members.length);
+                length += members.length;
+            }
+        }
+        Arrays.sort(candidates);
+        return candidates;
+    }
+
+    private String[] usernamesAt(int[] positions) {
+        String[] usernames = new String[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            usernames[i] = users.get(positions[i]).getUsername();
+        }
+        return usernames;
+    }
+
+    private void put(Map<String, List<String>> result, int userIndex, List<String> overlapping) {
+        String username = users.get(userIndex).getUsername();
+        if (result.putIfAbsent(username, overlapping) != null) {
+            throw new IllegalStateException("Duplicate username " + username);
+        }
+    }
+
+    private static final class ExcludingList extends AbstractList<String> {
+        private final String[] usernames;
+        private final int excluded;
+
+        ExcludingList(String[] usernames, int excluded) {
+            this.usernames = usernames;
+            this.excluded = excluded;
+        }
+
+        @Override
+        public String get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+            }
+            return usernames[index < excluded ? index : index + 1];
+        }
+
+        @Override
+        public int size() {
+            return usernames.length - 1;
+        }
+    }
+}
@@ -1,14 +1,17 @@
 package com.streamexercises.service;
 
+import com.streamexercises.collection.DenseIdMap;
+import com.streamexercises.collection.IntIntHashMap;
+import com.streamexercises.collection.TopKSelector;
 import com.streamexercises.model.*;
 
 import java.time.Duration;
 import java.time.Year;
 import java.util.*;
 import java.util.function.Function;
+import java.util.function.IntFunction;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
-import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 /**
@@ -22,6 +25,12 @@ import java.util.stream.Stream;
  */
 public class MusicAnalyticsService {
 
+    // Below this many elements a parallel scan costs more than it saves
+    private static final int PARALLEL_SCAN_THRESHOLD = 1 << 16;
+    // Id lookups use an array indexed by id while it spans at most this many slots per entry, plus the slack
+    private static final int DENSE_LOOKUP_SPREAD = 4;
+    private static final int DENSE_LOOKUP_SLACK = 64;
+
     /**
      * Exercise 1: Calculate average popularity ratings for each music genre.
      * 
@@ -138,19 +147,13 @@ public class MusicAnalyticsService {
      * Output: {"rockfan": ["diverse_listener"], "diverse_listener": ["rockfan"], "popgirl": []}
      * 
      * Technical Implementation:
-     * Uses nested streams with filtering and complex predicate conditions
+     * Groups users by favorite-genre mask in a {@link GenreOverlapIndex} and intersects
+     * masks per pair of groups rather than per pair of users. For very large user bases
+     * use the index directly: its paged and pair-callback variants avoid building the
+     * quadratic full result.
      */
     public Map<String, List<String>> findUsersWithOverlappingGenres(List<User> users) {
-        return users.stream()
-                .collect(Collectors.toMap(
-                        User::getUsername,
-                        user -> users.stream()
-                                .filter(otherUser -> !otherUser.equals(user))
-                                .filter(otherUser -> user.getFavoriteGenres().stream()
-                                        .anyMatch(otherUser.getFavoriteGenres()::contains))
-                                .map(User::getUsername)
-                                .collect(Collectors.toList())
-                ));
+        return new GenreOverlapIndex(users).toMap();
     }
 
     /**
@@ -172,13 +175,23 @@ public class MusicAnalyticsService {
      * Output: ["Shape of You", "Blinding Lights", "Dance Monkey"]
      * 
      * Technical Implementation:
-     * Uses sorting operations with Comparator, limit, and reversed ordering
+     * Keeps a bounded min-heap of the N best play counts ({@link TopKSelector}) in one pass
+     * instead of sorting every song. Songs with equal play counts keep list order. Large
+     * lists are scanned in parallel, one heap per split, and the heaps merged.
      */
     public List<Song> getTopNSongsByPlayCount(List<Song> songs, int n) {
-        return songs.stream()
-                .sorted(Comparator.comparingInt(Song::getPlayCount).reversed())
-                .limit(n)
-                .collect(Collectors.toList());
+        return getTopNSongsByPlayCount(songs, n, songs.size() >= PARALLEL_SCAN_THRESHOLD);
+    }
+
+    /**
+     * Same as {@link #getTopNSongsByPlayCount(List, int)} with explicit control over
+     * parallel evaluation; the result does not depend on it.
+     */
+    public List<Song> getTopNSongsByPlayCount(List<Song> songs, int n, boolean parallel) {
+        if (n < 0) {
+            throw new IllegalArgumentException("n must not be negative: " + n);
+        }
+        return TopKSelector.top(songs, n, Song::getPlayCount, parallel);
     }
 
     /**
@@ -203,16 +216,43 @@ public class MusicAnalyticsService {
      * Output: ["Fine Line" (Pop, 2019, avg rating 85), "Future Nostalgia" (Pop, 2020, avg rating 92)]
      * 
      * Technical Implementation:
-     * Uses multiple filter operations with complex predicates and logical combinations
+     * One pass over the albums with the cheap checks first: release year, then the
+     * album's running average popularity, and only then the genre, which may look at
+     * the songs. Callers running many queries over the same albums should build an
+     * {@link AlbumIndex} once and use {@link #findAlbumsByComplexCriteria(AlbumIndex, Year, double, Genre)}.
      */
     public List<Album> findAlbumsByComplexCriteria(List<Album> albums, Year yearAfter, double minAvgPopularity, Genre genre) {
-        return albums.stream()
-                .filter(album -> album.getReleaseYear().isAfter(yearAfter))
-                .filter(album -> album.getAveragePopularity() >= minAvgPopularity)
-                .filter(album -> album.getPrimaryGenre() == genre || 
-                                 album.getSongs().stream()
-                                      .anyMatch(song -> song.getPrimaryGenre() == genre))
-                .collect(Collectors.toList());
+        int threshold = yearAfter.getValue();
+        List<Album> matches = new ArrayList<>();
+        for (Album album : albums) {
+            Year releaseYear = album.getReleaseYear();
+            if (releaseYear != null && releaseYear.getValue() > threshold
+                    && album.getAveragePopularity() >= minAvgPopularity
+                    && hasGenre(album, genre)) {
+                matches.add(album);
+            }
+        }
+        return matches;
+    }
+
+    private static boolean hasGenre(Album album, Genre genre) {
+        if (album.getPrimaryGenre() == genre) {
+            return true;
+        }
+        for (Song song : album.getSongs()) {
+            if (song.getPrimaryGenre() == genre) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Same as {@link #findAlbumsByComplexCriteria(List, Year, double, Genre)} over a prebuilt
+     * index, which walks only the smallest of its year, genre and popularity candidate sets.
+     */
+    public List<Album> findAlbumsByComplexCriteria(AlbumIndex index, Year yearAfter, double minAvgPopularity, Genre genre) {
+        return index.find(yearAfter, minAvgPopularity, genre);
     }
 
     /**
@@ -238,25 +278,42 @@ public class MusicAnalyticsService {
      *         songs=9, popularSong="Billie Jean", etc.
      * 
      * Technical Implementation:
-     * Uses map transformations with complex object construction and nested stream operations
+     * One pass over each album's songs collects the title references. Play count total
+     * and most popular song come from the album's running aggregates. The comma-separated
+     * title list is only joined when {@link AlbumSummaryDTO#getSongTitles()} is called, or
+     * up to a length cap with {@link AlbumSummaryDTO#getSongTitles(int)}. Large album
+     * lists are summarized in parallel.
      */
     public List<AlbumSummaryDTO> createAlbumSummaries(List<Album> albums) {
-        return albums.stream()
-                .map(album -> new AlbumSummaryDTO(
-                        album.getTitle(),
-                        album.getArtist(),
-                        album.getReleaseYear(),
-                        album.getNumberOfSongs(),
-                        album.getSongs().stream().mapToInt(Song::getPlayCount).sum(),
-                        album.getSongs().stream().map(Song::getTitle).collect(Collectors.joining(", ")),
-                        album.getSongs().stream()
-                              .max(Comparator.comparing(Song::getPopularity))
-                              .map(Song::getTitle)
-                              .orElse("N/A")
-                ))
+        return createAlbumSummaries(albums, albums.size() >= PARALLEL_SCAN_THRESHOLD);
+    }
+
+    /**
+     * Same as {@link #createAlbumSummaries(List)} with explicit control over parallel
+     * evaluation; summaries are in album order either way.
+     */
+    public List<AlbumSummaryDTO> createAlbumSummaries(List<Album> albums, boolean parallel) {
+        return (parallel ? albums.parallelStream() : albums.stream())
+                .map(MusicAnalyticsService::summarize)
                 .collect(Collectors.toList());
     }
 
+    private static AlbumSummaryDTO summarize(Album album) {
+        List<Song> songs = album.getSongs();
+        String[] titles = new String[songs.size()];
+        int count = 0;
+        for (Song song : songs) {
+            titles[count++] = song.getTitle();
+        }
+        return new AlbumSummaryDTO(
+                album.getTitle(),
+                album.getArtist(),
+                album.getReleaseYear(),
+                album.getTotalPlayCount(),
+                titles,
+                album.getMostPopularSong().map(Song::getTitle).orElse("N/A"));
+    }
+
     /**
      * Exercise 8: Generate detailed user profile statistics for personalization.
      * 
@@ -281,46 +338,38 @@ public class MusicAnalyticsService {
      *         favourite genres=[ROCK, METAL], playlist count=3
      * 
      * Technical Implementation:
-     * Uses complex stream pipelines with multi-source data aggregation and transformation
+     * Delegates to a {@link UserStatisticsEngine}, which selects each user's top songs with
+     * a bounded heap and reuses per-thread scratch buffers. Large user lists are processed
+     * in parallel chunks.
      */
     public Map<String, UserStatisticsDTO> generateUserStatistics(
             List<User> users, 
             List<Song> allSongs, 
             List<Playlist> allPlaylists) {
         
-        Map<String, List<Playlist>> userPlaylists = allPlaylists.stream()
-                .collect(Collectors.groupingBy(Playlist::getOwnerId));
+        IntFunction<List<Playlist>> userPlaylists = playlistsByOwnerId(allPlaylists);
+        IntFunction<Song> songById = songsById(allSongs);
         
-        Map<String, Song> songById = allSongs.stream()
-                .collect(Collectors.toMap(Song::getId, Function.identity()));
-        
-        return users.stream()
-                .collect(Collectors.toMap(
-                        User::getUsername,
-                        user -> {
-                            List<Song> userTopSongs = user.getSongPlayCounts().entrySet().stream()
-                                    .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
-                                    .limit(5)
-                                    .map(entry -> songById.get(entry.getKey()))
-                                    .filter(Objects::nonNull)
-                                    .collect(Collectors.toList());
-                            
-                            List<Playlist> userPlaylistsList = userPlaylists.getOrDefault(user.getId(), Collections.emptyList());
-                            
-                            Set<Genre> mostPlayedGenres = userTopSongs.stream()
-                                    .map(Song::getPrimaryGenre)
-                                    .collect(Collectors.toSet());
-                            
-                            return new UserStatisticsDTO(
-                                    user.getUsername(),
-                                    user.isPremium(),
-                                    user.getTotalPlayCount(),
-                                    userPlaylistsList.size(),
-                                    userTopSongs,
-                                    mostPlayedGenres
-                            );
-                        }
-                ));
+        return userStatistics(users, songById,
+                ownerId -> Objects.requireNonNullElse(userPlaylists.apply(ownerId), Collections.emptyList()));
+    }
+
+    /**
+     * Exercise 8 (catalog variant): same statistics as {@link #generateUserStatistics(List, List, List)},
+     * but song and playlist-owner lookups come from the catalog's prebuilt indexes instead of
+     * being rebuilt on every call.
+     */
+    public Map<String, UserStatisticsDTO> generateUserStatistics(List<User> users, Catalog catalog) {
+        return userStatistics(users, catalog::getSong, catalog::getPlaylistsByOwner);
+    }
+
+    private Map<String, UserStatisticsDTO> userStatistics(
+            List<User> users,
+            IntFunction<Song> songLookup,
+            IntFunction<List<Playlist>> playlistsByOwner) {
+
+        return new UserStatisticsEngine(songLookup, playlistsByOwner)
+                .compute(users, users.size() >= PARALLEL_SCAN_THRESHOLD);
     }
 
     /**
@@ -358,6 +407,15 @@ public class MusicAnalyticsService {
                 ));
     }
 
+    /**
+     * Exercise 9 (live variant): the same statistics read from a {@link PlayStatisticsTracker},
+     * which keeps them up to date as plays are recorded and premium status changes, so
+     * polling does not touch every user.
+     */
+    public Map<Boolean, IntSummaryStatistics> getPlayStatisticsByPremiumStatus(PlayStatisticsTracker tracker) {
+        return tracker.snapshot();
+    }
+
     /**
      * Exercise 10: Generate personalized song recommendations based on user preferences.
      * 
@@ -384,43 +442,28 @@ public class MusicAnalyticsService {
      * Uses complex scoring algorithm with filter, map, sort operations and multi-criteria evaluation
      */
     public List<Song> getPersonalizedRecommendations(User user, List<Song> allSongs, List<Album> allAlbums) {
-        // Extract user's favorite genres
-        Set<Genre> userFavoriteGenres = user.getFavoriteGenres();
-        
-        // Get IDs of songs the user has already played
-        Set<String> playedSongIds = user.getSongPlayCounts().keySet();
-        
-        // Get artists from user's favorite albums
-        Set<String> favoriteArtists = user.getFavoriteAlbums().stream()
-                .map(Album::getArtist)
-                .collect(Collectors.toSet());
-        
-        // Get songs from albums of favorite artists that the user hasn't played yet
-        List<Song> artistBasedRecommendations = allAlbums.stream()
-                .filter(album -> favoriteArtists.contains(album.getArtist()))
-                .flatMap(album -> album.getSongs().stream())
-                .filter(song -> !playedSongIds.contains(song.getId()))
-                .collect(Collectors.toList());
-        
-        // Calculate a recommendation score for each song
-        return allSongs.stream()
-                .filter(song -> !playedSongIds.contains(song.getId()))
-                .map(song -> {
-                    double genreScore = userFavoriteGenres.contains(song.getPrimaryGenre()) ? 10.0 : 0.0;
-                    double secondaryGenreScore = song.getSecondaryGenres().stream()
-                            .filter(userFavoriteGenres::contains)
-                            .count() * 2.0;
-                    double popularityScore = song.getPopularity() * 0.5;
-                    double artistBonus = song.getArtists().stream()
-                            .anyMatch(favoriteArtists::contains) ? 20.0 : 0.0;
-                    
-                    double totalScore = genreScore + secondaryGenreScore + popularityScore + artistBonus;
-                    return Map.entry(song, totalScore);
-                })
-                .sorted(Map.Entry.<Song, Double>comparingByValue().reversed())
-                .limit(10)
-                .map(Map.Entry::getKey)
-                .collect(Collectors.toList());
+        // Favorite artists come from the user's favorite albums, so allAlbums is not scanned
+        return RecommendationEngine.scan(user, allSongs, RecommendationEngine.DEFAULT_RECOMMENDATIONS);
+    }
+
+    /**
+     * Exercise 10 (indexed variant): same recommendations as
+     * {@link #getPersonalizedRecommendations(User, List, List)} for the engine's songs, found
+     * through popularity-sorted genre and artist lists with early termination instead of
+     * scoring every song.
+     */
+    public List<Song> getPersonalizedRecommendations(User user, RecommendationEngine engine) {
+        return engine.recommend(user, RecommendationEngine.DEFAULT_RECOMMENDATIONS);
+    }
+
+    /**
+     * Exercise 10 (batch variant): recommendations for many users at once, scored in
+     * parallel against the engine's shared genre and artist lists and streamed out per
+     * user as they are consumed.
+     */
+    public Stream<RecommendationEngine.UserRecommendations> getPersonalizedRecommendations(
+            List<User> users, RecommendationEngine engine) {
+        return engine.recommendAll(users, RecommendationEngine.DEFAULT_RECOMMENDATIONS, true);
     }
 
     /**
@@ -456,7 +499,7 @@ public class MusicAnalyticsService {
                                 Collectors.mapping(
                                         song -> new SongSummary(
                                                 song.getTitle(),
-                                                String.join(", ", song.getArtists()),
+                                                String.join(", ", song.getArtistNames()),
                                                 song.getPopularity(),
                                                 song.getPlayCount()
                                         ),
@@ -466,6 +509,16 @@ public class MusicAnalyticsService {
                 ));
     }
 
+    /**
+     * Exercise 11 (indexed variant): the same map, read from a cube that keeps the
+     * per-decade, per-genre groups and aggregates as songs are added. Song summaries are
+     * created only when a cell's list is read; use {@link DecadeGenreCube#page} or
+     * {@link DecadeGenreCube#summary} to drill into a single cell.
+     */
+    public Map<Decade, Map<Genre, List<SongSummary>>> analyzeLibraryByDecadeAndGenre(DecadeGenreCube cube) {
+        return cube.toMap();
+    }
+
     /**
      * Exercise 12: Discover artist collaboration networks within the music catalog.
      * 
@@ -488,26 +541,31 @@ public class MusicAnalyticsService {
      *          ArtistPair("Miley Cyrus", "Lana Del Rey"): ["Don't Call Me Angel"]}
      * 
      * Technical Implementation:
-     * Uses flatMap transformation with combinatorial generation and complex grouping
+     * Builds a {@link CollaborationGraph}: artist pairs are bucketed on interned ids into
+     * compressed adjacency rows (sorted per artist in parallel for large catalogs), and
+     * names are resolved once per distinct pair at the end
      */
     public Map<ArtistPair, List<Song>> findArtistCollaborations(List<Song> songs) {
-        return songs.stream()
-                .filter(song -> song.getArtists().size() > 1)
-                .flatMap(song -> {
-                    List<String> artists = new ArrayList<>(song.getArtists());
-                    return IntStream.range(0, artists.size() - 1)
-                            .boxed()
-                            .flatMap(i -> IntStream.range(i + 1, artists.size())
-                                    .mapToObj(j -> Map.entry(
-                                            new ArtistPair(artists.get(i), artists.get(j)),
-                                            song
-                                    ))
-                            );
-                })
-                .collect(Collectors.groupingBy(
-                        Map.Entry::getKey,
-                        Collectors.mapping(Map.Entry::getValue, Collectors.toList())
-                ));
+        return new CollaborationGraph(songs, songs.size() >= PARALLEL_SCAN_THRESHOLD).toMap();
+    }
+
+    /**
+     * Exercise 12 (indexed variant): the same map, read from a graph that is kept up to
+     * date as songs are added. The graph also answers neighbor, edge weight and
+     * top-collaborator queries without building the map.
+     */
+    public Map<ArtistPair, List<Song>> findArtistCollaborations(CollaborationGraph graph) {
+        return graph.toMap();
+    }
+
+    /**
+     * Exercise 12 (graph analytics): the {@code n} most influential artists of the
+     * collaboration network by PageRank, most influential first. An artist ranks high when
+     * it shares many songs with artists who rank high themselves; see
+     * {@link ArtistGraphAnalytics} for components and degree centrality.
+     */
+    public List<String> findMostInfluentialArtists(CollaborationGraph graph, int n) {
+        return ArtistGraphAnalytics.topArtists(new ArtistGraphAnalytics(graph).pageRank(), n);
     }
 
     /**
@@ -542,41 +600,51 @@ public class MusicAnalyticsService {
             List<Playlist> allPlaylists) {
         
         // Build a map of song IDs to songs for quick lookup
-        Map<String, Song> songLookup = allSongs.stream()
-                .collect(Collectors.toMap(Song::getId, Function.identity()));
+        IntFunction<Song> songLookup = songsById(allSongs);
         
         // Build map of user IDs to their playlists
-        Map<String, List<Playlist>> userPlaylists = allPlaylists.stream()
-                .collect(Collectors.groupingBy(Playlist::getOwnerId));
+        IntFunction<List<Playlist>> userPlaylists = playlistsByOwnerId(allPlaylists);
         
+        return genreAffinityScores(users, songLookup,
+                ownerId -> Objects.requireNonNullElse(userPlaylists.apply(ownerId), List.of()));
+    }
+
+    /**
+     * Exercise 13 (catalog variant): same scores as {@link #calculateGenreAffinityScores(List, List, List)},
+     * using the catalog's song and playlist-owner indexes.
+     */
+    public Map<User, Map<Genre, Double>> calculateGenreAffinityScores(List<User> users, Catalog catalog) {
+        return genreAffinityScores(users, catalog::getSong, catalog::getPlaylistsByOwner);
+    }
+
+    private Map<User, Map<Genre, Double>> genreAffinityScores(
+            List<User> users,
+            IntFunction<Song> songLookup,
+            IntFunction<List<Playlist>> playlistsByOwner) {
+
         return users.stream()
                 .collect(Collectors.toMap(
                         Function.identity(),
                         user -> {
-                            // Calculate base scores from direct plays
-                            Map<Genre, Double> baseScores = user.getSongPlayCounts().entrySet().stream()
-                                    .filter(entry -> songLookup.containsKey(entry.getKey()))
-                                    .map(entry -> {
-                                        Song song = songLookup.get(entry.getKey());
-                                        int playCount = entry.getValue();
-                                        
-                                        // Primary genre gets full weight
-                                        Map<Genre, Double> scores = new HashMap<>();
-                                        scores.put(song.getPrimaryGenre(), playCount * 1.0);
-                                        
-                                        // Secondary genres get half weight
-                                        song.getSecondaryGenres().forEach(genre -> 
-                                            scores.put(genre, scores.getOrDefault(genre, 0.0) + playCount * 0.5)
-                                        );
-                                        
-                                        return scores;
-                                    })
-                                    .flatMap(map -> map.entrySet().stream())
-                                    .collect(Collectors.toMap(
-                                            Map.Entry::getKey,
-                                            Map.Entry::getValue,
-                                            Double::sum
-                                    ));
+                            // Calculate base scores from direct plays, accumulated per genre ordinal
+                            double[] playScores = new double[Genre.values().length];
+                            int[] scoredGenres = new int[1];
+                            user.forEachSongPlayCount((songId, playCount) -> {
+                                Song song = songLookup.apply(songId);
+                                if (song == null) {
+                                    return;
+                                }
+                                // Primary genre gets full weight, secondary genres get half weight
+                                if (song.getPrimaryGenre() != null) {
+                                    playScores[song.getPrimaryGenre().ordinal()] += playCount * 1.0;
+                                }
+                                for (int remaining = song.getSecondaryGenreMask(); remaining != 0; remaining &= remaining - 1) {
+                                    playScores[Integer.numberOfTrailingZeros(remaining)] += playCount * 0.5;
+                                }
+                                scoredGenres[0] |= song.getGenreMask();
+                            });
+                            Map<Genre, Double> baseScores = new HashMap<>();
+                            Genre.forEach(scoredGenres[0], genre -> baseScores.put(genre, playScores[genre.ordinal()]));
                             
                             // Add scores from favorite genres (explicit preferences)
                             user.getFavoriteGenres().forEach(genre ->
@@ -584,8 +652,7 @@ public class MusicAnalyticsService {
                             );
                             
                             // Add scores from playlist curation
-                            Optional.ofNullable(userPlaylists.get(user.getId()))
-                                    .orElse(List.of())
+                            playlistsByOwner.apply(user.getIntId())
                                     .stream()
                                     .flatMap(playlist -> playlist.getSongs().stream())
                                     .collect(Collectors.groupingBy(
@@ -652,18 +719,18 @@ public class MusicAnalyticsService {
             int varietyFactor) {
         
         // Predicate for genre matching with variety factor
+        int preferredGenreMask = Genre.maskOf(preferredGenres);
         Predicate<Song> genrePredicate = song -> {
-            if (preferredGenres == null || preferredGenres.isEmpty()) return true;
-            if (preferredGenres.contains(song.getPrimaryGenre())) return true;
-            return varietyFactor > 3 && song.getSecondaryGenres().stream()
-                    .anyMatch(preferredGenres::contains);
+            if (preferredGenreMask == 0) return true;
+            if (song.getPrimaryGenre() != null && (song.getPrimaryGenre().mask() & preferredGenreMask) != 0) return true;
+            return varietyFactor > 3 && (song.getSecondaryGenreMask() & preferredGenreMask) != 0;
         };
         
         // Predicate for artist matching with variety factor
+        int[] preferredArtistIds = ArtistDictionary.INSTANCE.lookupAll(preferredArtists);
         Predicate<Song> artistPredicate = song -> {
             if (preferredArtists == null || preferredArtists.isEmpty()) return true;
-            boolean hasMatch = song.getArtists().stream().anyMatch(preferredArtists::contains);
-            return hasMatch || varietyFactor > 7;
+            return varietyFactor > 7 || song.hasAnyArtist(preferredArtistIds);
         };
         
         // Predicate for year range
@@ -682,7 +749,8 @@ public class MusicAnalyticsService {
         Comparator<Song> comparator;
         if (varietyFactor <= 3) {
             // Low variety: strict match on preferred genres and popularity
-            comparator = Comparator.comparing((Song song) -> preferredGenres.contains(song.getPrimaryGenre()) ? 0 : 1)
+            comparator = Comparator.comparingInt((Song song) -> song.getPrimaryGenre() != null
+                            && (song.getPrimaryGenre().mask() & preferredGenreMask) != 0 ? 0 : 1)
                         .thenComparing(Comparator.comparing(Song::getPopularity).reversed());
         } else if (varietyFactor <= 7) {
             // Medium variety: balance genre match with popularity and recency
@@ -740,46 +808,48 @@ public class MusicAnalyticsService {
      * Uses sequential stream processing with state tracking and probability calculation
      */
     public Map<Song, Map<Song, Double>> analyzeTrackTransitionProbabilities(List<User> users, Map<String, Song> songLookup) {
-        // First, collect all user listening sequences
-        List<List<Song>> listeningSequences = users.stream()
-                .map(User::getId)
-                .filter(userId -> {
-                    // Find a user by ID and check if they have a listening history
-                    Optional<User> user = users.stream()
-                            .filter(u -> u.getId().equals(userId))
-                            .findFirst();
-                    return user.isPresent() && user.get().getListeningHistory() != null 
-                           && !user.get().getListeningHistory().isEmpty();
-                })
-                .map(userId -> {
-                    // Get the user's listening history and convert song IDs to Song objects
-                    List<String> history = users.stream()
-                            .filter(u -> u.getId().equals(userId))
-                            .findFirst()
-                            .map(User::getListeningHistory)
-                            .orElse(List.of());
-                            
-                    return history.stream()
-                            .map(songLookup::get)
-                            .filter(Objects::nonNull)
-                            .collect(Collectors.toList());
-                })
-                .filter(sequence -> sequence.size() >= 2)
-                .collect(Collectors.toList());
-        
+        // Re-key the lookup by song id so histories can be walked without building strings
+        int[] ids = new int[songLookup.size()];
+        List<Song> songs = new ArrayList<>(songLookup.size());
+        songLookup.forEach((songId, song) -> {
+            int id = IdRegistry.SONGS.resolve(songId);
+            if (id != IdRegistry.NO_ID && song != null) {
+                ids[songs.size()] = id;
+                songs.add(song);
+            }
+        });
+        return trackTransitionProbabilities(users, lookupById(Arrays.copyOf(ids, songs.size()), songs));
+    }
+
+    /**
+     * Exercise 15 (catalog variant): same transition matrix as
+     * {@link #analyzeTrackTransitionProbabilities(List, Map)}, resolving songs through the catalog.
+     */
+    public Map<Song, Map<Song, Double>> analyzeTrackTransitionProbabilities(List<User> users, Catalog catalog) {
+        return trackTransitionProbabilities(users, catalog::getSong);
+    }
+
+    private Map<Song, Map<Song, Double>> trackTransitionProbabilities(List<User> users, IntFunction<Song> songLookup) {
         // Create map to count transitions
         Map<Song, Map<Song, Integer>> transitionCounts = new HashMap<>();
         
-        // Process each sequence to count transitions
-        listeningSequences.forEach(sequence -> {
-            for (int i = 0; i < sequence.size() - 1; i++) {
-                Song current = sequence.get(i);
-                Song next = sequence.get(i + 1);
-                
-                transitionCounts.computeIfAbsent(current, k -> new HashMap<>())
-                               .merge(next, 1, Integer::sum);
+        // Walk each listening history in place; ids that do not resolve to a song are skipped,
+        // so their neighbours count as consecutive
+        for (User user : users) {
+            ListeningHistory.Cursor cursor = user.listeningHistoryCursor();
+            Song previous = null;
+            while (cursor.advance()) {
+                Song current = songLookup.apply(cursor.songId());
+                if (current == null) {
+                    continue;
+                }
+                if (previous != null) {
+                    transitionCounts.computeIfAbsent(previous, k -> new HashMap<>())
+                                   .merge(current, 1, Integer::sum);
+                }
+                previous = current;
             }
-        });
+        }
         
         // Convert counts to probabilities
         return transitionCounts.entrySet().stream()
@@ -800,6 +870,67 @@ public class MusicAnalyticsService {
                 ));
     }
 
+    // Id lookups for the list-based overloads; same shape as the catalog indexes
+    
+    private static IntFunction<Song> songsById(List<Song> songs) {
+        int[] ids = new int[songs.size()];
+        int count = 0;
+        for (Song song : songs) {
+            ids[count++] = song.getIntId();
+        }
+        return lookupById(ids, songs);
+    }
+    
+    private static IntFunction<List<Playlist>> playlistsByOwnerId(List<Playlist> playlists) {
+        IntIntHashMap groupByOwner = new IntIntHashMap();
+        List<List<Playlist>> groups = new ArrayList<>();
+        for (Playlist playlist : playlists) {
+            if (playlist.getOwnerIntId() != IdRegistry.NO_ID) {
+                int group = groupByOwner.put(playlist.getOwnerIntId(), groups.size(), -1);
+                if (group < 0) {
+                    groups.add(new ArrayList<>());
+                    group = groups.size() - 1;
+                } else {
+                    groupByOwner.put(playlist.getOwnerIntId(), group);
+                }
+                groups.get(group).add(playlist);
+            }
+        }
+        int[] owners = new int[groups.size()];
+        groupByOwner.forEach((owner, group) -> owners[group] = owner);
+        return lookupById(owners, groups);
+    }
+
+    /**
+     * Lookup of {@code values.get(i)} by {@code ids[i]}, later entries winning. Ids come from
+     * process-wide registries, so a small input can carry large ids: an array indexed by id
+     * is used only while it stays within a few times the input size, otherwise ids map to
+     * list positions through a hash map.
+     */
+    private static <T> IntFunction<T> lookupById(int[] ids, List<T> values) {
+        int maxId = -1;
+        for (int id : ids) {
+            maxId = Math.max(maxId, id);
+        }
+        if (maxId < (long) DENSE_LOOKUP_SPREAD * ids.length + DENSE_LOOKUP_SLACK) {
+            DenseIdMap<T> byId = new DenseIdMap<>(maxId + 1);
+            int position = 0;
+            for (T value : values) {
+                byId.put(ids[position++], value);
+            }
+            return byId::get;
+        }
+        List<T> byPosition = new ArrayList<>(values);
+        IntIntHashMap positionById = new IntIntHashMap(ids.length);
+        for (int position = 0; position < ids.length; position++) {
+            positionById.put(ids[position], position);
+        }
+        return id -> {
+            int position = positionById.getOrDefault(id, -1);
+            return position < 0 ? null : byPosition.get(position);
+        };
+    }
+
     // Support records and classes for the exercises
     
     /**
@@ -845,12 +976,15 @@ public class MusicAnalyticsService {
      * Combines raw album data with calculated statistics.
      */
     public static class AlbumSummaryDTO {
+        private static final String TITLE_SEPARATOR = ", ";
+
         private final String title;
         private final String artist;
         private final Year releaseYear;
         private final int numberOfSongs;
         private final int totalPlayCount;
-        private final String songTitles;
+        private final String[] songTitleParts; // null when built from a joined string
+        private String songTitles; // joined on first use; a racy but idempotent cache
         private final String mostPopularSong;
 
         public AlbumSummaryDTO(String title, String artist, Year releaseYear, 
@@ -861,18 +995,64 @@ public class MusicAnalyticsService {
             this.releaseYear = releaseYear;
             this.numberOfSongs = numberOfSongs;
             this.totalPlayCount = totalPlayCount;
+            this.songTitleParts = null;
             this.songTitles = songTitles;
             this.mostPopularSong = mostPopularSong;
         }
 
+        private AlbumSummaryDTO(String title, String artist, Year releaseYear, int totalPlayCount,
+                                String[] songTitleParts, String mostPopularSong) {
+            this.title = title;
+            this.artist = artist;
+            this.releaseYear = releaseYear;
+            this.numberOfSongs = songTitleParts.length;
+            this.totalPlayCount = totalPlayCount;
+            this.songTitleParts = songTitleParts;
+            this.mostPopularSong = mostPopularSong;
+        }
+
         public String getTitle() { return title; }
         public String getArtist() { return artist; }
         public Year getReleaseYear() { return releaseYear; }
         public int getNumberOfSongs() { return numberOfSongs; }
         public int getTotalPlayCount() { return totalPlayCount; }
-        public String getSongTitles() { return songTitles; }
         public String getMostPopularSong() { return mostPopularSong; }
 
+        /**
+         * Comma-separated song titles in track order, joined on first call.
+         */
+        public String getSongTitles() {
+            String joined = songTitles;
+            if (joined == null) {
+                joined = String.join(TITLE_SEPARATOR, songTitleParts);
+                songTitles = joined;
+            }
+            return joined;
+        }
+
+        /**
+         * The first {@code maxLength} characters of {@link #getSongTitles()}, building no
+         * more of the joined string than that.
+         */
+        public String getSongTitles(int maxLength) {
+            if (maxLength < 0) {
+                throw new IllegalArgumentException("maxLength must not be negative: " + maxLength);
+            }
+            String joined = songTitles;
+            if (joined != null) {
+                return joined.length() <= maxLength ? joined : joined.substring(0, maxLength);
+            }
+            StringBuilder builder = new StringBuilder(Math.min(maxLength, 256));
+            for (int i = 0; i < songTitleParts.length && builder.length() < maxLength; i++) {
+                if (i > 0) {
+                    builder.append(TITLE_SEPARATOR);
+                }
+                builder.append(songTitleParts[i]);
+            }
+            builder.setLength(Math.min(builder.length(), maxLength));
+            return builder.toString();
+        }
+
         @Override
         public String toString() {
             return "AlbumSummaryDTO{" +
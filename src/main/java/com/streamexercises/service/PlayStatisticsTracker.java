@@ -0,0 +1,227 @@
+package com.streamexercises.service;
+
+import com.streamexercises.collection.IntIntHashMap;
+import com.streamexercises.model.User;
+import com.streamexercises.model.UserListener;
+
+import java.util.Collection;
+import java.util.IntSummaryStatistics;
+import java.util.Map;
+
+/**
+ * Live count / sum / min / max of users' total play counts, partitioned by premium status:
+ * the result of {@code partitioningBy(User::isPremium, summarizingInt(User::getTotalPlayCount))},
+ * maintained as plays are recorded rather than recomputed per request.
+ *
+ * Tracked users notify the tracker through a {@link UserListener}. The tracker re-reads
+ * the user's current total and status, then moves the user's entry between values or
+ * partitions. Because it re-reads instead of applying deltas, notifications that arrive
+ * out of order still end in the right state.
+ *
+ * Users are spread over stripes by id, each with its own lock, so ingest threads
+ * recording plays for different users rarely contend. Each stripe keeps a histogram per
+ * partition (total → number of users) in a primitive map, so min and max survive
+ * decreases and users leaving a partition. A {@link #snapshot()} merges the stripes in
+ * O(stripes), plus one histogram scan for a stripe whose min or max user moved. Each
+ * stripe is read consistently, but plays recorded during the merge may show in some
+ * stripes and not others.
+ */
+public final class PlayStatisticsTracker {
+
+    private static final int STRIPES = 16;
+    private static final int FREE = 0;
+    private static final int PREMIUM = 1;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final UserListener listener = new UserListener() {
+        @Override
+        public void playCountChanged(User user) {
+            refresh(user);
+        }
+
+        @Override
+        public void premiumChanged(User user) {
+            refresh(user);
+        }
+    };
+
+    public PlayStatisticsTracker() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    public PlayStatisticsTracker(Collection<User> users) {
+        this();
+        users.forEach(this::track);
+    }
+
+    /**
+     * Starts following the user; returns false if it was already tracked.
+     */
+    public boolean track(User user) {
+        Stripe stripe = stripeOf(user);
+        synchronized (stripe) {
+            if (stripe.totals.containsKey(user.getIntId())) {
+                return false;
+            }
+            // Register first: a change made before we read the user below is still seen by that read
+            user.addListener(listener);
+            int total = user.getTotalPlayCount();
+            int partition = partitionOf(user);
+            stripe.totals.put(user.getIntId(), total);
+            stripe.partitions.put(user.getIntId(), partition);
+            stripe.add(partition, total);
+            return true;
+        }
+    }
+
+    /**
+     * Stops following the user and removes it from the statistics; returns false if it was not tracked.
+     */
+    public boolean untrack(User user) {
+        Stripe stripe = stripeOf(user);
+        synchronized (stripe) {
+            int id = user.getIntId();
+            if (!stripe.totals.containsKey(id)) {
+                return false;
+            }
+            user.removeListener(listener);
+            stripe.remove(stripe.partitions.remove(id, FREE), stripe.totals.remove(id, 0));
+            return true;
+        }
+    }
+
+    /**
+     * Premium (true) and free (false) statistics, like {@code partitioningBy} with
+     * {@code summarizingInt}: both keys are always present.
+     */
+    public Map<Boolean, IntSummaryStatistics> snapshot() {
+        return Map.of(false, statistics(false), true, statistics(true));
+    }
+
+    public IntSummaryStatistics statistics(boolean premium) {
+        int partition = premium ? PREMIUM : FREE;
+        long count = 0;
+        long sum = 0;
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                Partition totals = stripe.partition(partition);
+                if (totals.count > 0) {
+                    count += totals.count;
+                    sum += totals.sum;
+                    min = Math.min(min, totals.min());
+                    max = Math.max(max, totals.max());
+                }
+            }
+        }
+        return new IntSummaryStatistics(count, min, max, sum);
+    }
+
+    private void refresh(User user) {
+        Stripe stripe = stripeOf(user);
+        synchronized (stripe) {
+            int id = user.getIntId();
+            if (!stripe.totals.containsKey(id)) {
+                return; // untracked while the notification was in flight
+            }
+            int total = user.getTotalPlayCount();
+            int partition = partitionOf(user);
+            int previousTotal = stripe.totals.put(id, total, 0);
+            int previousPartition = stripe.partitions.put(id, partition, FREE);
+            if (previousTotal != total || previousPartition != partition) {
+                // Add before removing: a user moving past the current max then never invalidates it
+                stripe.add(partition, total);
+                stripe.remove(previousPartition, previousTotal);
+            }
+        }
+    }
+
+    private Stripe stripeOf(User user) {
+        return stripes[user.getIntId() & (STRIPES - 1)];
+    }
+
+    private static int partitionOf(User user) {
+        return user.isPremium() ? PREMIUM : FREE;
+    }
+
+    /**
+     * Users whose id falls in this stripe; guarded by the stripe's monitor.
+     */
+    private static final class Stripe {
+        final IntIntHashMap totals = new IntIntHashMap(); // user id → last seen total
+        final IntIntHashMap partitions = new IntIntHashMap(); // user id → FREE or PREMIUM
+        final Partition free = new Partition();
+        final Partition premium = new Partition();
+
+        Partition partition(int partition) {
+            return partition == PREMIUM ? premium : free;
+        }
+
+        void add(int partition, int total) {
+            partition(partition).add(total);
+        }
+
+        void remove(int partition, int total) {
+            partition(partition).remove(total);
+        }
+    }
+
+    /**
+     * Totals of one partition of a stripe. The histogram (total → number of users) lets
+     * min and max survive removals: when the last user at the min or max leaves, the
+     * bound is marked stale and recomputed from the histogram on the next read, so
+     * recording a play stays O(1).
+     */
+    private static final class Partition {
+        final IntIntHashMap histogram = new IntIntHashMap();
+        long count;
+        long sum;
+        private int min = Integer.MAX_VALUE;
+        private int max = Integer.MIN_VALUE;
+        private boolean stale;
+
+        void add(int total) {
+            histogram.addTo(total, 1);
+            count++;
+            sum += total;
+            if (!stale) {
+                min = Math.min(min, total);
+                max = Math.max(max, total);
+            }
+        }
+
+        void remove(int total) {
+            if (histogram.addTo(total, -1) == 0) {
+                histogram.remove(total, 0);
+                stale |= total == min || total == max;
+            }
+            count--;
+            sum -= total;
+        }
+
+        int min() {
+            refreshBounds();
+            return min;
+        }
+
+        int max() {
+            refreshBounds();
+            return max;
+        }
+
+        private void refreshBounds() {
+            if (stale) {
+                min = Integer.MAX_VALUE;
+                max = Integer.MIN_VALUE;
+                histogram.forEach((total, users) -> {
+                    min = Math.min(min, total);
+                    max = Math.max(max, total);
+                });
+                stale = false;
+            }
+        }
+    }
+}
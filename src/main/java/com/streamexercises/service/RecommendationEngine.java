@@ -0,0 +1,619 @@
+package com.streamexercises.service;
+
+import com.streamexercises.collection.DenseIdMap;
+import com.streamexercises.collection.IntIntHashMap;
+import com.streamexercises.collection.IntSorts;
+import com.streamexercises.model.Album;
+import com.streamexercises.model.ArtistDictionary;
+import com.streamexercises.model.Genre;
+import com.streamexercises.model.Song;
+import com.streamexercises.model.SongListener;
+import com.streamexercises.model.User;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Personalized song recommendations (exercise 10) over a prebuilt index, without scoring
+ * the whole catalog.
+ *
+ * A song's score is {@code 10 (favorite primary genre) + 2 per favorite secondary genre
+ * + popularity / 2 + 20 (by an artist of a favorite album)}. All bonus terms depend only
+ * on which lists the song is in, so the index keeps song positions sorted by descending
+ * popularity:
+ * - one list over all songs
+ * - one list per primary genre and one per secondary genre
+ * - one list per credited artist
+ * Each list also records the primary and secondary genres of its songs and the most
+ * secondary genres on one song, so a query can bound the bonus its songs can get.
+ *
+ * A query walks the lists relevant to the user (all songs, the favorite genres' lists,
+ * the favorite artists' lists) and keeps the best {@code k} scores. Every song has one
+ * list responsible for it: a favorite artist's list if it has one, else its favorite
+ * primary genre's list, else a favorite secondary genre's list, else the all-songs list.
+ * An unseen song scores at most its responsible list's bonus bound plus half the
+ * popularity at that list's head, so the bound of a genre list leaves out the artist
+ * bonus, and that of a secondary genre list also the primary genre bonus. The walk
+ * always advances the list with the highest bound and stops once the k-th best score
+ * beats them all (the threshold algorithm). Popular favorites are usually found after a
+ * few dozen songs, whatever the catalog size.
+ *
+ * Results equal scoring every song and stably sorting by descending score: equal scores
+ * keep the order of the constructor's list. Songs are scored with the popularity of the
+ * lists walked, so a query is consistent with one state of the index even while
+ * popularity changes. The engine listens to its songs: a popularity
+ * change is appended to a log of changes since the lists were built, which is never
+ * copied per change. Queries score every logged song at its latest popularity before
+ * walking, and skip logged songs in the lists. Once {@value #CHANGES_BEFORE_MERGE}
+ * changes are logged, they are merged into new lists in O(n) on
+ * {@link BackgroundRebuilds#EXECUTOR} and published for later queries; changes logged
+ * meanwhile carry over. Queries never rebuild anything and are safe from many threads.
+ * The listeners keep the engine reachable from its songs until {@link #close()}.
+ */
+public final class RecommendationEngine {
+
+    static final int DEFAULT_RECOMMENDATIONS = 10;
+    private static final double PRIMARY_GENRE_BONUS = 10.0;
+    private static final double SECONDARY_GENRE_BONUS = 2.0;
+    private static final double POPULARITY_WEIGHT = 0.5;
+    private static final double ARTIST_BONUS = 20.0;
+    // Bounds are summed in a different order than scores; allow for rounding
+    private static final double BOUND_SLACK = 1e-9;
+    // Changes logged beside the lists before they are merged in
+    static final int CHANGES_BEFORE_MERGE = 64;
+
+    private final Song[] songs;
+    private final IntIntHashMap firstPositionBySongId;
+    private final int[] nextPositionOfSong; // later positions of a song listed twice, -1 after the last
+    private final Object changeLock = new Object(); // serializes writers of index
+    private volatile Index index;
+    private boolean mergeScheduled; // guarded by changeLock
+    private final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+    private final SongListener popularityTracker = new SongListener() {
+        @Override
+        public void popularityChanged(Song song, double oldPopularity, double newPopularity) {
+            onPopularityChanged(song);
+        }
+    };
+
+    public RecommendationEngine(List<Song> songs) {
+        this.songs = songs.toArray(new Song[0]);
+        int count = this.songs.length;
+        this.firstPositionBySongId = new IntIntHashMap(count);
+        this.nextPositionOfSong = new int[count];
+        int[] lastPosition = new int[count];
+        synchronized (changeLock) {
+            // Listen before reading: changes from here on wait for the lock and are applied after the build
+            for (int position = 0; position < count; position++) {
+                nextPositionOfSong[position] = -1;
+                int first = firstPositionBySongId.put(this.songs[position].getIntId(), position, -1);
+                if (first >= 0) {
+                    firstPositionBySongId.put(this.songs[position].getIntId(), first);
+                    nextPositionOfSong[lastPosition[first]] = position;
+                    lastPosition[first] = position;
+                } else {
+                    lastPosition[position] = position;
+                    this.songs[position].addListener(popularityTracker);
+                }
+            }
+            double[] popularity = new double[count];
+            int[] order = new int[count];
+            for (int position = 0; position < count; position++) {
+                popularity[position] = this.songs[position].getPopularity();
+                order[position] = position;
+            }
+            IntSorts.stableSort(order, (a, b) -> Double.compare(popularity[b], popularity[a]));
+            this.index = new Index(new PostingLists(this.songs, popularity, order));
+        }
+    }
+
+    public int size() {
+        return songs.length;
+    }
+
+    /**
+     * Stops following popularity changes of the songs. Later queries use the popularity
+     * as of the last change seen.
+     */
+    public void close() {
+        for (int position = 0; position < songs.length; position++) {
+            if (firstPositionBySongId.get(songs[position].getIntId()) == position) {
+                songs[position].removeListener(popularityTracker);
+            }
+        }
+    }
+
+    /**
+     * The {@code k} best-scoring songs the user has not played, best first.
+     */
+    public List<Song> recommend(User user, int k) {
+        checkCount(k);
+        Index current = index;
+        return recommend(user, k, current, current.changeCount, scratch.get());
+    }
+
+    /**
+     * Recommendations for many users against one shared state of the posting lists,
+     * produced lazily as the stream is consumed, in user order unless consumed unordered.
+     *
+     * With {@code parallel}, users are scored on the common fork-join pool, each thread
+     * reusing its own walk buffers. Results equal calling {@link #recommend(User, int)}
+     * per user. Popularity changes made while the stream is consumed are picked up by the
+     * next batch.
+     */
+    public Stream<UserRecommendations> recommendAll(List<User> users, int k, boolean parallel) {
+        checkCount(k);
+        Index pinned = index;
+        int pinnedChanges = pinned.changeCount;
+        return (parallel ? users.parallelStream() : users.stream())
+                .map(user -> new UserRecommendations(user, recommend(user, k, pinned, pinnedChanges, scratch.get())));
+    }
+
+    /**
+     * A user's recommendations, best first.
+     */
+    public record UserRecommendations(User user, List<Song> songs) {}
+
+    /**
+     * Entries the calling thread's last query took from the lists, for checking how early
+     * walks stop.
+     */
+    int lastWalkLength() {
+        return scratch.get().walked;
+    }
+
+    // Scores with the lists and the first changes logged in the index
+    private List<Song> recommend(User user, int k, Index index, int changes, Scratch buffers) {
+        PostingLists lists = index.lists;
+        int favoriteGenres = user.getFavoriteGenreMask() & Genre.ALL_MASK;
+        int[] favoriteArtistIds = favoriteArtistIds(user);
+
+        // A list's bound only has to cover the songs it is responsible for: songs of favorite
+        // artists are covered by the artist lists, other songs with a favorite primary genre
+        // by that genre's list, and the rest with a favorite secondary genre by those lists
+        buffers.reset();
+        buffers.add(lists.all, 0.0);
+        for (int remaining = favoriteGenres; remaining != 0; remaining &= remaining - 1) {
+            int genre = Integer.numberOfTrailingZeros(remaining);
+            PostingList primary = lists.byPrimaryGenre[genre];
+            buffers.add(primary.positions, PRIMARY_GENRE_BONUS + primary.secondaryBonusBound(favoriteGenres));
+            PostingList secondary = lists.bySecondaryGenre[genre];
+            buffers.add(secondary.positions, secondary.secondaryBonusBound(favoriteGenres));
+        }
+        for (int artistId : favoriteArtistIds) {
+            PostingList artistSongs = lists.byArtist.get(artistId);
+            if (artistSongs != null) {
+                buffers.add(artistSongs.positions, ARTIST_BONUS
+                        + artistSongs.primaryBonusBound(favoriteGenres)
+                        + artistSongs.secondaryBonusBound(favoriteGenres));
+            }
+        }
+        for (int source = 0; source < buffers.count; source++) {
+            skipChanged(buffers, source, index, changes);
+        }
+
+        Selection selection = new Selection(k);
+        IntIntHashMap seen = buffers.seen;
+        // Changed songs are few: score each at its latest logged popularity instead of bounding them
+        int[] changedPositions = index.changedPositions; // read after the count: entries below it are written
+        double[] changedPopularity = index.changedPopularity;
+        for (int i = changes - 1; i >= 0 && k > 0; i--) {
+            int position = changedPositions[i];
+            buffers.walked++;
+            Song song = songs[position];
+            if (seen.put(position, 1, 0) == 0 && !user.hasPlayed(song.getIntId())) {
+                selection.offer(score(song, changedPopularity[i], favoriteGenres, favoriteArtistIds), position);
+            }
+        }
+        while (k > 0) {
+            int source = mostPromisingSource(buffers, lists);
+            if (source < 0) {
+                break;
+            }
+            int cursor = buffers.cursors[source];
+            int position = buffers.lists[source][cursor];
+            if (selection.isFull() && selection.lowestScore() > bound(buffers, source, lists) + BOUND_SLACK) {
+                break; // no song left in any list can beat the current k-th score
+            }
+            buffers.cursors[source] = cursor + 1;
+            skipChanged(buffers, source, index, changes);
+            buffers.walked++;
+            if (seen.put(position, 1, 0) != 0) {
+                continue;
+            }
+            Song song = songs[position];
+            if (!user.hasPlayed(song.getIntId())) {
+                // Score with the popularity the lists were built with, not the live value
+                selection.offer(score(song, lists.popularity[position], favoriteGenres, favoriteArtistIds), position);
+            }
+        }
+        return selection.songs(songs);
+    }
+
+    /**
+     * Same result as {@link #recommend(User, int)}, computed by scoring every song in one
+     * pass with a bounded selection. For one-off calls where building an index does not pay.
+     */
+    static List<Song> scan(User user, List<Song> songs, int k) {
+        int favoriteGenres = user.getFavoriteGenreMask();
+        int[] favoriteArtistIds = favoriteArtistIds(user);
+        Selection selection = new Selection(k);
+        Song[] candidates = songs.toArray(new Song[0]);
+        for (int position = 0; position < candidates.length; position++) {
+            Song song = candidates[position];
+            if (!user.hasPlayed(song.getIntId())) {
+                selection.offer(score(song, favoriteGenres, favoriteArtistIds), position);
+            }
+        }
+        return selection.songs(candidates);
+    }
+
+    static double score(Song song, int favoriteGenres, int[] favoriteArtistIds) {
+        return score(song, song.getPopularity(), favoriteGenres, favoriteArtistIds);
+    }
+
+    // Score with the given popularity in place of the song's current one
+    private static double score(Song song, double popularity, int favoriteGenres, int[] favoriteArtistIds) {
+        Genre primaryGenre = song.getPrimaryGenre();
+        double genreScore = primaryGenre != null && (favoriteGenres & primaryGenre.mask()) != 0 ? PRIMARY_GENRE_BONUS : 0.0;
+        double secondaryGenreScore = Integer.bitCount(song.getSecondaryGenreMask() & favoriteGenres) * SECONDARY_GENRE_BONUS;
+        double popularityScore = popularity * POPULARITY_WEIGHT;
+        double artistBonus = song.hasAnyArtist(favoriteArtistIds) ? ARTIST_BONUS : 0.0;
+        return genreScore + secondaryGenreScore + popularityScore + artistBonus;
+    }
+
+    // Artist ids of the user's favorite albums, sorted and distinct for binary search
+    static int[] favoriteArtistIds(User user) {
+        return user.getFavoriteAlbums().stream()
+                .mapToInt(Album::getArtistId)
+                .filter(artistId -> artistId != ArtistDictionary.NO_ARTIST)
+                .sorted()
+                .distinct()
+                .toArray();
+    }
+
+    private static void checkCount(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative: " + k);
+        }
+    }
+
+    // Logs the song's new popularity, scheduling a merge once enough changes are logged
+    private void onPopularityChanged(Song song) {
+        int first = firstPositionBySongId.getOrDefault(song.getIntId(), -1);
+        if (first < 0) {
+            return;
+        }
+        synchronized (changeLock) {
+            // Read under the lock: racing callbacks may arrive in any order, the last one wins
+            double popularity = song.getPopularity();
+            Index current = index;
+            for (int position = first; position >= 0; position = nextPositionOfSong[position]) {
+                current.appendChange(position, popularity);
+            }
+            scheduleMergeIfDue();
+        }
+    }
+
+    // Caller holds changeLock
+    private void scheduleMergeIfDue() {
+        if (!mergeScheduled && index.changeCount >= CHANGES_BEFORE_MERGE) {
+            mergeScheduled = true;
+            BackgroundRebuilds.EXECUTOR.execute(this::merge);
+        }
+    }
+
+    // Changes logged after the marked count may be missed by the merge, so they carry over to the new log
+    private void merge() {
+        Index current;
+        int merged;
+        synchronized (changeLock) {
+            current = index;
+            merged = current.changeCount;
+        }
+        PostingLists lists = current.merged(songs, merged);
+        synchronized (changeLock) {
+            mergeScheduled = false;
+            Index next = new Index(lists);
+            for (int i = merged; i < current.changeCount; i++) {
+                next.appendChange(current.changedPositions[i], current.changedPopularity[i]);
+            }
+            index = next;
+            scheduleMergeIfDue();
+        }
+    }
+
+    // Logged changes, for tests
+    int pendingChanges() {
+        return index.changeCount;
+    }
+
+    // Source whose next song has the highest score bound, ties to the lower position; -1 when all are exhausted
+    private static int mostPromisingSource(Scratch buffers, PostingLists lists) {
+        int best = -1;
+        double bestBound = 0.0;
+        int bestPosition = 0;
+        for (int source = 0; source < buffers.count; source++) {
+            int[] list = buffers.lists[source];
+            if (buffers.cursors[source] == list.length) {
+                continue;
+            }
+            int position = list[buffers.cursors[source]];
+            double bound = bound(buffers, source, lists);
+            if (best < 0 || bound > bestBound || (bound == bestBound && position < bestPosition)) {
+                best = source;
+                bestBound = bound;
+                bestPosition = position;
+            }
+        }
+        return best;
+    }
+
+    // Highest score of a song not yet taken from the source among those it is responsible for
+    private static double bound(Scratch buffers, int source, PostingLists lists) {
+        return buffers.bonuses[source] + lists.popularity[buffers.lists[source][buffers.cursors[source]]] * POPULARITY_WEIGHT;
+    }
+
+    // Advances a list past changed songs, which are scored from the log instead
+    private static void skipChanged(Scratch buffers, int source, Index index, int changes) {
+        if (changes == 0) {
+            return;
+        }
+        int[] list = buffers.lists[source];
+        int cursor = buffers.cursors[source];
+        while (cursor < list.length && index.isChanged(list[cursor], changes)) {
+            cursor++;
+        }
+        buffers.cursors[source] = cursor;
+    }
+
+    /**
+     * Posting lists plus the log of popularity changes since they were built. The log is
+     * appended by writers holding changeLock and only grows, doubling its arrays when
+     * full: a reader takes the change count first and then sees every entry below it, so
+     * a query is consistent with the state at that count.
+     */
+    private static final class Index {
+        private static final int NOT_CHANGED = Integer.MAX_VALUE;
+
+        final PostingLists lists;
+        private final int[] firstChange; // by position: log index of its first change, or NOT_CHANGED
+        volatile int[] changedPositions = new int[CHANGES_BEFORE_MERGE];
+        volatile double[] changedPopularity = new double[CHANGES_BEFORE_MERGE]; // by log index
+        volatile int changeCount;
+
+        Index(PostingLists lists) {
+            this.lists = lists;
+            this.firstChange = new int[lists.all.length];
+            Arrays.fill(firstChange, NOT_CHANGED);
+        }
+
+        // Whether the position changed within the first count log entries
+        boolean isChanged(int position, int count) {
+            return firstChange[position] < count;
+        }
+
+        // Caller holds changeLock; arrays are published before the count that covers the entry
+        void appendChange(int position, double popularity) {
+            int count = changeCount;
+            if (count == changedPositions.length) {
+                changedPositions = Arrays.copyOf(changedPositions, count * 2);
+                changedPopularity = Arrays.copyOf(changedPopularity, count * 2);
+            }
+            changedPositions[count] = position;
+            changedPopularity[count] = popularity;
+            if (firstChange[position] == NOT_CHANGED) {
+                firstChange[position] = count;
+            }
+            changeCount = count + 1;
+        }
+
+        // Lists with the first count changes merged in, in O(songs + postings)
+        PostingLists merged(Song[] songs, int count) {
+            int[] positions = changedPositions; // read after the count: entries below it are written
+            double[] changes = changedPopularity;
+            double[] popularity = lists.popularity.clone();
+            BitSet changed = new BitSet(songs.length);
+            for (int i = 0; i < count; i++) {
+                popularity[positions[i]] = changes[i]; // later entries win
+                changed.set(positions[i]);
+            }
+            int[] changedOrder = changed.stream().toArray();
+            IntSorts.stableSort(changedOrder, (a, b) -> Double.compare(popularity[b], popularity[a]));
+            int[] order = new int[songs.length];
+            int unchanged = 0;
+            int moved = 0;
+            for (int i = 0; i < order.length; i++) {
+                while (unchanged < lists.all.length && changed.get(lists.all[unchanged])) {
+                    unchanged++;
+                }
+                if (moved == changedOrder.length || (unchanged < lists.all.length
+                        && before(popularity[lists.all[unchanged]], lists.all[unchanged],
+                                  popularity[changedOrder[moved]], changedOrder[moved]))) {
+                    order[i] = lists.all[unchanged++];
+                } else {
+                    order[i] = changedOrder[moved++];
+                }
+            }
+            return new PostingLists(songs, popularity, order);
+        }
+
+        private static boolean before(double popularity, int position, double otherPopularity, int otherPosition) {
+            return popularity > otherPopularity || (popularity == otherPopularity && position < otherPosition);
+        }
+    }
+
+    /**
+     * Song positions by descending popularity as of one build.
+     */
+    private static final class PostingLists {
+        final double[] popularity; // by position
+        final int[] all;
+        final PostingList[] byPrimaryGenre = new PostingList[Genre.values().length];
+        final PostingList[] bySecondaryGenre = new PostingList[Genre.values().length];
+        final DenseIdMap<PostingList> byArtist = new DenseIdMap<>();
+
+        // order holds all positions by descending popularity, ties to the lower position
+        PostingLists(Song[] songs, double[] popularity, int[] order) {
+            this.popularity = popularity;
+            this.all = order;
+
+            // Count, then fill in popularity order so every list comes out sorted
+            int genres = Genre.values().length;
+            int[] primaryCounts = new int[genres];
+            int[] secondaryCounts = new int[genres];
+            IntIntHashMap artistCounts = new IntIntHashMap();
+            for (Song song : songs) {
+                if (song.getPrimaryGenre() != null) {
+                    primaryCounts[song.getPrimaryGenre().ordinal()]++;
+                }
+                Genre.forEach(song.getSecondaryGenreMask(), genre -> secondaryCounts[genre.ordinal()]++);
+                song.forEachArtistId(artistId -> artistCounts.addTo(artistId, 1));
+            }
+            for (int genre = 0; genre < genres; genre++) {
+                byPrimaryGenre[genre] = new PostingList(primaryCounts[genre]);
+                bySecondaryGenre[genre] = new PostingList(secondaryCounts[genre]);
+            }
+            artistCounts.forEach((artistId, songCount) -> byArtist.put(artistId, new PostingList(songCount)));
+
+            for (int position : order) {
+                Song song = songs[position];
+                if (song.getPrimaryGenre() != null) {
+                    byPrimaryGenre[song.getPrimaryGenre().ordinal()].append(position, song);
+                }
+                Genre.forEach(song.getSecondaryGenreMask(), genre ->
+                        bySecondaryGenre[genre.ordinal()].append(position, song));
+                song.forEachArtistId(artistId -> byArtist.get(artistId).append(position, song));
+            }
+        }
+    }
+
+    /**
+     * One bonus list, with what its songs have in common for bounding their bonus.
+     */
+    private static final class PostingList {
+        final int[] positions;
+        private int filled;
+        int primaryGenres; // every primary genre of a song in the list
+        int secondaryGenres; // every secondary genre of a song in the list
+        int maxSecondaryGenres; // most secondary genres on one song
+
+        PostingList(int length) {
+            this.positions = new int[length];
+        }
+
+        void append(int position, Song song) {
+            positions[filled++] = position;
+            if (song.getPrimaryGenre() != null) {
+                primaryGenres |= song.getPrimaryGenre().mask();
+            }
+            int secondary = song.getSecondaryGenreMask();
+            secondaryGenres |= secondary;
+            maxSecondaryGenres = Math.max(maxSecondaryGenres, Integer.bitCount(secondary));
+        }
+
+        double primaryBonusBound(int favoriteGenres) {
+            return (primaryGenres & favoriteGenres) != 0 ? PRIMARY_GENRE_BONUS : 0.0;
+        }
+
+        double secondaryBonusBound(int favoriteGenres) {
+            return Math.min(Integer.bitCount(secondaryGenres & favoriteGenres), maxSecondaryGenres) * SECONDARY_GENRE_BONUS;
+        }
+    }
+
+    /**
+     * Per-thread buffers for one walk at a time: the lists walked, with their bonus bound
+     * and cursor.
+     */
+    private static final class Scratch {
+        private static final int SEEN_CAPACITY = 1024;
+        private static final int SEEN_RETAINED = 4 * SEEN_CAPACITY; // larger maps are dropped, not cleared
+
+        IntIntHashMap seen = new IntIntHashMap(SEEN_CAPACITY);
+        int[][] lists = new int[32][];
+        double[] bonuses = new double[32];
+        int[] cursors = new int[32];
+        int count;
+        int walked;
+
+        void reset() {
+            Arrays.fill(lists, 0, count, null);
+            count = 0;
+            walked = 0;
+            // Clearing costs the map's capacity, which a rare deep walk may have grown a lot
+            if (seen.size() > SEEN_RETAINED) {
+                seen = new IntIntHashMap(SEEN_CAPACITY);
+            } else {
+                seen.clear();
+            }
+        }
+
+        void add(int[] list, double bonus) {
+            if (list.length == 0) {
+                return;
+            }
+            if (count == lists.length) {
+                lists = Arrays.copyOf(lists, count * 2);
+                bonuses = Arrays.copyOf(bonuses, count * 2);
+                cursors = Arrays.copyOf(cursors, count * 2);
+            }
+            lists[count] = list;
+            bonuses[count] = bonus;
+            cursors[count] = 0;
+            count++;
+        }
+    }
+
+    /**
+     * The best {@code k} (score, position) pairs, best first; equal scores by lower position.
+     * Insertion into a sorted array: k is small.
+     */
+    private static final class Selection {
+        private final int[] positions;
+        private final double[] scores;
+        private int size;
+
+        Selection(int k) {
+            this.positions = new int[k];
+            this.scores = new double[k];
+        }
+
+        void offer(double score, int position) {
+            int k = positions.length;
+            if (size == k && (k == 0 || !better(score, position, scores[k - 1], positions[k - 1]))) {
+                return;
+            }
+            int slot = size < k ? size++ : k - 1;
+            while (slot > 0 && better(score, position, scores[slot - 1], positions[slot - 1])) {
+                scores[slot] = scores[slot - 1];
+                positions[slot] = positions[slot - 1];
+                slot--;
+            }
+            scores[slot] = score;
+            positions[slot] = position;
+        }
+
+        boolean isFull() {
+            return size == positions.length;
+        }
+
+        double lowestScore() {
+            return scores[size - 1];
+        }
+
+        List<Song> songs(Song[] songs) {
+            List<Song> result = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                result.add(songs[positions[i]]);
+            }
+            return result;
+        }
+
+        private static boolean better(double score, int position, double otherScore, int otherPosition) {
+            return score > otherScore || (score == otherScore && position < otherPosition);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.streamexercises.service;
+
+import com.streamexercises.collection.TopKSelector;
+import com.streamexercises.model.Genre;
+import com.streamexercises.model.Playlist;
+import com.streamexercises.model.Song;
+import com.streamexercises.model.User;
+import com.streamexercises.service.MusicAnalyticsService.UserStatisticsDTO;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.IntFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Computes {@link UserStatisticsDTO}s for large batches of users.
+ *
+ * Song and playlist-owner lookups are supplied once, typically from a
+ * {@link com.streamexercises.model.Catalog}'s prebuilt indexes. Each user's top songs are
+ * selected with a bounded heap straight from the play-count store. The heap and id buffer
+ * are scratch objects reused per thread, so a user costs only its output objects.
+ *
+ * In parallel mode, users are processed in fixed-size chunks on the common fork-join pool.
+ * Results are written by position and then collected into the map in user order. Sequential
+ * and parallel runs give the same result.
+ */
+public final class UserStatisticsEngine {
+
+    static final int DEFAULT_TOP_SONGS = 5;
+    private static final int CHUNK_SIZE = 1024;
+
+    private final IntFunction<Song> songLookup;
+    private final IntFunction<List<Playlist>> playlistsByOwner;
+    private final int topSongCount;
+    private final ThreadLocal<Scratch> scratch;
+
+    public UserStatisticsEngine(IntFunction<Song> songLookup, IntFunction<List<Playlist>> playlistsByOwner) {
+        this(songLookup, playlistsByOwner, DEFAULT_TOP_SONGS);
+    }
+
+    /**
+     * @param songLookup       dense song id → song, null for unknown ids
+     * @param playlistsByOwner dense user id → owned playlists, never null
+     * @param topSongCount     number of most played songs per user
+     */
+    public UserStatisticsEngine(IntFunction<Song> songLookup, IntFunction<List<Playlist>> playlistsByOwner,
+                                int topSongCount) {
+        if (topSongCount < 0) {
+            throw new IllegalArgumentException("topSongCount must not be negative: " + topSongCount);
+        }
+        this.songLookup = songLookup;
+        this.playlistsByOwner = playlistsByOwner;
+        this.topSongCount = topSongCount;
+        this.scratch = ThreadLocal.withInitial(() -> new Scratch(topSongCount));
+    }
+
+    /**
+     * Username → statistics for every user.
+     *
+     * @throws IllegalStateException if two users have the same username
+     */
+    public Map<String, UserStatisticsDTO> compute(List<User> users, boolean parallel) {
+        UserStatisticsDTO[] results = new UserStatisticsDTO[users.size()];
+        int chunks = (users.size() + CHUNK_SIZE - 1) / CHUNK_SIZE;
+        IntStream chunkIndexes = IntStream.range(0, chunks);
+        (parallel ? chunkIndexes.parallel() : chunkIndexes).forEach(chunk -> {
+            Scratch buffers = scratch.get();
+            int end = Math.min(users.size(), (chunk + 1) * CHUNK_SIZE);
+            for (int i = chunk * CHUNK_SIZE; i < end; i++) {
+                results[i] = statistics(users.get(i), buffers);
+            }
+        });
+
+        Map<String, UserStatisticsDTO> byUsername = new HashMap<>(results.length * 4 / 3 + 1);
+        for (UserStatisticsDTO result : results) {
+            if (byUsername.putIfAbsent(result.getUsername(), result) != null) {
+                throw new IllegalStateException("Duplicate key " + result.getUsername());
+            }
+        }
+        return byUsername;
+    }
+
+    public UserStatisticsDTO statistics(User user) {
+        return statistics(user, scratch.get());
+    }
+
+    private UserStatisticsDTO statistics(User user, Scratch buffers) {
+        int count = user.getTopPlayedSongIds(buffers.selector, buffers.songIds);
+        List<Song> topSongs = new ArrayList<>(count);
+        int genreMask = 0;
+        boolean withoutGenre = false;
+        for (int i = 0; i < count; i++) {
+            Song song = songLookup.apply(buffers.songIds[i]);
+            if (song != null) {
+                topSongs.add(song);
+                Genre genre = song.getPrimaryGenre();
+                if (genre != null) {
+                    genreMask |= genre.mask();
+                } else {
+                    withoutGenre = true;
+                }
+            }
+        }
+        Set<Genre> mostPlayedGenres;
+        if (withoutGenre) {
+            mostPlayedGenres = new HashSet<>(Genre.fromMask(genreMask));
+            mostPlayedGenres.add(null);
+        } else {
+            mostPlayedGenres = Genre.fromMask(genreMask);
+        }
+
+        return new UserStatisticsDTO(
+                user.getUsername(),
+                user.isPremium(),
+                user.getTotalPlayCount(),
+                playlistsByOwner.apply(user.getIntId()).size(),
+                topSongs,
+                mostPlayedGenres);
+    }
+
+    private static final class Scratch {
+        final TopKSelector selector;
+        final int[] songIds;
+
+        Scratch(int topSongCount) {
+            this.selector = new TopKSelector(topSongCount);
+            this.songIds = new int[topSongCount];
+        }
+    }
+}
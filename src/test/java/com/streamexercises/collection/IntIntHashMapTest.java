@@ -0,0 +1,71 @@
+package com.streamexercises.collection;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the primitive int→int map.
+ */
+public class IntIntHashMapTest {
+
+    @Test
+    @DisplayName("Random puts, increments and removals match a HashMap")
+    void testAgainstHashMap() {
+        IntIntHashMap map = new IntIntHashMap();
+        Map<Integer, Integer> expected = new HashMap<>();
+        SplittableRandom random = new SplittableRandom(42);
+
+        for (int i = 0; i < 200_000; i++) {
+            int key = random.nextInt(5_000);
+            switch (random.nextInt(3)) {
+                case 0 -> assertEquals(expected.merge(key, 3, Integer::sum), map.addTo(key, 3));
+                case 1 -> assertEquals(Objects.requireNonNullElse(expected.put(key, i), -1), map.put(key, i, -1));
+                default -> assertEquals(Objects.requireNonNullElse(expected.remove(key), -1), map.remove(key, -1));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        expected.forEach((key, value) -> assertEquals(value, map.getOrDefault(key, -1)));
+        Map<Integer, Integer> visited = new HashMap<>();
+        map.forEach(visited::put);
+        assertEquals(expected, visited);
+        assertEquals(expected.values().stream().mapToLong(Integer::longValue).sum(), map.sumValues());
+    }
+
+    @Test
+    @DisplayName("Top-k returns the largest values first and keeps iteration order on ties")
+    void testTopKeys() {
+        IntIntHashMap map = new IntIntHashMap();
+        map.put(1, 10);
+        map.put(2, 50);
+        map.put(3, 30);
+        map.put(4, 50);
+        map.put(5, 5);
+
+        int[] top = map.topKeysByValue(3);
+        assertEquals(3, top.length);
+        assertEquals(30, map.get(top[2]));
+        assertEquals(50, map.get(top[0]));
+        assertEquals(50, map.get(top[1]));
+
+        IntIntHashMap.Cursor cursor = map.cursor();
+        int firstFifty = -1;
+        while (cursor.advance()) {
+            if (cursor.value() == 50) {
+                firstFifty = cursor.key();
+                break;
+            }
+        }
+        assertEquals(firstFifty, top[0]);
+        assertEquals(5, map.topKeysByValue(10).length);
+        assertEquals(0, map.topKeysByValue(0).length);
+        assertThrows(IllegalArgumentException.class, () -> map.put(-1, 1));
+    }
+}
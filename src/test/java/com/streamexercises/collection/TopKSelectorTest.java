@@ -0,0 +1,62 @@
+package com.streamexercises.collection;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for bounded-heap top-K selection.
+ */
+public class TopKSelectorTest {
+
+    @Test
+    @DisplayName("Sequential and parallel selection equal a stable descending sort")
+    void testMatchesStableSort() {
+        Random random = new Random(16);
+        List<int[]> items = new ArrayList<>();
+        for (int i = 0; i < 200_000; i++) {
+            // Few distinct scores, so ties decide most of the order
+            items.add(new int[] {i, random.nextInt(50) - 10});
+        }
+        for (int k : new int[] {0, 1, 7, 100, 5_000, 250_000}) {
+            List<int[]> expected = items.stream()
+                    .sorted(Comparator.comparingInt((int[] item) -> item[1]).reversed())
+                    .limit(k)
+                    .collect(Collectors.toList());
+
+            assertEquals(expected, TopKSelector.top(items, k, item -> item[1], false), "k=" + k);
+            assertEquals(expected, TopKSelector.top(items, k, item -> item[1], true), "k=" + k);
+        }
+        // A linked list is copied rather than walked with get(i)
+        List<int[]> linked = new LinkedList<>(items);
+        assertEquals(TopKSelector.top(items, 100, item -> item[1], false),
+                TopKSelector.top(linked, 100, item -> item[1], true));
+    }
+
+    @Test
+    @DisplayName("Merged selectors keep the best candidates of both")
+    void testMerge() {
+        TopKSelector left = new TopKSelector(3);
+        TopKSelector right = new TopKSelector(3);
+        left.offer(5, 0);
+        left.offer(9, 1);
+        left.offer(1, 2);
+        right.offer(9, 3);
+        right.offer(7, 4);
+
+        left.merge(right);
+
+        assertArrayEquals(new int[] {1, 3, 4}, left.indexes());
+        assertTrue(left.isFull());
+        assertEquals(7, left.threshold());
+        assertThrows(IllegalArgumentException.class, () -> new TopKSelector(-1));
+    }
+}
@@ -0,0 +1,115 @@
+package com.streamexercises.generator;
+
+import com.streamexercises.model.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the synthetic data generator used by benchmarks and load tests.
+ */
+public class SyntheticCatalogGeneratorTest {
+
+    private static final long SEED = 42L;
+
+    private GeneratorConfig config;
+    private SyntheticCatalogGenerator generator;
+    private List<Song> songs;
+    private List<Album> albums;
+
+    @BeforeEach
+    void setUp() {
+        config = GeneratorConfig.defaults(SEED, 5_000, 300)
+                .withListensPerUser(50, 2_000)
+                .withPlaylists(3, 10, 200);
+        generator = new SyntheticCatalogGenerator(config);
+        songs = generator.songs().collect(Collectors.toList());
+        albums = generator.albums(songs).collect(Collectors.toList());
+    }
+
+    @Test
+    @DisplayName("Same seed produces the same catalog")
+    void testDeterministicCatalog() {
+        SyntheticCatalogGenerator again = new SyntheticCatalogGenerator(config);
+        List<Song> otherSongs = again.songs().collect(Collectors.toList());
+
+        assertEquals(songs.size(), otherSongs.size());
+        for (int i = 0; i < songs.size(); i++) {
+            Song expected = songs.get(i);
+            Song actual = otherSongs.get(i);
+            assertEquals(expected.getTitle(), actual.getTitle());
+            assertEquals(expected.getArtists(), actual.getArtists());
+            assertEquals(expected.getPrimaryGenre(), actual.getPrimaryGenre());
+            assertEquals(expected.getPlayCount(), actual.getPlayCount());
+            assertEquals(expected.getPopularity(), actual.getPopularity());
+        }
+    }
+
+    @Test
+    @DisplayName("Albums partition the catalog in order")
+    void testAlbumsCoverCatalog() {
+        List<Song> albumSongs = albums.stream()
+                .flatMap(album -> album.getSongs().stream())
+                .collect(Collectors.toList());
+
+        assertEquals(songs, albumSongs, "Albums should cover every song exactly once, in catalog order");
+    }
+
+    @Test
+    @DisplayName("Play counts follow the configured Zipf law")
+    void testZipfPlayCounts() {
+        int mostPlayedIndex = generator.songIndexOfRank(0);
+        int tenthIndex = generator.songIndexOfRank(9);
+
+        assertEquals(config.maxPlayCount(), songs.get(mostPlayedIndex).getPlayCount());
+        assertEquals(config.maxPlayCount() / 10, songs.get(tenthIndex).getPlayCount(), 1);
+        for (int i = 0; i < songs.size(); i++) {
+            assertEquals(i, generator.songIndexOfRank(generator.rankOfSongIndex(i)));
+        }
+    }
+
+    @Test
+    @DisplayName("Users and playlists are deterministic and respect the configured bounds")
+    void testUsersAndPlaylists() {
+        List<User> sequential = generator.users(songs, albums).collect(Collectors.toList());
+        List<User> parallel = generator.users(songs, albums).parallel().collect(Collectors.toList());
+
+        assertEquals(config.userCount(), sequential.size());
+        for (int i = 0; i < sequential.size(); i++) {
+            assertEquals(sequential.get(i).getUsername(), parallel.get(i).getUsername());
+            assertEquals(sequential.get(i).getFavoriteGenres(), parallel.get(i).getFavoriteGenres());
+            assertEquals(sequential.get(i).getListeningHistory().size(),
+                    parallel.get(i).getListeningHistory().size());
+            assertEquals(sequential.get(i).getListeningHistory().size(), sequential.get(i).getTotalPlayCount());
+        }
+
+        Set<String> ownerIds = sequential.stream().map(User::getId).collect(Collectors.toSet());
+        List<Playlist> playlists = generator.playlists(songs, sequential).collect(Collectors.toList());
+        assertFalse(playlists.isEmpty());
+        for (Playlist playlist : playlists) {
+            assertTrue(ownerIds.contains(playlist.getOwnerId()));
+            assertTrue(playlist.getNumberOfSongs() <= config.maxPlaylistSize());
+        }
+    }
+
+    @Test
+    @DisplayName("Zipf sampler favours low ranks")
+    void testZipfDistribution() {
+        ZipfDistribution zipf = new ZipfDistribution(1_000, 1.0);
+        SplittableRandom random = new SplittableRandom(SEED);
+        int[] counts = new int[1_001];
+        for (int i = 0; i < 100_000; i++) {
+            int rank = zipf.sample(random);
+            assertTrue(rank >= 1 && rank <= 1_000);
+            counts[rank]++;
+        }
+
+        assertTrue(counts[1] > counts[2] && counts[2] > counts[10] && counts[10] > counts[100]);
+        assertEquals(2.0, (double) counts[1] / counts[2], 0.2);
+    }
+}
@@ -0,0 +1,119 @@
+package com.streamexercises.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Year;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the running aggregates kept by Album.
+ */
+public class AlbumAggregatesTest {
+
+    @Test
+    @DisplayName("Aggregates follow added songs, play counts and popularity changes")
+    void testAggregatesFollowSongs() {
+        Song first = song("First", 10, 40.0);
+        Song second = song("Second", 20, 80.0);
+        Song third = song("Third", 30, 80.0);
+        Album album = new Album("Album", "Artist", Year.of(2020), List.of(first, second), Genre.POP, false);
+        album.addSong(third);
+
+        assertEquals(60, album.getTotalPlayCount());
+        assertEquals(200.0 / 3, album.getAveragePopularity(), 1e-9);
+        assertEquals(second, album.getMostPopularSong().orElseThrow());
+
+        IntStream.range(0, 1_000).parallel().forEach(i -> first.incrementPlayCount());
+        third.incrementPlayCount(5);
+        assertEquals(1_065, album.getTotalPlayCount());
+
+        // The top song drops: the next best, earliest in track order, takes over
+        second.updatePopularity(10.0);
+        assertEquals(third, album.getMostPopularSong().orElseThrow());
+        assertEquals(130.0 / 3, album.getAveragePopularity(), 1e-9);
+
+        // An earlier song tying with the top song wins the tie
+        first.updatePopularity(80.0);
+        assertEquals(first, album.getMostPopularSong().orElseThrow());
+        assertEquals(170.0 / 3, album.getAveragePopularity(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Removed songs and detached albums are no longer followed")
+    void testRemoveAndDetach() {
+        Song first = song("First", 10, 40.0);
+        Song second = song("Second", 20, 80.0);
+        Song third = song("Third", 30, 60.0);
+        Album album = new Album("Album", "Artist", Year.of(2020), List.of(first, second, third), Genre.POP, false);
+
+        assertTrue(album.removeSong(second));
+        assertFalse(album.removeSong(second));
+        assertEquals(40, album.getTotalPlayCount());
+        assertEquals(50.0, album.getAveragePopularity(), 1e-9);
+        assertEquals(third, album.getMostPopularSong().orElseThrow());
+
+        second.incrementPlayCount(100);
+        second.updatePopularity(100.0);
+        assertEquals(40, album.getTotalPlayCount());
+        assertEquals(third, album.getMostPopularSong().orElseThrow());
+
+        album.detach();
+        first.incrementPlayCount(100);
+        first.updatePopularity(100.0);
+        assertEquals(40, album.getTotalPlayCount());
+        assertEquals(50.0, album.getAveragePopularity(), 1e-9);
+    }
+
+    @Test
+    @DisplayName("Changes racing with adds and removes are counted exactly once")
+    void testChangesRacingWithMembership() throws InterruptedException {
+        Song steady = song("Steady", 0, 50.0);
+        Song moving = song("Moving", 0, 50.0);
+        Album album = new Album("Album", "Artist", Year.of(2020), List.of(steady), Genre.POP, false);
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 20_000; i++) {
+                moving.incrementPlayCount();
+                steady.incrementPlayCount();
+                moving.updatePopularity(i % 100);
+            }
+        });
+        writer.start();
+        for (int i = 0; writer.isAlive() || i < 100; i++) {
+            album.addSong(moving);
+            album.removeSong(moving);
+            // Emptying the album while callbacks are in flight must not fail them
+            album.removeSong(steady);
+            album.addSong(steady);
+        }
+        writer.join();
+
+        album.addSong(moving);
+        assertEquals(40_000, album.getTotalPlayCount());
+        assertEquals((50.0 + moving.getPopularity()) / 2, album.getAveragePopularity(), 1e-9);
+        album.removeSong(moving);
+        assertEquals(20_000, album.getTotalPlayCount());
+        assertEquals(50.0, album.getAveragePopularity(), 1e-9);
+        assertEquals(steady, album.getMostPopularSong().orElseThrow());
+    }
+
+    @Test
+    @DisplayName("Empty albums report neutral aggregates")
+    void testEmptyAlbum() {
+        Album album = new Album("Empty", "Nobody", Year.of(2020), null, Genre.JAZZ, false);
+
+        assertEquals(0, album.getTotalPlayCount());
+        assertEquals(0.0, album.getAveragePopularity());
+        assertTrue(album.getMostPopularSong().isEmpty());
+    }
+
+    private static Song song(String title, int playCount, double popularity) {
+        return new Song(title, Set.of("Artist"), Duration.ofMinutes(3), Year.of(2020),
+                Genre.POP, Set.of(), playCount, popularity);
+    }
+}
@@ -0,0 +1,108 @@
+package com.streamexercises.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Year;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the dense entity id scheme.
+ */
+public class IdRegistryTest {
+
+    @Test
+    @DisplayName("Entities get consecutive dense ids whose string keys resolve back")
+    void testDenseIdsRoundTrip() {
+        Song first = song("First");
+        Song second = song("Second");
+
+        assertEquals(first.getIntId() + 1, second.getIntId());
+        assertEquals(first.getIntId(), IdRegistry.SONGS.resolve(first.getId()));
+        assertEquals(second.getIntId(), IdRegistry.SONGS.intern(second.getId()));
+        assertNotEquals(first, second);
+        assertTrue(second.getIntId() < IdRegistry.SONGS.size());
+    }
+
+    @Test
+    @DisplayName("External keys are kept on the side and identify the same entity")
+    void testExternalKeys() {
+        User user = new User("crm-4711", "alice", true);
+        User sameUser = new User("crm-4711", "alice", true);
+
+        assertEquals("crm-4711", user.getId());
+        assertTrue(IdRegistry.USERS.hasExternalKey(user.getIntId()));
+        assertEquals(user, sameUser);
+        assertEquals(user.getIntId(), IdRegistry.USERS.resolve("crm-4711"));
+
+        Playlist playlist = new Playlist("Road trip", user.getId(), true, null);
+        assertEquals(user.getIntId(), playlist.getOwnerIntId());
+        assertEquals("crm-4711", playlist.getOwnerId());
+    }
+
+    @Test
+    @DisplayName("Unknown keys and reserved derived keys are rejected")
+    void testUnknownKeys() {
+        assertEquals(IdRegistry.NO_ID, IdRegistry.SONGS.resolve("no-such-song"));
+        assertEquals(IdRegistry.NO_ID, IdRegistry.SONGS.resolve("song:" + Integer.MAX_VALUE));
+        assertEquals(IdRegistry.NO_ID, IdRegistry.SONGS.resolve(null));
+        assertThrows(IllegalArgumentException.class, () -> IdRegistry.SONGS.intern("song:" + Integer.MAX_VALUE));
+    }
+
+    @Test
+    @DisplayName("Owner references resolve without registering and reserved user ids do not throw")
+    void testReferencesAreNotRegistered() {
+        int registered = IdRegistry.USERS.size();
+        Playlist orphan = new Playlist("Orphan", "crm-not-yet-a-user", true, null);
+        Playlist derived = new Playlist("Derived", "user:" + Integer.MAX_VALUE, true, null);
+        assertEquals(registered, IdRegistry.USERS.size());
+        assertEquals(IdRegistry.NO_ID, orphan.getOwnerIntId());
+        assertEquals("crm-not-yet-a-user", orphan.getOwnerId());
+        assertEquals(IdRegistry.NO_ID, derived.getOwnerIntId());
+
+        Catalog catalog = new Catalog();
+        catalog.addPlaylist(orphan);
+        User owner = new User("crm-not-yet-a-user", "late", false);
+        catalog.addUser(owner);
+        assertEquals(owner.getIntId(), orphan.getOwnerIntId());
+        assertEquals(List.of(orphan), catalog.getPlaylistsByOwner(owner.getIntId()));
+
+        User reserved = new User("user:" + Integer.MAX_VALUE, "reserved", false);
+        assertEquals("user:" + Integer.MAX_VALUE, reserved.getId());
+
+        Song song = song("Cached");
+        assertSame(song.getId(), song.getId());
+    }
+
+    @Test
+    @DisplayName("Artist names are interned once and songs expose sorted artist ids")
+    void testArtistDictionary() {
+        Song duet = new Song("Duet", Set.of("Singer B", "Singer A"), Duration.ofMinutes(3), Year.of(2020),
+                Genre.POP, Set.of(), 0, 50.0);
+        ArtistDictionary artists = ArtistDictionary.INSTANCE;
+        int singerA = artists.lookup("Singer A");
+        int singerB = artists.lookup("Singer B");
+
+        assertEquals(2, duet.getArtistCount());
+        assertEquals(singerA, artists.intern("Singer A"));
+        assertEquals("Singer B", artists.name(singerB));
+        assertTrue(duet.getArtistId(0) < duet.getArtistId(1));
+        assertTrue(duet.hasArtist("Singer A"));
+        assertTrue(duet.hasArtist(singerB));
+        assertFalse(duet.hasArtist("Nobody Sings This"));
+        assertEquals(ArtistDictionary.NO_ARTIST, artists.lookup("Nobody Sings This"));
+        assertEquals(Set.of("Singer A", "Singer B"), duet.getArtists());
+        assertArrayEquals(new int[]{Math.min(singerA, singerB), Math.max(singerA, singerB)},
+                artists.lookupAll(List.of("Singer B", "Singer A", "Singer A", "Unknown")));
+        assertThrows(UnsupportedOperationException.class, () -> duet.getArtistNames().clear());
+    }
+
+    private static Song song(String title) {
+        return new Song(title, Set.of("Artist"), Duration.ofMinutes(3), Year.of(2020),
+                Genre.POP, Set.of(), 0, 50.0);
+    }
+}
@@ -0,0 +1,148 @@
+package com.streamexercises.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Year;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the block-encoded listening history.
+ */
+public class ListeningHistoryTest {
+
+    @Test
+    @DisplayName("Song ids and timestamps round-trip through the varint blocks")
+    void testRoundTrip() {
+        ListeningHistory history = new ListeningHistory();
+        SplittableRandom random = new SplittableRandom(7);
+        int[] songIds = new int[1_000];
+        long[] seconds = new long[songIds.length];
+        long second = 1_700_000_000L;
+        for (int i = 0; i < songIds.length; i++) {
+            songIds[i] = i % 10 == 0 ? Integer.MAX_VALUE - i : random.nextInt(2_000_000);
+            second += random.nextInt(600);
+            seconds[i] = second;
+            history.append(songIds[i], second);
+        }
+
+        assertEquals(songIds.length, history.size());
+        assertArrayEquals(songIds, history.toSongIdArray());
+        ListeningHistory.Cursor cursor = history.cursor();
+        for (int i = 0; i < songIds.length; i++) {
+            assertTrue(cursor.advance());
+            assertEquals(seconds[i], cursor.epochSecond());
+        }
+        assertFalse(cursor.advance());
+        assertTrue(history.encodedBytes() < songIds.length * 8L);
+
+        PrimitiveIterator.OfInt iterator = history.iterator();
+        assertEquals(songIds[0], iterator.nextInt());
+    }
+
+    @Test
+    @DisplayName("Count and age bounds keep exactly the most recent listens")
+    void testBounds() {
+        ListeningHistory byCount = new ListeningHistory(300, null);
+        for (int i = 0; i < 1_000; i++) {
+            byCount.append(i, 1_000L + i);
+        }
+        assertEquals(300, byCount.size());
+        assertArrayEquals(range(700, 1_000), byCount.toSongIdArray());
+
+        ListeningHistory byAge = new ListeningHistory(ListeningHistory.UNBOUNDED, Duration.ofSeconds(99));
+        for (int i = 0; i < 1_000; i++) {
+            byAge.append(i, 10L * i);
+        }
+        // Newest listen is at 9990, so listens from 9891 on are kept
+        assertArrayEquals(range(990, 1_000), byAge.toSongIdArray());
+
+        byAge.setBounds(3, null);
+        assertArrayEquals(range(997, 1_000), byAge.toSongIdArray());
+        assertThrows(IllegalArgumentException.class, () -> byAge.append(-1, 0));
+    }
+
+    @Test
+    @DisplayName("User history is stored as ids and bounded on request")
+    void testUserHistory() {
+        User user = new User("history-user", "history", false);
+        for (int i = 0; i < 10; i++) {
+            user.recordSongListen(i, 100L + i);
+        }
+        user.limitListeningHistory(4, null);
+
+        assertEquals(4, user.getListeningHistorySize());
+        assertEquals(IdRegistry.SONGS.key(6), user.getListeningHistory().get(0));
+        assertEquals(10, user.getTotalPlayCount());
+    }
+
+    @Test
+    @DisplayName("Cursors see the history as of their creation while listens keep arriving")
+    void testCursorDuringIngest() throws InterruptedException {
+        User user = new User("history-ingest-user", "ingest", false);
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 20_000; i++) {
+                user.recordSongListen(i % 1_000, 1_000L + i);
+            }
+        });
+        writer.start();
+        while (writer.isAlive()) {
+            ListeningHistory.Cursor cursor = user.listeningHistoryCursor();
+            int expected = 0;
+            while (cursor.advance()) {
+                assertEquals(expected % 1_000, cursor.songId());
+                assertEquals(1_000L + expected, cursor.epochSecond());
+                expected++;
+            }
+        }
+        writer.join();
+        assertEquals(20_000, user.getListeningHistorySize());
+    }
+
+    @Test
+    @DisplayName("Imported and recorded song ids are resolved, never registered, and unknown ones kept")
+    void testUnknownSongIds() {
+        Song song = new Song("Known", Set.of("Artist"), Duration.ofMinutes(3), Year.of(2020),
+                Genre.POP, Set.of(), 0, 50.0);
+        User user = new User("history-import-user", "import", false);
+        int registered = IdRegistry.SONGS.size();
+
+        List<String> imported = Arrays.asList(song.getId(), "not-a-song", "song:" + Integer.MAX_VALUE, null,
+                "not-a-song", song.getId());
+        user.setListeningHistory(imported);
+        assertEquals(registered, IdRegistry.SONGS.size());
+        assertEquals(imported, user.getListeningHistory());
+        ListeningHistory.Cursor cursor = user.listeningHistoryCursor();
+        assertTrue(cursor.advance());
+        assertEquals(song.getIntId(), cursor.songId());
+        assertTrue(cursor.advance());
+        assertFalse(cursor.isResolved());
+        assertEquals(IdRegistry.NO_ID, cursor.songId());
+        assertEquals("not-a-song", cursor.unresolvedSongId());
+
+        // Imported listens have no time, so they expire before anything recorded later
+        user.limitListeningHistory(ListeningHistory.UNBOUNDED, Duration.ofDays(1));
+        assertEquals(6, user.getListeningHistorySize());
+        user.recordSongListen(song.getIntId(), 1_000_000L);
+        assertEquals(1, user.getListeningHistorySize());
+
+        user.limitListeningHistory(ListeningHistory.UNBOUNDED, null);
+        user.recordSongListen("another-unknown");
+        assertEquals(registered, IdRegistry.SONGS.size());
+        assertEquals(List.of(song.getId(), "another-unknown"), user.getListeningHistory());
+        assertEquals(1, user.getPlayCount("another-unknown"));
+    }
+
+    private static int[] range(int from, int to) {
+        int[] values = new int[to - from];
+        Arrays.setAll(values, i -> from + i);
+        return values;
+    }
+}
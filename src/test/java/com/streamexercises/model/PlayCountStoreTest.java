@@ -0,0 +1,83 @@
+package com.streamexercises.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Year;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for concurrent play counting on songs and users.
+ */
+public class PlayCountStoreTest {
+
+    @Test
+    @DisplayName("Concurrent listens are all counted on the song and the user")
+    void testConcurrentPlays() {
+        Song song = new Song("Hit", Set.of("Artist"), Duration.ofMinutes(3), Year.of(2020),
+                Genre.POP, Set.of(), 5, 50.0);
+        User user = new User("concurrent-listener", "listener", false);
+
+        IntStream.range(0, 40_000).parallel().forEach(i -> {
+            song.incrementPlayCount();
+            user.playSong(i % 2 == 0 ? "even" : "odd");
+        });
+
+        assertEquals(40_005, song.getPlayCount());
+        assertEquals(40_000, user.getTotalPlayCount());
+        assertEquals(Map.of("even", 20_000, "odd", 20_000), user.getSongPlayCounts());
+    }
+
+    @Test
+    @DisplayName("Snapshots are detached copies and totals follow replaceAll")
+    void testSnapshots() {
+        PlayCountStore store = new PlayCountStore();
+        store.add("a", 3);
+        store.add("b", 7);
+        store.add("ignored", 0);
+
+        Map<String, Integer> snapshot = store.snapshot();
+        store.add("a", 10);
+
+        assertEquals(Map.of("a", 3, "b", 7), snapshot);
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.put("c", 1));
+        assertEquals(20, store.total());
+        assertEquals("a", store.mostPlayed().orElseThrow());
+
+        store.replaceAll(Map.of("c", 4));
+        assertEquals(4, store.total());
+        assertEquals(0, store.get("a"));
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    @DisplayName("Unknown song ids are counted without taking a dense id")
+    void testUnknownSongIds() {
+        int registered = IdRegistry.SONGS.size();
+        Song known = new Song("Known", Set.of("Artist"), Duration.ofMinutes(3), Year.of(2020),
+                Genre.POP, Set.of(), 0, 50.0);
+        PlayCountStore store = new PlayCountStore();
+        store.add("typo-song", 4);
+        store.add("song:" + Integer.MAX_VALUE, 2); // reserved form, never issued
+        store.add(known.getId(), 3);
+
+        assertEquals(registered + 1, IdRegistry.SONGS.size());
+        assertEquals(4, store.get("typo-song"));
+        assertEquals(2, store.get("song:" + Integer.MAX_VALUE));
+        assertEquals(9, store.total());
+        assertEquals(3, store.size());
+        assertEquals("typo-song", store.mostPlayed().orElseThrow());
+        assertArrayEquals(new int[] {known.getIntId()}, store.topSongIds(5));
+        assertEquals(Map.of("typo-song", 4, "song:" + Integer.MAX_VALUE, 2, known.getId(), 3), store.snapshot());
+
+        store.replaceAll(Map.of("other-typo", 1, known.getId(), 5));
+        assertEquals(0, store.get("typo-song"));
+        assertEquals(6, store.total());
+        assertEquals(Map.of("other-typo", 1, known.getId(), 5), store.snapshot());
+    }
+}
@@ -0,0 +1,88 @@
+package com.streamexercises.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for lazy shuffles and cached sort orders on Playlist.
+ */
+public class PlaybackOrderTest {
+
+    @Test
+    @DisplayName("Seeded shuffles are reproducible permutations unaffected by later edits")
+    void testShuffledOrder() {
+        Playlist playlist = playlist(2_000);
+        List<Song> first = drain(playlist.shuffledOrder(99));
+        ShuffledOrder pending = playlist.shuffledOrder(99);
+        playlist.removeSongAt(0);
+
+        assertEquals(first, drain(pending));
+        assertEquals(2_000, new HashSet<>(first).size());
+        assertNotEquals(first, drain(playlist.shuffledOrder(100)));
+
+        ShuffledOrder partial = playlist.shuffledOrder(1);
+        partial.next();
+        partial.next();
+        assertEquals(1_997, partial.remaining());
+    }
+
+    @Test
+    @DisplayName("Title and popularity orders are stable and refreshed after edits of the playlist or its songs")
+    void testCachedSortOrders() {
+        Playlist playlist = new Playlist("Sorted", null, true, null);
+        Song beta = song("beta", 50.0);
+        Song alpha = song("Alpha", 50.0);
+        Song gamma = song("gamma", 90.0);
+        playlist.addSong(beta);
+        playlist.addSong(alpha);
+        playlist.addSong(gamma);
+
+        assertEquals(List.of(alpha, beta, gamma), playlist.getSongsByTitle());
+        assertEquals(List.of(gamma, beta, alpha), playlist.getSongsByPopularity());
+        assertSame(playlist.getSongsByTitle(), playlist.getSongsByTitle());
+
+        alpha.updatePopularity(95.0);
+        assertEquals(List.of(alpha, gamma, beta), playlist.getSongsByPopularity());
+
+        // Songs outside the playlist do not invalidate the cached order
+        List<Song> byPopularity = playlist.getSongsByPopularity();
+        song("outsider", 20.0).updatePopularity(30.0);
+        assertSame(byPopularity, playlist.getSongsByPopularity());
+
+        Song aardvark = song("aardvark", 10.0);
+        playlist.addSong(aardvark);
+        assertEquals(aardvark, playlist.getSongsByTitle().get(0));
+
+        playlist.sortByPopularity();
+        assertEquals(List.of(alpha, gamma, beta, aardvark), playlist.getSongs());
+        assertThrows(UnsupportedOperationException.class, () -> playlist.getSongsByTitle().set(0, beta));
+    }
+
+    private static List<Song> drain(ShuffledOrder order) {
+        List<Song> drawn = new ArrayList<>();
+        order.forEachRemaining(drawn::add);
+        return drawn;
+    }
+
+    private static Playlist playlist(int size) {
+        Playlist playlist = new Playlist("Shuffle", null, true, null);
+        for (int i = 0; i < size; i++) {
+            playlist.addSong(song("S" + i, i % 100));
+        }
+        return playlist;
+    }
+
+    private static Song song(String title, double popularity) {
+        return new Song(title, Set.of("Artist"), Duration.ofMinutes(3), Year.of(2020),
+                Genre.POP, Set.of(), 0, popularity);
+    }
+}
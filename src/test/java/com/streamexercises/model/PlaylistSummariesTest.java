@@ -0,0 +1,109 @@
+package com.streamexercises.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the running summaries kept by Playlist.
+ */
+public class PlaylistSummariesTest {
+
+    @Test
+    @DisplayName("Duration, genre and popularity summaries follow adds and removals")
+    void testSummariesFollowEdits() {
+        Song rock = song(Genre.ROCK, Set.of(Genre.BLUES), Duration.ofSeconds(200, 500_000_000), 60.0);
+        Song jazz = song(Genre.JAZZ, Set.of(), Duration.ofSeconds(300), 30.0);
+        Song otherRock = song(Genre.ROCK, Set.of(Genre.METAL), Duration.ofSeconds(100, 500_000_000), 90.0);
+        Playlist playlist = new Playlist("Mix", null, true, null);
+        playlist.addSong(rock);
+        playlist.addSong(jazz);
+        playlist.addSong(otherRock);
+        playlist.addSong(rock);
+
+        assertEquals(Duration.ofSeconds(601), playlist.getTotalDuration());
+        assertEquals(Genre.ROCK, playlist.getMostFrequentGenre().orElseThrow());
+        assertEquals(EnumSet.of(Genre.ROCK, Genre.BLUES, Genre.JAZZ, Genre.METAL), playlist.getAllGenres());
+        assertEquals(60.0, playlist.getAveragePopularity(), 1e-9);
+
+        playlist.removeSong(rock);
+        playlist.removeSongAt(1);
+
+        assertEquals(Duration.ofSeconds(300), playlist.getTotalDuration());
+        assertEquals(Genre.JAZZ, playlist.getMostFrequentGenre().orElseThrow());
+        assertEquals(EnumSet.of(Genre.JAZZ), playlist.getAllGenres());
+        assertEquals(1, playlist.getPrimaryGenreCount(Genre.JAZZ));
+        assertEquals(30.0, playlist.getAveragePopularity(), 1e-9);
+
+        // Member songs report popularity changes; removed songs no longer do
+        SongSequence.Snapshot jazzOnly = playlist.snapshotSongs();
+        jazz.updatePopularity(50.0);
+        rock.updatePopularity(10.0);
+        assertEquals(50.0, playlist.getAveragePopularity(), 1e-9);
+
+        playlist.addSong(rock);
+        playlist.restoreSongs(jazzOnly);
+        rock.updatePopularity(90.0);
+        jazz.updatePopularity(40.0);
+        assertEquals(40.0, playlist.getAveragePopularity(), 1e-9);
+
+        playlist.removeSongAt(0);
+        assertEquals(Duration.ZERO, playlist.getTotalDuration());
+        assertTrue(playlist.getMostFrequentGenre().isEmpty());
+        assertEquals(0.0, playlist.getAveragePopularity());
+        jazz.updatePopularity(70.0);
+        assertEquals(0.0, playlist.getAveragePopularity());
+    }
+
+    @Test
+    @DisplayName("Playlists in a catalog learn of popularity changes through its song index")
+    void testCatalogTrackedPopularity() throws InterruptedException {
+        Song shared = song(Genre.POP, Set.of(), Duration.ofSeconds(180), 40.0);
+        Song solo = song(Genre.POP, Set.of(), Duration.ofSeconds(180), 20.0);
+        Catalog catalog = new Catalog();
+        List<Playlist> playlists = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            Playlist playlist = new Playlist("P" + i, null, true, null);
+            playlist.addSong(shared);
+            catalog.addPlaylist(playlist);
+            playlists.add(playlist);
+        }
+        Playlist first = playlists.get(0);
+        first.addSong(solo);
+        assertEquals(30.0, first.getAveragePopularity(), 1e-9);
+
+        shared.updatePopularity(60.0);
+        assertEquals(40.0, first.getAveragePopularity(), 1e-9);
+        assertTrue(playlists.stream().skip(1).allMatch(playlist -> playlist.getAveragePopularity() == 60.0));
+
+        first.removeSong(shared);
+        shared.updatePopularity(0.0);
+        assertEquals(20.0, first.getAveragePopularity(), 1e-9);
+        assertEquals(0.0, playlists.get(1).getAveragePopularity());
+
+        // Reads racing with changes settle on the exact average
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i <= 10_000; i++) {
+                solo.updatePopularity(i % 101);
+            }
+        });
+        writer.start();
+        while (writer.isAlive()) {
+            first.getAveragePopularity();
+        }
+        writer.join();
+        assertEquals(solo.getPopularity(), first.getAveragePopularity(), 1e-9);
+    }
+
+    private static Song song(Genre genre, Set<Genre> secondary, Duration duration, double popularity) {
+        return new Song("Song", Set.of("Artist"), duration, Year.of(2020), genre, secondary, 0, popularity);
+    }
+}
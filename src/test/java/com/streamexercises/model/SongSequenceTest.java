@@ -0,0 +1,140 @@
+package com.streamexercises.model;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the chunked playlist storage.
+ */
+public class SongSequenceTest {
+
+    @Test
+    @DisplayName("Random appends, inserts and removals match an ArrayList")
+    void testAgainstArrayList() {
+        List<Song> pool = new ArrayList<>();
+        for (int i = 0; i < 3_000; i++) {
+            pool.add(new Song("Song " + i, Set.of("Artist"), Duration.ofMinutes(3), Year.of(2020),
+                    Genre.POP, Set.of(), 0, 50.0));
+        }
+        SongSequence sequence = new SongSequence();
+        List<Song> expected = new ArrayList<>();
+        SplittableRandom random = new SplittableRandom(11);
+
+        for (int step = 0; step < 20_000; step++) {
+            if (step % 1_000 == 0 && !expected.isEmpty()) {
+                int index = random.nextInt(expected.size());
+                assertSame(expected.get(index), sequence.get(index));
+                assertEquals(index, sequence.indexOf(expected.get(index)));
+            }
+            if (step == 10_000) {
+                // Positions are reindexed after restoring an older version
+                SongSequence.Snapshot snapshot = sequence.snapshot();
+                sequence.clear();
+                sequence.restore(snapshot);
+            }
+            Song song = pool.get(random.nextInt(pool.size()));
+            switch (random.nextInt(4)) {
+                case 0 -> {
+                    boolean added = !expected.contains(song) && expected.add(song);
+                    assertEquals(added, sequence.add(song));
+                }
+                case 1 -> {
+                    int index = random.nextInt(expected.size() + 1);
+                    boolean inserted = !expected.contains(song);
+                    if (inserted) {
+                        expected.add(index, song);
+                    }
+                    assertEquals(inserted, sequence.insert(index, song));
+                }
+                case 2 -> assertEquals(expected.remove(song), sequence.remove(song));
+                default -> {
+                    if (!expected.isEmpty()) {
+                        int index = random.nextInt(expected.size());
+                        assertSame(expected.remove(index), sequence.removeAt(index));
+                    }
+                }
+            }
+        }
+
+        assertEquals(expected.size(), sequence.size());
+        assertArrayEquals(expected.toArray(), sequence.toArray());
+        for (int i = 0; i < expected.size(); i += 97) {
+            assertSame(expected.get(i), sequence.get(i));
+            assertEquals(i, sequence.indexOf(expected.get(i)));
+        }
+        List<Song> iterated = new ArrayList<>();
+        sequence.forEach(iterated::add);
+        assertEquals(expected, iterated);
+        pool.forEach(song -> assertEquals(expected.contains(song), sequence.contains(song)));
+    }
+
+    @Test
+    @DisplayName("Playlist keeps songs unique and exposes a read-only view")
+    void testPlaylistView() {
+        Playlist playlist = new Playlist("Big", null, true, null);
+        List<Song> songs = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            Song song = new Song("Track " + i, Set.of("Artist"), Duration.ofSeconds(100), Year.of(2021),
+                    Genre.ROCK, Set.of(), 0, i % 100);
+            songs.add(song);
+            playlist.addSong(song);
+            playlist.addSong(song);
+        }
+        Song intro = songs.get(500);
+        playlist.removeSong(intro);
+        assertTrue(playlist.insertSong(0, intro));
+
+        assertEquals(1_000, playlist.getNumberOfSongs());
+        assertSame(intro, playlist.getSongs().get(0));
+        assertTrue(playlist.containsSong(songs.get(999)));
+        assertEquals(Duration.ofSeconds(100_000), playlist.getTotalDuration());
+        assertThrows(UnsupportedOperationException.class, () -> playlist.getSongs().remove(0));
+
+        playlist.sortByTitle();
+        assertEquals("Track 0", playlist.getSongs().get(0).getTitle());
+        assertEquals(1_000, playlist.getSongs().stream().distinct().count());
+    }
+
+    @Test
+    @DisplayName("Snapshots stay frozen while the playlist is edited and can be restored")
+    void testSnapshots() {
+        Playlist playlist = new Playlist("Versions", null, true, null);
+        List<Song> songs = new ArrayList<>();
+        for (int i = 0; i < 600; i++) {
+            Song song = new Song("V" + i, Set.of("Artist"), Duration.ofSeconds(10), Year.of(2022),
+                    Genre.JAZZ, Set.of(), 0, 40.0);
+            songs.add(song);
+            playlist.addSong(song);
+        }
+        SongSequence.Snapshot original = playlist.snapshotSongs();
+
+        playlist.removeSongAt(0);
+        playlist.insertSong(300, songs.get(0));
+        playlist.removeSong(songs.get(599));
+        SongSequence.Snapshot edited = playlist.snapshotSongs();
+        playlist.addSong(songs.get(599));
+
+        assertEquals(songs, original);
+        assertEquals(599, edited.size());
+        assertSame(songs.get(0), edited.get(300));
+        assertSame(songs.get(1), edited.get(0));
+        assertEquals(600, playlist.getNumberOfSongs());
+
+        playlist.restoreSongs(original);
+        assertEquals(songs, playlist.getSongs());
+        assertEquals(Duration.ofSeconds(6_000), playlist.getTotalDuration());
+        playlist.removeSongAt(5);
+        assertFalse(playlist.containsSong(songs.get(5)));
+        assertSame(songs.get(5), original.get(5));
+        assertEquals(599, edited.size());
+    }
+}
@@ -0,0 +1,97 @@
+package com.streamexercises.service;
+
+import com.streamexercises.generator.GeneratorConfig;
+import com.streamexercises.generator.SyntheticCatalogGenerator;
+import com.streamexercises.model.Album;
+import com.streamexercises.model.Genre;
+import com.streamexercises.model.Song;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Year;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the year / genre / popularity album index.
+ */
+public class AlbumIndexTest {
+
+    @Test
+    @DisplayName("Index queries match a full scan and follow popularity changes")
+    void testMatchesScan() {
+        SyntheticCatalogGenerator generator = new SyntheticCatalogGenerator(GeneratorConfig.defaults(17L, 4_000, 10));
+        List<Song> songs = generator.songs().collect(Collectors.toList());
+        List<Album> albums = generator.albums(songs).collect(Collectors.toList());
+        AlbumIndex index = new AlbumIndex(albums);
+
+        for (int year : new int[] {1900, 1985, 2005, 2020, 2100}) {
+            for (double minPopularity : new double[] {0.0, 20.0, 45.0, 70.0, 101.0}) {
+                for (Genre genre : Genre.values()) {
+                    assertEquals(scan(albums, Year.of(year), minPopularity, genre),
+                            index.find(Year.of(year), minPopularity, genre),
+                            year + "/" + minPopularity + "/" + genre);
+                }
+            }
+        }
+
+        Album album = albums.get(0);
+        album.getSongs().forEach(song -> song.updatePopularity(100.0));
+        Genre genre = album.getPrimaryGenre();
+        List<Album> popular = index.find(Year.of(1900), 99.0, genre);
+        assertTrue(popular.contains(album));
+        assertEquals(scan(albums, Year.of(1900), 99.0, genre), popular);
+
+        // A closed index keeps the averages of its last rebuild
+        index.close();
+        album.getSongs().forEach(song -> song.updatePopularity(0.0));
+        assertEquals(popular, index.find(Year.of(1900), 99.0, genre));
+    }
+
+    @Test
+    @DisplayName("Queries stay exact while the popularity order is rebuilt in the background")
+    void testRebuildsInBackground() throws InterruptedException {
+        SyntheticCatalogGenerator generator = new SyntheticCatalogGenerator(GeneratorConfig.defaults(23L, 4_000, 10));
+        List<Song> songs = generator.songs().collect(Collectors.toList());
+        List<Album> albums = generator.albums(songs).collect(Collectors.toList());
+        AlbumIndex index = new AlbumIndex(albums);
+
+        for (int i = 0; i < 4 * AlbumIndex.CHANGES_BEFORE_REBUILD; i++) {
+            Album album = albums.get(i * 7 % albums.size());
+            album.getSongs().forEach(song -> song.updatePopularity(song.getPopularity() < 50.0 ? 95.0 : 5.0));
+            if (i % 16 == 0) {
+                assertQueriesMatchScan(albums, index);
+            }
+        }
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (index.pendingChanges() >= AlbumIndex.CHANGES_BEFORE_REBUILD && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertTrue(index.pendingChanges() < AlbumIndex.CHANGES_BEFORE_REBUILD);
+        assertQueriesMatchScan(albums, index);
+        index.close();
+    }
+
+    private static void assertQueriesMatchScan(List<Album> albums, AlbumIndex index) {
+        for (int year : new int[] {1900, 2005}) {
+            for (double minPopularity : new double[] {0.0, 45.0, 90.0}) {
+                for (Genre genre : Genre.values()) {
+                    assertEquals(scan(albums, Year.of(year), minPopularity, genre),
+                            index.find(Year.of(year), minPopularity, genre),
+                            year + "/" + minPopularity + "/" + genre);
+                }
+            }
+        }
+    }
+
+    private static List<Album> scan(List<Album> albums, Year yearAfter, double minPopularity, Genre genre) {
+        return albums.stream()
+                .filter(album -> album.getReleaseYear().isAfter(yearAfter))
+                .filter(album -> album.getAveragePopularity() >= minPopularity)
+                .filter(album -> album.getPrimaryGenre() == genre
+                        || album.getSongs().stream().anyMatch(song -> song.getPrimaryGenre() == genre))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,125 @@
+package com.streamexercises.service;
+
+import com.streamexercises.generator.GeneratorConfig;
+import com.streamexercises.generator.SyntheticCatalogGenerator;
+import com.streamexercises.model.ArtistDictionary;
+import com.streamexercises.model.Genre;
+import com.streamexercises.model.Song;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Year;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for components, centrality and PageRank over the collaboration graph.
+ */
+public class ArtistGraphAnalyticsTest {
+
+    @Test
+    @DisplayName("Clusters, degrees and PageRank of a small star plus a separate pair")
+    void testSmallGraph() {
+        String hub = "Analytics Hub";
+        String left = "Analytics Left";
+        String right = "Analytics Right";
+        String loner = "Analytics Loner";
+        String pairA = "Analytics Pair A";
+        String pairB = "Analytics Pair B";
+        CollaborationGraph graph = new CollaborationGraph(List.of(
+                song(hub, left), song(hub, left), song(hub, right), song(loner), song(pairA, pairB)), false);
+        ArtistGraphAnalytics analytics = new ArtistGraphAnalytics(graph);
+        ArtistDictionary artists = ArtistDictionary.INSTANCE;
+        int hubId = artists.lookup(hub);
+
+        assertEquals(Set.of(hub, left, right), Set.copyOf(analytics.cluster(left)));
+        assertEquals(List.of(loner), analytics.cluster(loner));
+        assertEquals(List.of(), analytics.cluster("Analytics Unknown"));
+        assertEquals(analytics.componentLabels()[artists.lookup(pairA)], analytics.componentLabels()[artists.lookup(pairB)]);
+        assertNotEquals(analytics.componentLabels()[hubId], analytics.componentLabels()[artists.lookup(pairA)]);
+        assertEquals(2, analytics.degree(hubId));
+        assertEquals(2, analytics.degrees()[hubId]);
+        assertEquals(3, analytics.weightedDegrees()[hubId]);
+        assertEquals(0, analytics.degree(artists.lookup(loner)));
+
+        double[] rank = analytics.pageRank();
+        assertEquals(1.0, Arrays.stream(rank).sum(), 1e-9);
+        assertEquals(0.0, rank[artists.lookup(loner)]);
+        assertEquals(rank[artists.lookup(pairA)], rank[artists.lookup(pairB)], 1e-12);
+        assertTrue(rank[artists.lookup(left)] > rank[artists.lookup(right)]);
+        assertEquals(hub, ArtistGraphAnalytics.topArtists(rank, 1).get(0));
+        assertEquals(List.of(hub), new MusicAnalyticsService().findMostInfluentialArtists(graph, 1));
+        assertThrows(IllegalArgumentException.class, () -> analytics.pageRank(1.5, 10, 0.0));
+    }
+
+    @Test
+    @DisplayName("Parallel components and PageRank match sequential reference implementations")
+    void testMatchesReference() {
+        SyntheticCatalogGenerator generator = new SyntheticCatalogGenerator(GeneratorConfig.defaults(25L, 8_000, 10));
+        List<Song> songs = generator.songs().collect(Collectors.toList());
+        CollaborationGraph graph = new CollaborationGraph(songs, true);
+        ArtistGraphAnalytics analytics = new ArtistGraphAnalytics(graph);
+        int n = analytics.artistCount();
+
+        // Components: flood fill from each unvisited artist, labelled by its lowest id
+        int[] expectedLabels = new int[n];
+        Arrays.fill(expectedLabels, -1);
+        for (int start = 0; start < n; start++) {
+            if (expectedLabels[start] < 0) {
+                int[] stack = new int[n];
+                int top = 0;
+                stack[top++] = start;
+                expectedLabels[start] = start;
+                while (top > 0) {
+                    for (int other : graph.neighbors(stack[--top])) {
+                        if (expectedLabels[other] < 0) {
+                            expectedLabels[other] = start;
+                            stack[top++] = other;
+                        }
+                    }
+                }
+            }
+        }
+        assertArrayEquals(expectedLabels, analytics.componentLabels());
+
+        // PageRank: plain power iteration over weight queries
+        long[] strength = new long[n];
+        int connected = 0;
+        for (int artist = 0; artist < n; artist++) {
+            for (int other : graph.neighbors(artist)) {
+                strength[artist] += graph.weight(artist, other);
+            }
+            connected += strength[artist] > 0 ? 1 : 0;
+        }
+        double[] expected = new double[n];
+        for (int artist = 0; artist < n; artist++) {
+            expected[artist] = strength[artist] > 0 ? 1.0 / connected : 0.0;
+        }
+        for (int iteration = 0; iteration < 30; iteration++) {
+            double[] next = new double[n];
+            for (int artist = 0; artist < n; artist++) {
+                if (strength[artist] > 0) {
+                    double inflow = 0.0;
+                    for (int other : graph.neighbors(artist)) {
+                        inflow += expected[other] * graph.weight(artist, other) / strength[other];
+                    }
+                    next[artist] = 0.15 / connected + 0.85 * inflow;
+                }
+            }
+            expected = next;
+        }
+        double[] actual = analytics.pageRank(0.85, 30, 0.0);
+        assertArrayEquals(expected, actual, 1e-12);
+        assertArrayEquals(strength, analytics.weightedDegrees());
+    }
+
+    private static Song song(String... artists) {
+        return new Song("Analytics Song", Set.of(artists), Duration.ofMinutes(3), Year.of(2020),
+                Genre.JAZZ, Set.of(), 0, 50.0);
+    }
+}
@@ -0,0 +1,110 @@
+package com.streamexercises.service;
+
+import com.streamexercises.generator.GeneratorConfig;
+import com.streamexercises.generator.SyntheticCatalogGenerator;
+import com.streamexercises.model.ArtistDictionary;
+import com.streamexercises.model.Genre;
+import com.streamexercises.model.Song;
+import com.streamexercises.service.MusicAnalyticsService.ArtistPair;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Year;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the compressed artist collaboration graph.
+ */
+public class CollaborationGraphTest {
+
+    @Test
+    @DisplayName("Graph built in parallel or grown song by song matches grouping the pairs directly")
+    void testMatchesPairGrouping() {
+        SyntheticCatalogGenerator generator = new SyntheticCatalogGenerator(GeneratorConfig.defaults(24L, 6_000, 10));
+        List<Song> songs = generator.songs().collect(Collectors.toList());
+        Map<ArtistPair, List<Song>> expected = groupPairs(songs);
+        assertFalse(expected.isEmpty(), "Catalog should contain collaborations");
+
+        CollaborationGraph built = new CollaborationGraph(songs, true);
+        CollaborationGraph grown = new CollaborationGraph(false);
+        songs.forEach(grown::add);
+        assertFalse(grown.add(songs.get(0)));
+        for (CollaborationGraph graph : List.of(built, grown)) {
+            assertEquals(expected.size(), graph.edgeCount());
+            ArtistDictionary artists = ArtistDictionary.INSTANCE;
+            expected.forEach((pair, pairSongs) -> {
+                int a = artists.lookup(pair.artist1());
+                int b = artists.lookup(pair.artist2());
+                assertEquals(pairSongs, graph.songs(a, b), pair.toString());
+                assertEquals(pairSongs, graph.songs(b, a), pair.toString());
+                assertEquals(pairSongs.size(), graph.weight(pair.artist2(), pair.artist1()));
+            });
+        }
+        assertEquals(expected, built.toMap());
+        assertEquals(expected, grown.toMap());
+    }
+
+    @Test
+    @DisplayName("Neighbors and top collaborators merge compressed rows with pending songs")
+    void testQueriesAcrossDelta() {
+        String a = "Graph Artist A";
+        String b = "Graph Artist B";
+        String c = "Graph Artist C";
+        String d = "Graph Artist D";
+        List<Song> initial = List.of(song(a, b), song(a, b), song(a, c), song(b, c), song(d));
+        CollaborationGraph graph = new CollaborationGraph(initial, false);
+        Song pendingACD = song(a, c, d);
+        Song pendingAC = song(a, c);
+        graph.add(song(a, d));
+        graph.add(pendingACD);
+        graph.add(pendingAC);
+
+        ArtistDictionary artists = ArtistDictionary.INSTANCE;
+        int idA = artists.lookup(a);
+        int[] expectedNeighbors = {artists.lookup(b), artists.lookup(c), artists.lookup(d)};
+        Arrays.sort(expectedNeighbors);
+        assertArrayEquals(expectedNeighbors, graph.neighbors(idA));
+        assertEquals(3, graph.degree(idA));
+        assertEquals(3, graph.weight(a, c));
+        int idC = artists.lookup(c);
+        assertEquals(List.of(initial.get(2), pendingACD, pendingAC), graph.songs(idC, idA));
+        assertEquals(List.of(pendingACD), graph.songs(artists.lookup(d), idC));
+        assertEquals(5, graph.edgeCount());
+        assertEquals(List.of(c, b), graph.topCollaborators(a, 2));
+        assertEquals(List.of(), graph.topCollaborators("Graph Artist Unknown", 2));
+        assertThrows(IllegalArgumentException.class, () -> graph.topCollaborators(idA, -1));
+
+        graph.compact();
+        assertArrayEquals(expectedNeighbors, graph.neighbors(idA));
+        assertEquals(List.of(c, b, d), graph.topCollaborators(a, 5));
+        assertEquals(0, graph.neighbors(artists.lookup(d) + 1_000_000).length);
+    }
+
+    private static Song song(String... artists) {
+        return new Song("Graph Song", Set.of(artists), Duration.ofMinutes(3), Year.of(2020),
+                Genre.POP, Set.of(), 0, 50.0);
+    }
+
+    // The original grouping of exercise 12
+    private static Map<ArtistPair, List<Song>> groupPairs(List<Song> songs) {
+        Map<ArtistPair, List<Song>> result = new HashMap<>();
+        for (Song song : songs) {
+            List<String> artists = new ArrayList<>(song.getArtists());
+            for (int i = 0; i < artists.size(); i++) {
+                for (int j = i + 1; j < artists.size(); j++) {
+                    result.computeIfAbsent(new ArtistPair(artists.get(i), artists.get(j)), key -> new ArrayList<>()).add(song);
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,106 @@
+package com.streamexercises.service;
+
+import com.streamexercises.generator.GeneratorConfig;
+import com.streamexercises.generator.SyntheticCatalogGenerator;
+import com.streamexercises.model.Genre;
+import com.streamexercises.model.Song;
+import com.streamexercises.service.DecadeGenreCube.CellSummary;
+import com.streamexercises.service.MusicAnalyticsService.Decade;
+import com.streamexercises.service.MusicAnalyticsService.SongSummary;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Year;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the decade × genre cube.
+ */
+public class DecadeGenreCubeTest {
+
+    @Test
+    @DisplayName("Cube map, pages and aggregates match grouping the songs directly")
+    void testMatchesGrouping() {
+        SyntheticCatalogGenerator generator = new SyntheticCatalogGenerator(GeneratorConfig.defaults(23L, 5_000, 10));
+        List<Song> songs = generator.songs().collect(Collectors.toList());
+        DecadeGenreCube cube = new DecadeGenreCube(songs);
+        assertEquals(songs.size(), cube.size());
+        assertFalse(cube.add(songs.get(0)));
+
+        Map<Decade, Map<Genre, List<SongSummary>>> expected = new MusicAnalyticsService().analyzeLibraryByDecadeAndGenre(songs);
+        assertEquals(expected, cube.toMap());
+
+        Map.Entry<Decade, Map<Genre, List<SongSummary>>> decade = expected.entrySet().iterator().next();
+        Map.Entry<Genre, List<SongSummary>> cell = decade.getValue().entrySet().iterator().next();
+        List<SongSummary> cellSongs = cell.getValue();
+        assertEquals(cellSongs.subList(1, Math.min(4, cellSongs.size())),
+                cube.page(decade.getKey(), cell.getKey(), 1, 3));
+        assertEquals(List.of(), cube.page(decade.getKey(), cell.getKey(), cellSongs.size(), 10));
+        assertEquals(List.of(), cube.songs(new Decade(1200), Genre.ROCK));
+
+        int cellSongCount = cube.summaries().stream().mapToInt(CellSummary::songCount).sum();
+        assertEquals(songs.size(), cellSongCount);
+
+        // Aggregates follow play and popularity changes
+        Song song = songs.get(0);
+        Decade songDecade = new Decade(song.getReleaseYear().getValue());
+        CellSummary before = cube.summary(songDecade, song.getPrimaryGenre());
+        song.incrementPlayCount(7);
+        song.updatePopularity(song.getPopularity() >= 50.0 ? 10.0 : 90.0);
+        CellSummary after = cube.summary(songDecade, song.getPrimaryGenre());
+        assertEquals(before.playSum() + 7, after.playSum());
+        assertEquals(sumPopularity(songs, songDecade, song.getPrimaryGenre()), after.popularitySum(), 1e-6);
+        assertEquals(before.songCount(), after.songCount());
+    }
+
+    @Test
+    @DisplayName("Cube grows to earlier decades and keeps songs without a genre")
+    void testEarlierDecadesAndMissingGenre() {
+        DecadeGenreCube cube = new DecadeGenreCube();
+        Song recent = new Song("Recent", Set.of("A"), Duration.ofMinutes(3), Year.of(2015), Genre.POP, Set.of(), 5, 40.0);
+        Song old = new Song("Old", Set.of("B"), Duration.ofMinutes(3), Year.of(1962), null, Set.of(), 2, 60.0);
+        cube.add(recent);
+        cube.add(old);
+
+        assertEquals(new CellSummary(new Decade(1960), null, 1, 60.0, 2L), cube.summary(new Decade(1960), null));
+        assertEquals(new CellSummary(new Decade(2010), Genre.POP, 1, 40.0, 5L), cube.summary(new Decade(2010), Genre.POP));
+        assertEquals(0, cube.summary(new Decade(1990), Genre.POP).songCount());
+        assertEquals(List.of(new SongSummary("Old", "B", 60.0, 2)), cube.songs(new Decade(1960), null));
+        assertThrows(IllegalArgumentException.class, () -> cube.page(new Decade(1960), null, -1, 1));
+    }
+
+    @Test
+    @DisplayName("Plays racing with adding a song are counted once; closed cubes stop following")
+    void testConcurrentAddAndClose() {
+        Song song = new Song("Busy", Set.of("A"), Duration.ofMinutes(3), Year.of(2001), Genre.ROCK, Set.of(), 0, 50.0);
+        DecadeGenreCube cube = new DecadeGenreCube();
+        IntStream.range(0, 50_000).parallel().forEach(i -> {
+            if (i == 20_000) {
+                cube.add(song);
+            } else {
+                song.incrementPlayCount();
+            }
+        });
+        assertEquals(song.getPlayCountLong(), cube.summary(new Decade(2000), Genre.ROCK).playSum());
+
+        cube.close();
+        song.incrementPlayCount(5);
+        song.updatePopularity(70.0);
+        assertEquals(new CellSummary(new Decade(2000), Genre.ROCK, 1, 50.0, 49_999L), cube.summary(new Decade(2000), Genre.ROCK));
+    }
+
+    private static double sumPopularity(List<Song> songs, Decade decade, Genre genre) {
+        return songs.stream()
+                .filter(song -> new Decade(song.getReleaseYear().getValue()).equals(decade))
+                .filter(song -> song.getPrimaryGenre() == genre)
+                .mapToDouble(Song::getPopularity)
+                .sum();
+    }
+}
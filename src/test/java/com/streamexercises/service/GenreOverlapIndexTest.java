@@ -0,0 +1,69 @@
+package com.streamexercises.service;
+
+import com.streamexercises.model.Genre;
+import com.streamexercises.model.User;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the bucketed favorite-genre overlap join.
+ */
+public class GenreOverlapIndexTest {
+
+    @Test
+    @DisplayName("Bucket join matches the pairwise comparison, in every output form")
+    void testMatchesPairwiseComparison() {
+        Random random = new Random(15);
+        Genre[] genres = Genre.values();
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            Set<Genre> favorites = EnumSet.noneOf(Genre.class);
+            int count = random.nextInt(4); // some users have no favorites
+            for (int g = 0; g < count; g++) {
+                favorites.add(genres[random.nextInt(genres.length)]);
+            }
+            users.add(new User("overlap-user-" + i, "overlap-user-" + i + "@example.com",
+                    LocalDate.of(2020, 1, 1), favorites, "US", false));
+        }
+        GenreOverlapIndex index = new GenreOverlapIndex(users);
+        Map<String, List<String>> all = index.toMap();
+        Map<String, List<String>> page = index.page(100, 50);
+        long[] pairCount = new long[1];
+        index.forEachOverlappingPair((user, other) -> {
+            assertNotEquals(user, other);
+            pairCount[0]++;
+        });
+
+        long expectedPairs = 0;
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            List<String> expected = new ArrayList<>();
+            for (User other : users) {
+                if (other != user && (user.getFavoriteGenreMask() & other.getFavoriteGenreMask()) != 0) {
+                    expected.add(other.getUsername());
+                }
+            }
+            expectedPairs += expected.size();
+            assertEquals(expected, all.get(user.getUsername()));
+            assertEquals(expected.size(), index.overlapCount(i));
+            if (i >= 100 && i < 150) {
+                assertEquals(expected, page.get(user.getUsername()));
+            }
+        }
+        assertEquals(users.size(), all.size());
+        assertEquals(50, page.size());
+        assertEquals("overlap-user-100", page.keySet().iterator().next());
+        assertEquals(expectedPairs, pairCount[0]);
+        assertTrue(index.getBucketCount() <= users.size());
+    }
+}
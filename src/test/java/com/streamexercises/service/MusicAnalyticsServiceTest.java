@@ -257,6 +257,28 @@ public class MusicAnalyticsServiceTest {
         assertEquals(expectedMostPopularSong, dto.getMostPopularSong(), "Most popular song should match");
     }
 
+    @Test
+    @DisplayName("Exercise 7: Song titles are joined lazily, capped on request, and parallel mode keeps order")
+    void testCreateAlbumSummariesTitles() {
+        List<MusicAnalyticsService.AlbumSummaryDTO> sequential = service.createAlbumSummaries(allAlbums, false);
+        List<MusicAnalyticsService.AlbumSummaryDTO> parallel = service.createAlbumSummaries(allAlbums, true);
+
+        assertEquals(allAlbums.size(), parallel.size());
+        for (int i = 0; i < allAlbums.size(); i++) {
+            Album album = allAlbums.get(i);
+            String expectedTitles = album.getSongs().stream()
+                    .map(Song::getTitle)
+                    .collect(Collectors.joining(", "));
+            MusicAnalyticsService.AlbumSummaryDTO dto = sequential.get(i);
+
+            assertEquals(album.getTitle(), parallel.get(i).getTitle(), "Parallel summaries should keep album order");
+            assertEquals(expectedTitles.substring(0, Math.min(10, expectedTitles.length())), dto.getSongTitles(10));
+            assertEquals(expectedTitles, dto.getSongTitles());
+            assertEquals(expectedTitles, parallel.get(i).getSongTitles());
+            assertEquals(expectedTitles, dto.getSongTitles(Integer.MAX_VALUE));
+        }
+    }
+
     @Test
     @DisplayName("Exercise 8: Advanced user statistics combining multiple data sources")
     void testGenerateUserStatistics() {
@@ -620,6 +642,78 @@ public class MusicAnalyticsServiceTest {
         }
     }
 
+    @Test
+    @DisplayName("Catalog keeps id, owner and artist indexes up to date")
+    void testCatalogIndexes() {
+        Catalog catalog = new Catalog(allSongs, allAlbums, allPlaylists, allUsers);
+
+        assertEquals(allSongs.size(), catalog.getSongs().size());
+        assertEquals(allAlbums.size(), catalog.getAlbums().size());
+        assertFalse(catalog.addSong(allSongs.get(0)), "Adding a known song should be a no-op");
+
+        Song song = allSongs.get(9);
+        assertEquals(Optional.of(song), catalog.findSongById(song.getId()));
+        assertTrue(catalog.getSongsByArtist("Drake").contains(song));
+        assertTrue(catalog.getSongsByArtist("Travis Scott").contains(song));
+        assertEquals(4, catalog.getAlbumsByArtist("Various Artists").size());
+
+        User rockFan = allUsers.get(0);
+        assertEquals(2, catalog.getPlaylistsByOwner(rockFan.getId()).size());
+        assertTrue(catalog.getPlaylistsByOwner("unknown").isEmpty());
+
+        Playlist added = new Playlist("Late addition", rockFan.getId(), false, null);
+        catalog.addPlaylist(added);
+        assertEquals(3, catalog.getPlaylistsByOwner(rockFan.getId()).size());
+    }
+
+    @Test
+    @DisplayName("Catalog variants of exercises 8, 13 and 15 match the list-based results")
+    void testCatalogVariants() {
+        Catalog catalog = new Catalog(allSongs, allAlbums, allPlaylists, allUsers);
+        allUsers.forEach(user -> user.setListeningHistory(List.of(
+                allSongs.get(0).getId(), allSongs.get(1).getId(), allSongs.get(0).getId(), allSongs.get(2).getId())));
+
+        Map<String, MusicAnalyticsService.UserStatisticsDTO> expectedStats =
+                service.generateUserStatistics(allUsers, allSongs, allPlaylists);
+        Map<String, MusicAnalyticsService.UserStatisticsDTO> actualStats =
+                service.generateUserStatistics(allUsers, catalog);
+        assertEquals(expectedStats.keySet(), actualStats.keySet());
+        expectedStats.forEach((username, expected) -> {
+            MusicAnalyticsService.UserStatisticsDTO actual = actualStats.get(username);
+            assertEquals(expected.getTotalPlayCount(), actual.getTotalPlayCount());
+            assertEquals(expected.getNumberOfPlaylists(), actual.getNumberOfPlaylists());
+            assertEquals(expected.getTopSongs(), actual.getTopSongs());
+            assertEquals(expected.getMostPlayedGenres(), actual.getMostPlayedGenres());
+        });
+
+        assertEquals(service.calculateGenreAffinityScores(allUsers, allSongs, allPlaylists),
+                service.calculateGenreAffinityScores(allUsers, catalog));
+
+        assertEquals(service.analyzeTrackTransitionProbabilities(allUsers,
+                        allSongs.stream().collect(Collectors.toMap(Song::getId, song -> song))),
+                service.analyzeTrackTransitionProbabilities(allUsers, catalog));
+
+        // An id far past the input size switches the list-based lookups to hashing; same results
+        for (int i = 0; i < 100_000; i++) {
+            IdRegistry.SONGS.allocate();
+        }
+        List<Song> sparseSongs = new ArrayList<>(allSongs);
+        sparseSongs.add(new Song("Unplayed", Set.of("Nobody"), Duration.ofMinutes(3), Year.of(2020),
+                Genre.JAZZ, Set.of(), 0, 1.0));
+        Map<String, MusicAnalyticsService.UserStatisticsDTO> sparseStats =
+                service.generateUserStatistics(allUsers, sparseSongs, allPlaylists);
+        expectedStats.forEach((username, expected) -> {
+            MusicAnalyticsService.UserStatisticsDTO actual = sparseStats.get(username);
+            assertEquals(expected.getNumberOfPlaylists(), actual.getNumberOfPlaylists());
+            assertEquals(expected.getTopSongs(), actual.getTopSongs());
+        });
+        assertEquals(service.calculateGenreAffinityScores(allUsers, catalog),
+                service.calculateGenreAffinityScores(allUsers, sparseSongs, allPlaylists));
+        assertEquals(service.analyzeTrackTransitionProbabilities(allUsers, catalog),
+                service.analyzeTrackTransitionProbabilities(allUsers,
+                        sparseSongs.stream().collect(Collectors.toMap(Song::getId, song -> song))));
+    }
+
     /**
      * Helper method to calculate recommendation score for validation
      */
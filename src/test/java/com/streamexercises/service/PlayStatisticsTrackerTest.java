@@ -0,0 +1,80 @@
+package com.streamexercises.service;
+
+import com.streamexercises.model.User;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.IntSummaryStatistics;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the live premium/free play statistics.
+ */
+public class PlayStatisticsTrackerTest {
+
+    @Test
+    @DisplayName("Concurrent plays, replaced counts and premium flips match a recomputation")
+    void testMatchesRecomputation() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            users.add(new User("tracked-user-" + i, "tracked" + i, i % 3 == 0));
+        }
+        PlayStatisticsTracker tracker = new PlayStatisticsTracker(users);
+        assertEquals(0, tracker.statistics(true).getSum());
+
+        IntStream.range(0, 100_000).parallel().forEach(i -> {
+            User user = users.get(i % users.size());
+            if (i % 2 == 0) {
+                user.playSong("tracked-song-" + (i % 7));
+            } else {
+                user.recordSongListen(i % 11);
+            }
+            if (i % 997 == 0) {
+                user.setPremium(!user.isPremium());
+            }
+        });
+        users.get(0).setSongPlayCounts(Map.of("tracked-song-0", 1));
+        users.get(1).setPremium(!users.get(1).isPremium());
+        assertStatistics(users, tracker);
+
+        User leaving = users.remove(5);
+        assertTrue(tracker.untrack(leaving));
+        assertFalse(tracker.untrack(leaving));
+        leaving.playSong("tracked-song-0", 50);
+        assertStatistics(users, tracker);
+    }
+
+    @Test
+    @DisplayName("Min and max follow the users holding them")
+    void testBoundsFollowUsers() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            User user = new User("bounds-user-" + i, "bounds" + i, false);
+            user.playSong(0, 1 + 4 * i); // totals 1, 5, 9
+            users.add(user);
+        }
+        PlayStatisticsTracker tracker = new PlayStatisticsTracker(users);
+        users.get(0).playSong(0, 20); // min user moves past the max
+        assertStatistics(users, tracker);
+        users.get(0).setPremium(true); // max user leaves the partition
+        assertStatistics(users, tracker);
+        users.get(2).setSongPlayCounts(Map.of()); // a user drops to 0
+        assertStatistics(users, tracker);
+    }
+
+    private static void assertStatistics(List<User> users, PlayStatisticsTracker tracker) {
+        Map<Boolean, IntSummaryStatistics> expected = users.stream()
+                .collect(Collectors.partitioningBy(User::isPremium,
+                        Collectors.summarizingInt(User::getTotalPlayCount)));
+        Map<Boolean, IntSummaryStatistics> actual = tracker.snapshot();
+        for (boolean premium : new boolean[] {false, true}) {
+            assertEquals(expected.get(premium).toString(), actual.get(premium).toString(), "premium=" + premium);
+        }
+    }
+}
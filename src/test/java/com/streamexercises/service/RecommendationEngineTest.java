@@ -0,0 +1,144 @@
+package com.streamexercises.service;
+
+import com.streamexercises.generator.GeneratorConfig;
+import com.streamexercises.generator.SyntheticCatalogGenerator;
+import com.streamexercises.model.Album;
+import com.streamexercises.model.Genre;
+import com.streamexercises.model.Song;
+import com.streamexercises.model.User;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for threshold-algorithm recommendations.
+ */
+public class RecommendationEngineTest {
+
+    @Test
+    @DisplayName("Indexed and scanned recommendations equal scoring and sorting every song")
+    void testMatchesFullScoring() {
+        SyntheticCatalogGenerator generator = new SyntheticCatalogGenerator(
+                GeneratorConfig.defaults(21L, 6_000, 60).withListensPerUser(80, 500));
+        List<Song> songs = generator.songs().collect(Collectors.toList());
+        List<Album> albums = generator.albums(songs).collect(Collectors.toList());
+        List<User> users = generator.users(songs, albums).collect(Collectors.toList());
+        for (int i = 0; i < users.size(); i++) {
+            if (i % 3 != 0) {
+                users.get(i).addFavoriteAlbum(albums.get((i * 37) % albums.size()));
+            }
+        }
+        users.get(0).removeFavoriteGenre(users.get(0).getFavoriteGenres().iterator().next());
+        RecommendationEngine engine = new RecommendationEngine(songs);
+
+        for (User user : users) {
+            for (int k : new int[] {0, 1, 10, 60}) {
+                List<Song> expected = scoreAndSort(user, songs, k);
+                assertEquals(expected, engine.recommend(user, k), user.getUsername() + " k=" + k);
+                assertEquals(expected, RecommendationEngine.scan(user, songs, k), user.getUsername() + " k=" + k);
+            }
+        }
+
+        Map<User, List<Song>> batch = engine.recommendAll(users, 10, true)
+                .collect(Collectors.toMap(RecommendationEngine.UserRecommendations::user,
+                        RecommendationEngine.UserRecommendations::songs));
+        assertEquals(users.size(), batch.size());
+        for (User user : users) {
+            assertEquals(scoreAndSort(user, songs, 10), batch.get(user), user.getUsername());
+        }
+
+        // A batch keeps scoring with the popularity of the state it started from
+        User user = users.get(1);
+        Song boosted = songs.stream()
+                .filter(song -> !user.hasPlayed(song.getIntId()))
+                .min((a, b) -> Double.compare(a.getPopularity(), b.getPopularity()))
+                .orElseThrow();
+        List<Song> before = scoreAndSort(user, songs, 10);
+        Stream<RecommendationEngine.UserRecommendations> pinned = engine.recommendAll(List.of(user), 10, false);
+        Song best = before.get(0);
+        double bestPopularity = best.getPopularity();
+        best.updatePopularity(0.0);
+        assertEquals(before, pinned.findFirst().orElseThrow().songs());
+        best.updatePopularity(bestPopularity);
+
+        // A popularity change must be reflected by the posting lists
+        for (Genre genre : Genre.values()) {
+            user.addFavoriteGenre(genre);
+        }
+        assertEquals(scoreAndSort(user, songs, 10), engine.recommend(user, 10));
+    }
+
+    @Test
+    @DisplayName("Walks stop early and follow popularity changes without rebuilding per query")
+    void testWalkStopsEarly() throws InterruptedException {
+        SyntheticCatalogGenerator generator = new SyntheticCatalogGenerator(
+                GeneratorConfig.defaults(22L, 20_000, 40).withListensPerUser(20, 100));
+        List<Song> songs = generator.songs().collect(Collectors.toList());
+        List<Album> albums = generator.albums(songs).collect(Collectors.toList());
+        List<User> users = generator.users(songs, albums).collect(Collectors.toList());
+        for (int i = 0; i < users.size(); i++) {
+            users.get(i).addFavoriteAlbum(albums.get((i * 13) % albums.size()));
+        }
+        RecommendationEngine engine = new RecommendationEngine(songs);
+
+        for (User user : users) {
+            assertEquals(scoreAndSort(user, songs, 10), engine.recommend(user, 10), user.getUsername());
+            assertTrue(engine.lastWalkLength() < songs.size() / 50, user.getUsername() + " walked " + engine.lastWalkLength());
+        }
+
+        // Enough changes to go through the change log and then be merged back
+        for (int i = 0; i < 1_000; i++) {
+            Song song = songs.get((i * 7_919) % songs.size());
+            song.updatePopularity((i * 31) % 101);
+            if (i % 97 == 0) {
+                User user = users.get(i % users.size());
+                assertEquals(scoreAndSort(user, songs, 10), engine.recommend(user, 10), "after " + i + " changes");
+            }
+        }
+        for (User user : users) {
+            assertEquals(scoreAndSort(user, songs, 10), engine.recommend(user, 10), user.getUsername());
+        }
+
+        // Merges run in the background; once they catch up few changes are left to score per query
+        long deadline = System.nanoTime() + 10_000_000_000L;
+        while (engine.pendingChanges() >= RecommendationEngine.CHANGES_BEFORE_MERGE && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertTrue(engine.pendingChanges() < RecommendationEngine.CHANGES_BEFORE_MERGE);
+        for (User user : users) {
+            assertEquals(scoreAndSort(user, songs, 10), engine.recommend(user, 10), user.getUsername());
+        }
+        engine.close();
+    }
+
+    // The original stream implementation of exercise 10, generalized to k
+    private static List<Song> scoreAndSort(User user, List<Song> songs, int k) {
+        Set<Genre> favoriteGenres = user.getFavoriteGenres();
+        Set<String> favoriteArtists = user.getFavoriteAlbums().stream()
+                .map(Album::getArtist)
+                .collect(Collectors.toSet());
+        Set<String> played = user.getSongPlayCounts().keySet();
+        return songs.stream()
+                .filter(song -> !played.contains(song.getId()))
+                .map(song -> {
+                    double genreScore = favoriteGenres.contains(song.getPrimaryGenre()) ? 10.0 : 0.0;
+                    double secondaryGenreScore = song.getSecondaryGenres().stream()
+                            .filter(favoriteGenres::contains)
+                            .count() * 2.0;
+                    double popularityScore = song.getPopularity() * 0.5;
+                    double artistBonus = song.getArtists().stream().anyMatch(favoriteArtists::contains) ? 20.0 : 0.0;
+                    return Map.entry(song, genreScore + secondaryGenreScore + popularityScore + artistBonus);
+                })
+                .sorted(Map.Entry.<Song, Double>comparingByValue().reversed())
+                .limit(k)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+}
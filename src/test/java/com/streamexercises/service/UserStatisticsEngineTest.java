@@ -0,0 +1,56 @@
+package com.streamexercises.service;
+
+import com.streamexercises.generator.GeneratorConfig;
+import com.streamexercises.generator.SyntheticCatalogGenerator;
+import com.streamexercises.model.Album;
+import com.streamexercises.model.Catalog;
+import com.streamexercises.model.Song;
+import com.streamexercises.model.User;
+import com.streamexercises.service.MusicAnalyticsService.UserStatisticsDTO;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the batch user statistics engine.
+ */
+public class UserStatisticsEngineTest {
+
+    @Test
+    @DisplayName("Parallel chunks give the same statistics as sorting each user's play counts")
+    void testParallelMatchesSortedPlayCounts() {
+        SyntheticCatalogGenerator generator = new SyntheticCatalogGenerator(
+                GeneratorConfig.defaults(19L, 3_000, 2_500).withListensPerUser(40, 400));
+        List<Song> songs = generator.songs().collect(Collectors.toList());
+        List<Album> albums = generator.albums(songs).collect(Collectors.toList());
+        List<User> users = generator.users(songs, albums).collect(Collectors.toList());
+        Catalog catalog = new Catalog(songs, albums, List.of(), users);
+        UserStatisticsEngine engine = new UserStatisticsEngine(catalog::getSong, catalog::getPlaylistsByOwner);
+
+        Map<String, UserStatisticsDTO> sequential = engine.compute(users, false);
+        Map<String, UserStatisticsDTO> parallel = engine.compute(users, true);
+
+        assertEquals(users.size(), parallel.size());
+        for (User user : users) {
+            List<Song> expectedTopSongs = user.getSongPlayCounts().entrySet().stream()
+                    .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+                    .limit(5)
+                    .map(entry -> catalog.getSong(entry.getKey()))
+                    .filter(Objects::nonNull)
+                    .collect(Collectors.toList());
+            UserStatisticsDTO stats = parallel.get(user.getUsername());
+
+            assertEquals(expectedTopSongs, stats.getTopSongs(), user.getUsername());
+            assertEquals(expectedTopSongs.stream().map(Song::getPrimaryGenre).collect(Collectors.toSet()),
+                    stats.getMostPlayedGenres());
+            assertEquals(user.getTotalPlayCount(), stats.getTotalPlayCount());
+            assertEquals(sequential.get(user.getUsername()).getTopSongs(), stats.getTopSongs());
+        }
+    }
+}